@@ -1,27 +1,27 @@
 package com.stockmarket;
 
+import java.util.Arrays;
+
 public class Portfolio {
     private double cash;
-    private final StockHolding[] holdings;
-    private int holdingsCount;
 
-    private static final int MAX_HOLDINGS = 10;
+    // Holdings stored densely in insertion order, quantities kept as primitives
+    private Stock[] stocks;
+    private int[] quantities;
+    private int holdingsCount;
 
-    private static class StockHolding {
-        private final Stock stock;
-        private int quantity;
+    // Open-addressing index: symbol hash -> position + 1 (0 marks an empty slot)
+    private int[] index;
 
-        private StockHolding(Stock stock, int quantity) {
-            this.stock = stock;
-            this.quantity = quantity;
-        }
-    }
+    private static final int INITIAL_CAPACITY = 16;
 
     public Portfolio(double initialCash) {
         if (initialCash < 0)
             throw new IllegalArgumentException("Initial cash cannot be negative");
         this.cash = initialCash;
-        this.holdings = new StockHolding[MAX_HOLDINGS];
+        this.stocks = new Stock[INITIAL_CAPACITY];
+        this.quantities = new int[INITIAL_CAPACITY];
+        this.index = new int[INITIAL_CAPACITY * 2];
         this.holdingsCount = 0;
     }
 
@@ -39,24 +39,40 @@ public class Portfolio {
         if (stock == null)
             throw new IllegalArgumentException("Stock cannot be null");
 
-        for (int i = 0; i < holdingsCount; i++) {
-            if (holdings[i].stock.equals(stock)) {
-                holdings[i].quantity += quantity;
+        String symbol = stock.getSymbol();
+        int mask = index.length - 1;
+        int slot = slotFor(symbol, mask);
+        while (index[slot] != 0) {
+            int position = index[slot] - 1;
+            if (stocks[position].getSymbol().equals(symbol)) {
+                quantities[position] += quantity;
                 return;
             }
+            slot = (slot + 1) & mask;
         }
 
-        if (holdingsCount >= MAX_HOLDINGS)
-            throw new IllegalStateException("Portfolio is full");
+        if (holdingsCount == stocks.length) {
+            grow();
+            slot = findFreeSlot(symbol);
+        }
 
-        holdings[holdingsCount++] = new StockHolding(stock, quantity);
+        stocks[holdingsCount] = stock;
+        quantities[holdingsCount] = quantity;
+        index[slot] = ++holdingsCount;
     }
 
     public int getStockQuantity(Stock stock) {
-        for (int i = 0; i < holdingsCount; i++) {
-            if (holdings[i].stock.equals(stock)) {
-                return holdings[i].quantity;
+        if (stock == null)
+            return 0;
+        String symbol = stock.getSymbol();
+        int mask = index.length - 1;
+        int slot = slotFor(symbol, mask);
+        while (index[slot] != 0) {
+            int position = index[slot] - 1;
+            if (stocks[position].getSymbol().equals(symbol)) {
+                return quantities[position];
             }
+            slot = (slot + 1) & mask;
         }
         return 0;
     }
@@ -64,7 +80,7 @@ public class Portfolio {
     public double calculateStockValue() {
         double total = 0;
         for (int i = 0; i < holdingsCount; i++) {
-            total += holdings[i].stock.getInitialPrice() * holdings[i].quantity;
+            total += stocks[i].getInitialPrice() * quantities[i];
         }
         return total;
     }
@@ -72,4 +88,29 @@ public class Portfolio {
     public double calculateTotalValue() {
         return cash + calculateStockValue();
     }
+
+    // Doubles storage and rebuilds the index, keeping the load factor at most 1/2
+    private void grow() {
+        int capacity = stocks.length * 2;
+        stocks = Arrays.copyOf(stocks, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        index = new int[capacity * 2];
+        for (int i = 0; i < holdingsCount; i++) {
+            index[findFreeSlot(stocks[i].getSymbol())] = i + 1;
+        }
+    }
+
+    private int findFreeSlot(String symbol) {
+        int mask = index.length - 1;
+        int slot = slotFor(symbol, mask);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int slotFor(String symbol, int mask) {
+        int h = symbol.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
 }
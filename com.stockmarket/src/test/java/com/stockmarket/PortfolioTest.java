@@ -55,12 +55,14 @@ public class PortfolioTest {
     }
 
     @Test
-    void testAddStockWhenFullThrowsException() {
-        for (int i = 0; i < 10; i++) {
-            portfolio.addStock(new Stock("SYM" + i, "Company" + i, 10.0), 1);
+    void testAddStockBeyondInitialCapacityGrows() {
+        for (int i = 0; i < 1000; i++) {
+            portfolio.addStock(new Stock("SYM" + i, "Company" + i, 10.0), i + 1);
         }
-        assertThrows(IllegalStateException.class, () ->
-                portfolio.addStock(new Stock("OVER", "Overflow", 5.0), 1));
+        assertEquals(1000, portfolio.getHoldingsCount());
+        assertEquals(1, portfolio.getStockQuantity(new Stock("SYM0", "Company0", 10.0)));
+        assertEquals(1000, portfolio.getStockQuantity(new Stock("SYM999", "Company999", 10.0)));
+        assertEquals(10.0 * 1000 * 1001 / 2, portfolio.calculateStockValue());
     }
 
     @Test
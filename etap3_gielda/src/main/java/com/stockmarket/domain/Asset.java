@@ -2,53 +2,124 @@ package com.stockmarket.domain;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public abstract class Asset {
-    private final String ticker;
-    private BigDecimal currentPrice;
-    private final AssetType type;
+    // Wskaźnik do współdzielonego instrumentu (ticker, typ, cena, atrybuty statyczne)
+    private final Instrument instrument;
 
-    // Historia zakupów
-    private final List<Lot> lots = new ArrayList<>();
+    // Historia zakupów (na stercie albo w magazynie off-heap)
+    private List<Lot> lots = new ArrayList<>();
+    private LotStorage lotStorage = LotStorage.ON_HEAP;
+
+    // Źródło partii doczytywanych przy pierwszym dostępie (null = partie już w pamięci)
+    private Supplier<List<Lot>> lotSource;
 
     public Asset(String ticker, BigDecimal currentPrice, AssetType type) {
-        this.ticker = ticker;
-        this.currentPrice = currentPrice;
-        this.type = type;
+        this(Instrument.withDefaults(ticker, type, currentPrice));
+    }
+
+    protected Asset(Instrument instrument) {
+        this.instrument = instrument;
     }
 
     public abstract BigDecimal calculateRealValue(int quantity);
 
+    // Pozycja wskazująca na kanoniczny instrument z cache danych referencyjnych
+    public static Asset forInstrument(Instrument instrument) {
+        switch (instrument.getType()) {
+            case SHARE: return new Share(instrument);
+            case COMMODITY: return new Commodity(instrument);
+            case CURRENCY: return new Currency(instrument);
+            default: throw new IllegalArgumentException("Nieznany typ aktywa: " + instrument.getType());
+        }
+    }
+
+    protected static Instrument requireType(Instrument instrument, AssetType type) {
+        if (instrument.getType() != type) {
+            throw new IllegalArgumentException("Instrument " + instrument.getTicker() + " nie jest typu " + type);
+        }
+        return instrument;
+    }
+
     public void addLot(Lot lot) {
+        ensureLoaded();
         this.lots.add(lot);
     }
 
+    // Dopisanie wielu partii naraz - lista rośnie jednokrotnie
+    public void addLots(Collection<Lot> newLots) {
+        ensureLoaded();
+        this.lots.addAll(newLots);
+    }
+
     public List<Lot> getLots() {
+        ensureLoaded();
         return lots;
     }
 
+    public void setLotSource(Supplier<List<Lot>> lotSource) {
+        this.lotSource = lotSource;
+    }
+
+    // Przeniesienie partii do innego magazynu; sloty starego magazynu są zwalniane
+    public void useLotStorage(LotStorage storage) {
+        if (storage == lotStorage) return;
+        List<Lot> moved = storage.newLotList();
+        moved.addAll(lots);
+        lots.clear();
+        lots = moved;
+        lotStorage = storage;
+    }
+
+    // Zwolnienie partii porzucanej pozycji (np. slotów off-heap); partie leniwe nie są doczytywane
+    public void releaseLots() {
+        lotSource = null;
+        lots.clear();
+    }
+
+    public LotStorage getLotStorage() {
+        return lotStorage;
+    }
+
+    public boolean isLoaded() {
+        return lotSource == null;
+    }
+
+    private void ensureLoaded() {
+        if (lotSource != null) {
+            lots.addAll(0, lotSource.get());
+            lotSource = null;
+        }
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
     public String getTicker() {
-        return ticker;
+        return instrument.getTicker();
     }
 
     public BigDecimal getCurrentPrice() {
-        return currentPrice;
+        return instrument.getPrice();
     }
 
     public void setCurrentPrice(BigDecimal currentPrice) {
-        this.currentPrice = currentPrice;
+        instrument.setPrice(currentPrice);
     }
 
     public AssetType getType() {
-        return type;
+        return instrument.getType();
     }
 
     // Sumowanie
     public int getTotalQuantity() {
         int sum = 0;
-        for (Lot lot : lots) {
+        for (Lot lot : getLots()) {
             sum += lot.getQuantity();
         }
         return sum;
@@ -59,11 +130,11 @@ public abstract class Asset {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Asset asset = (Asset) o;
-        return Objects.equals(ticker, asset.ticker);
+        return Objects.equals(getTicker(), asset.getTicker());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(ticker);
+        return Objects.hash(getTicker());
     }
 }
\ No newline at end of file
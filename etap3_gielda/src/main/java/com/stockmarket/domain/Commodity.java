@@ -3,17 +3,23 @@ package com.stockmarket.domain;
 import java.math.BigDecimal;
 
 public class Commodity extends Asset {
-    private final BigDecimal storageCostPerUnit;
 
     public Commodity(String ticker, BigDecimal currentPrice, BigDecimal storageCostPerUnit) {
-        super(ticker, currentPrice, AssetType.COMMODITY);
-        this.storageCostPerUnit = storageCostPerUnit;
+        super(new Instrument(ticker, AssetType.COMMODITY, currentPrice, BigDecimal.ZERO, storageCostPerUnit, BigDecimal.ZERO));
+    }
+
+    public Commodity(Instrument instrument) {
+        super(requireType(instrument, AssetType.COMMODITY));
+    }
+
+    public BigDecimal getStorageCostPerUnit() {
+        return getInstrument().getStorageCostPerUnit();
     }
 
     @Override
     public BigDecimal calculateRealValue(int quantity) {
         BigDecimal rawValue = getCurrentPrice().multiply(BigDecimal.valueOf(quantity));
-        BigDecimal storageCost = storageCostPerUnit.multiply(BigDecimal.valueOf(quantity));
+        BigDecimal storageCost = getStorageCostPerUnit().multiply(BigDecimal.valueOf(quantity));
         return rawValue.subtract(storageCost).max(BigDecimal.ZERO);
     }
 }
\ No newline at end of file
@@ -3,16 +3,22 @@ package com.stockmarket.domain;
 import java.math.BigDecimal;
 
 public class Currency extends Asset {
-    private final BigDecimal spread;
 
     public Currency(String ticker, BigDecimal currentPrice, BigDecimal spread) {
-        super(ticker, currentPrice, AssetType.CURRENCY);
-        this.spread = spread;
+        super(new Instrument(ticker, AssetType.CURRENCY, currentPrice, BigDecimal.ZERO, BigDecimal.ZERO, spread));
+    }
+
+    public Currency(Instrument instrument) {
+        super(requireType(instrument, AssetType.CURRENCY));
+    }
+
+    public BigDecimal getSpread() {
+        return getInstrument().getSpread();
     }
 
     @Override
     public BigDecimal calculateRealValue(int quantity) {
-        BigDecimal bidPrice = getCurrentPrice().subtract(spread);
+        BigDecimal bidPrice = getCurrentPrice().subtract(getSpread());
         return bidPrice.multiply(BigDecimal.valueOf(quantity)).max(BigDecimal.ZERO);
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.stockmarket.domain;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Dane referencyjne instrumentu - jedna kanoniczna instancja na ticker
+public final class Instrument {
+    private final String ticker;
+    private final AssetType type;
+    private volatile BigDecimal handlingFee;
+    private volatile BigDecimal storageCostPerUnit;
+    private volatile BigDecimal spread;
+    private volatile BigDecimal price;
+    // Licznik zmian ceny i atrybutów - pozwala indeksom wykryć zmianę bez nasłuchu
+    private volatile long version;
+    // Obserwatorzy zmian (np. indeksy wartości portfeli), wywoływani w wątku zmieniającym.
+    // Słabe referencje - porzucony portfel nie jest trzymany przez wspólny instrument
+    private final List<WeakReference<Consumer<Instrument>>> observers = new CopyOnWriteArrayList<>();
+
+    public Instrument(String ticker, AssetType type, BigDecimal price,
+                      BigDecimal handlingFee, BigDecimal storageCostPerUnit, BigDecimal spread) {
+        if (ticker == null || ticker.isBlank()) {
+            throw new IllegalArgumentException("Ticker nie może być pusty");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Typ aktywa nie może być pusty");
+        }
+        this.ticker = ticker;
+        this.type = type;
+        this.price = price;
+        this.handlingFee = handlingFee;
+        this.storageCostPerUnit = storageCostPerUnit;
+        this.spread = spread;
+    }
+
+    // Domyślne atrybuty statyczne dla danego typu (np. przy wczytywaniu portfela)
+    public static Instrument withDefaults(String ticker, AssetType type, BigDecimal price) {
+        BigDecimal fee = type == AssetType.SHARE ? Share.HANDLING_FEE : BigDecimal.ZERO;
+        return new Instrument(ticker, type, price, fee, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    // Przeładowanie atrybutów statycznych bez zmiany tożsamości obiektu
+    public void updateReference(BigDecimal handlingFee, BigDecimal storageCostPerUnit, BigDecimal spread) {
+        this.handlingFee = handlingFee;
+        this.storageCostPerUnit = storageCostPerUnit;
+        this.spread = spread;
+        changed();
+    }
+
+    // Obserwator musi być trzymany przez właściciela (tu tylko słaba referencja)
+    public void addObserver(Consumer<Instrument> observer) {
+        observers.add(new WeakReference<>(observer));
+    }
+
+    public void removeObserver(Consumer<Instrument> observer) {
+        observers.removeIf(ref -> ref.get() == null || ref.get() == observer);
+    }
+
+    public String getTicker() { return ticker; }
+    public AssetType getType() { return type; }
+    public BigDecimal getHandlingFee() { return handlingFee; }
+    public BigDecimal getStorageCostPerUnit() { return storageCostPerUnit; }
+    public BigDecimal getSpread() { return spread; }
+    public BigDecimal getPrice() { return price; }
+    public long getVersion() { return version; }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+        changed();
+    }
+
+    private void changed() {
+        version++;
+        for (WeakReference<Consumer<Instrument>> ref : observers) {
+            Consumer<Instrument> observer = ref.get();
+            if (observer == null) {
+                observers.remove(ref);
+            } else {
+                observer.accept(this);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ticker + "|" + type + "|" + price;
+    }
+}
@@ -4,9 +4,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 public class Lot {
-    private final LocalDate purchaseDate;
+    private LocalDate purchaseDate;
     private int quantity;
-    private final BigDecimal purchasePrice;
+    private BigDecimal purchasePrice;
 
     public Lot(LocalDate purchaseDate, int quantity, BigDecimal purchasePrice) {
         this.purchaseDate = purchaseDate;
@@ -14,6 +14,13 @@ public class Lot {
         this.purchasePrice = purchasePrice;
     }
 
+    // Ponowne użycie obiektu z LotPool
+    void reinit(LocalDate purchaseDate, int quantity, BigDecimal purchasePrice) {
+        this.purchaseDate = purchaseDate;
+        this.quantity = quantity;
+        this.purchasePrice = purchasePrice;
+    }
+
     public int getQuantity() {
         return quantity;
     }
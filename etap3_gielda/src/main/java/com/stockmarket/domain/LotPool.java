@@ -0,0 +1,40 @@
+package com.stockmarket.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Pula obiektów Lot do ponownego użycia (tryb niskiej alokacji portfela).
+// Jednowątkowa - używa jej tylko wątek modyfikujący portfel. Nadmiar ponad pojemność trafia do GC.
+public class LotPool {
+    private final Lot[] free;
+    private int available;
+    private long created;
+
+    public LotPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pojemność puli musi być dodatnia");
+        }
+        this.free = new Lot[capacity];
+    }
+
+    public Lot acquire(LocalDate purchaseDate, int quantity, BigDecimal purchasePrice) {
+        if (available == 0) {
+            created++;
+            return new Lot(purchaseDate, quantity, purchasePrice);
+        }
+        Lot lot = free[--available];
+        free[available] = null;
+        lot.reinit(purchaseDate, quantity, purchasePrice);
+        return lot;
+    }
+
+    // Partia nie może być już nigdzie używana
+    public void release(Lot lot) {
+        if (available < free.length) free[available++] = lot;
+    }
+
+    public int getAvailable() { return available; }
+
+    // Liczba obiektów utworzonych, bo pula była pusta
+    public long getCreated() { return created; }
+}
@@ -0,0 +1,21 @@
+package com.stockmarket.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sposób przechowywania partii aktywa. Domyślnie lista na stercie,
+// alternatywnie OffHeapLotStore (bufory bezpośrednie poza stertą).
+public interface LotStorage {
+    LotStorage ON_HEAP = ArrayList::new;
+
+    List<Lot> newLotList();
+
+    // Wybór z konfiguracji: "heap" albo "offheap"
+    static LotStorage fromConfig(String name) {
+        switch (name) {
+            case "heap": return ON_HEAP;
+            case "offheap": return new OffHeapLotStore();
+            default: throw new IllegalArgumentException("Nieznany magazyn partii: " + name);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.stockmarket.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Kolejka FIFO partii jednego aktywa, połączona przez pole "następny" w slotach magazynu.
+// Dopisanie na końcu i usuwanie przez iterator w O(1); get(i) przechodzi listę od początku.
+// Zwracane obiekty Lot są widokami slotu - pola czytane z bufora dopiero w getterach,
+// setQuantity zapisuje bezpośrednio w buforze. toArray (np. addAll do innej listy) zwraca kopie.
+// Widok nie jest unieważniany: po usunięciu partii (sprzedaż, clear) czyta to, co zajmie
+// zwolniony slot - wartości potrzebne dłużej należy skopiować przed usunięciem.
+final class OffHeapLotList extends AbstractList<Lot> {
+    private final OffHeapLotStore store;
+    private int head = OffHeapLotStore.NONE;
+    private int tail = OffHeapLotStore.NONE;
+    private int size;
+
+    OffHeapLotList(OffHeapLotStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Lot get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        int slot = head;
+        for (int i = 0; i < index; i++) slot = store.next(slot);
+        return new SlotLot(store, slot);
+    }
+
+    @Override
+    public boolean add(Lot lot) {
+        int slot = store.allocate(lot);
+        if (tail == OffHeapLotStore.NONE) {
+            head = slot;
+        } else {
+            store.setNext(tail, slot);
+        }
+        tail = slot;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    // Wstawianie tylko na końcu (tak dopisują partie Asset i leniwy odczyt)
+    @Override
+    public void add(int index, Lot lot) {
+        if (index != size) throw new UnsupportedOperationException("Partie można dopisywać tylko na końcu");
+        add(lot);
+    }
+
+    @Override
+    public Lot remove(int index) {
+        Iterator<Lot> it = iterator();
+        Lot removed = null;
+        for (int i = 0; i <= index; i++) removed = it.next();
+        Lot copy = new Lot(removed.getPurchaseDate(), removed.getQuantity(), removed.getPurchasePrice());
+        it.remove();
+        return copy;
+    }
+
+    // Kopie niezależne od slotów - przeniesienie partii do innego magazynu przeżywa clear()
+    @Override
+    public Object[] toArray() {
+        Object[] copy = new Object[size];
+        int slot = head;
+        for (int i = 0; i < size; i++) {
+            copy[i] = new Lot(store.date(slot), store.quantity(slot), store.price(slot));
+            slot = store.next(slot);
+        }
+        return copy;
+    }
+
+    // Zwalnia wszystkie sloty do magazynu
+    @Override
+    public void clear() {
+        int slot = head;
+        while (slot != OffHeapLotStore.NONE) {
+            int next = store.next(slot);
+            store.release(slot);
+            slot = next;
+        }
+        head = tail = OffHeapLotStore.NONE;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Lot> iterator() {
+        return new Iterator<>() {
+            private int prev = OffHeapLotStore.NONE;    // poprzednik bieżącego
+            private int current = OffHeapLotStore.NONE; // ostatnio zwrócony
+            private int next = head;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return next != OffHeapLotStore.NONE;
+            }
+
+            @Override
+            public Lot next() {
+                if (next == OffHeapLotStore.NONE) throw new NoSuchElementException();
+                if (removable) prev = current;
+                current = next;
+                next = store.next(current);
+                removable = true;
+                return new SlotLot(store, current);
+            }
+
+            @Override
+            public void remove() {
+                if (!removable) throw new IllegalStateException();
+                if (prev == OffHeapLotStore.NONE) {
+                    head = next;
+                } else {
+                    store.setNext(prev, next);
+                }
+                if (tail == current) tail = prev;
+                store.release(current);
+                current = prev;
+                removable = false;
+                size--;
+                modCount++;
+            }
+        };
+    }
+
+    // Widok slotu w formie Lot - bez kopiowania pól; data i cena budowane tylko na żądanie
+    private static final class SlotLot extends Lot {
+        private final OffHeapLotStore store;
+        private final int slot;
+
+        private SlotLot(OffHeapLotStore store, int slot) {
+            super(null, 0, null);
+            this.store = store;
+            this.slot = slot;
+        }
+
+        @Override
+        public LocalDate getPurchaseDate() {
+            return store.date(slot);
+        }
+
+        @Override
+        public BigDecimal getPurchasePrice() {
+            return store.price(slot);
+        }
+
+        @Override
+        public int getQuantity() {
+            return store.quantity(slot);
+        }
+
+        @Override
+        public void setQuantity(int quantity) {
+            store.setQuantity(slot, quantity);
+        }
+
+        @Override
+        public String toString() {
+            return getPurchaseDate() + "|" + getQuantity() + "|" + getPurchasePrice();
+        }
+    }
+}
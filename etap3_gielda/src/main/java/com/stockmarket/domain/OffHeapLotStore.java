@@ -0,0 +1,136 @@
+package com.stockmarket.domain;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+// Magazyn partii poza stertą: stałe sloty po 24 bajty w blokach ByteBuffer.allocateDirect.
+// Slot: dzień (epochDay) | ilość | cena bez skali (long) | skala | następny slot.
+// Sloty zwolnione przez sprzedaż FIFO trafiają na listę wolnych i są używane ponownie.
+// Po close() każdy dostęp kończy się wyjątkiem - bloki zwalnia GC, gdy znikną referencje.
+public class OffHeapLotStore implements LotStorage, AutoCloseable {
+    static final int NONE = -1;
+
+    private static final int SLOT_SIZE = 24;
+    private static final int DAY = 0;
+    private static final int QUANTITY = 4;
+    private static final int UNSCALED = 8;
+    private static final int SCALE = 16;
+    private static final int NEXT = 20;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int nextUnused;
+    private int freeHead = NONE;
+    private int allocated;
+    private volatile boolean closed;
+
+    @Override
+    public List<Lot> newLotList() {
+        checkOpen();
+        return new OffHeapLotList(this);
+    }
+
+    // --- PRZYDZIAŁ SLOTÓW ---
+    synchronized int allocate(Lot lot) {
+        checkOpen();
+        BigDecimal price = lot.getPurchasePrice();
+        if (price.unscaledValue().bitLength() > 63) {
+            throw new IllegalArgumentException("Cena poza zakresem magazynu off-heap: " + price);
+        }
+        int slot;
+        if (freeHead != NONE) {
+            slot = freeHead;
+            freeHead = chunk(slot).getInt(offset(slot) + NEXT);
+        } else {
+            slot = nextUnused++;
+            if ((slot >>> CHUNK_BITS) >= chunks.length) {
+                ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT_SIZE);
+                chunks = grown;
+            }
+        }
+        ByteBuffer buf = chunk(slot);
+        int base = offset(slot);
+        buf.putInt(base + DAY, (int) lot.getPurchaseDate().toEpochDay());
+        buf.putInt(base + QUANTITY, lot.getQuantity());
+        buf.putLong(base + UNSCALED, price.unscaledValue().longValue());
+        buf.putInt(base + SCALE, price.scale());
+        buf.putInt(base + NEXT, NONE);
+        allocated++;
+        return slot;
+    }
+
+    synchronized void release(int slot) {
+        checkOpen();
+        chunk(slot).putInt(offset(slot) + NEXT, freeHead);
+        freeHead = slot;
+        allocated--;
+    }
+
+    // --- DOSTĘP DO PÓL SLOTU ---
+    LocalDate date(int slot) {
+        return LocalDate.ofEpochDay(chunk(slot).getInt(offset(slot) + DAY));
+    }
+
+    int quantity(int slot) {
+        return chunk(slot).getInt(offset(slot) + QUANTITY);
+    }
+
+    void setQuantity(int slot, int quantity) {
+        chunk(slot).putInt(offset(slot) + QUANTITY, quantity);
+    }
+
+    BigDecimal price(int slot) {
+        ByteBuffer buf = chunk(slot);
+        int base = offset(slot);
+        return BigDecimal.valueOf(buf.getLong(base + UNSCALED), buf.getInt(base + SCALE));
+    }
+
+    int next(int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT);
+    }
+
+    void setNext(int slot, int next) {
+        chunk(slot).putInt(offset(slot) + NEXT, next);
+    }
+
+    // --- CYKL ŻYCIA I STATYSTYKI ---
+    @Override
+    public synchronized void close() {
+        closed = true;
+        chunks = new ByteBuffer[0];
+        freeHead = NONE;
+        nextUnused = 0;
+        allocated = 0;
+    }
+
+    public boolean isClosed() { return closed; }
+
+    public synchronized int getAllocatedSlots() { return allocated; }
+
+    // Sloty gotowe do ponownego użycia (zwolnione przez sprzedaże)
+    public synchronized int getFreeSlots() { return nextUnused - allocated; }
+
+    public long getCapacityBytes() {
+        return (long) chunks.length * CHUNK_SLOTS * SLOT_SIZE;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        ByteBuffer[] current = chunks;
+        if (closed) throw new IllegalStateException("Magazyn partii został zamknięty");
+        return current[slot >>> CHUNK_BITS];
+    }
+
+    private static int offset(int slot) {
+        return (slot & (CHUNK_SLOTS - 1)) * SLOT_SIZE;
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("Magazyn partii został zamknięty");
+    }
+}
@@ -3,15 +3,19 @@ package com.stockmarket.domain;
 import java.math.BigDecimal;
 
 public class Share extends Asset {
-    private static final BigDecimal HANDLING_FEE = new BigDecimal("5.00");
+    static final BigDecimal HANDLING_FEE = new BigDecimal("5.00");
 
     public Share(String ticker, BigDecimal currentPrice) {
         super(ticker, currentPrice, AssetType.SHARE);
     }
 
+    public Share(Instrument instrument) {
+        super(requireType(instrument, AssetType.SHARE));
+    }
+
     @Override
     public BigDecimal calculateRealValue(int quantity) {
         BigDecimal rawValue = getCurrentPrice().multiply(BigDecimal.valueOf(quantity));
-        return rawValue.subtract(HANDLING_FEE).max(BigDecimal.ZERO);
+        return rawValue.subtract(getInstrument().getHandlingFee()).max(BigDecimal.ZERO);
     }
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Kojarzenie wewnętrzne: przed wysłaniem na rynek zlecenia BUY i SELL z różnych portfeli
+// na ten sam ticker są łączone w jednym przebiegu. Kolejność: cena, potem identyfikator konta
+// (przy równej cenie między kontami), a w obrębie konta - kolejność napływu zleceń (Order.getSequence).
+// Cena transakcji: bieżąca cena instrumentu ograniczona do przedziału [limit SELL, limit BUY],
+// a bez ceny rynkowej - środek przedziału. Obie strony księgowane przez fillOrder (buy/sell);
+// niedopasowana reszta zostaje w kolejkach portfeli jako rezydualne zlecenia do rynku.
+public class CrossingEngine {
+
+    public CrossingResult cross(Map<String, Portfolio> accounts) {
+        // Zbieranie zleceń wg tickera; konta w stałej kolejności - wynik deterministyczny.
+        // Kolejka portfela jest kopcem (kolejność iteracji nieokreślona) - sortowanie wg napływu
+        Map<String, List<Resting>> buys = new TreeMap<>();
+        Map<String, List<Resting>> sells = new TreeMap<>();
+        int sequence = 0;
+        for (Map.Entry<String, Portfolio> account : new TreeMap<>(accounts).entrySet()) {
+            List<Order> pending = account.getValue().getPendingOrders();
+            pending.sort(Comparator.comparingLong(Order::getSequence));
+            for (Order order : pending) {
+                Resting resting = new Resting(account.getKey(), account.getValue(), order, sequence++);
+                Map<String, List<Resting>> side = order.getType() == Order.Type.BUY ? buys : sells;
+                side.computeIfAbsent(order.getTicker(), t -> new ArrayList<>()).add(resting);
+            }
+        }
+
+        List<Fill> fills = new ArrayList<>();
+        for (Map.Entry<String, List<Resting>> entry : buys.entrySet()) {
+            List<Resting> tickerSells = sells.get(entry.getKey());
+            if (tickerSells != null) crossTicker(entry.getKey(), entry.getValue(), tickerSells, fills);
+        }
+
+        List<ResidualOrder> residual = new ArrayList<>();
+        for (Map.Entry<String, Portfolio> account : new TreeMap<>(accounts).entrySet()) {
+            for (Order order : account.getValue().getPendingOrders()) {
+                residual.add(new ResidualOrder(account.getKey(), order));
+            }
+        }
+        return new CrossingResult(fills, residual);
+    }
+
+    private void crossTicker(String ticker, List<Resting> buys, List<Resting> sells, List<Fill> fills) {
+        buys.sort(Comparator.comparing((Resting r) -> r.order.getPriceLimit()).reversed().thenComparingInt(r -> r.sequence));
+        sells.sort(Comparator.comparing((Resting r) -> r.order.getPriceLimit()).thenComparingInt(r -> r.sequence));
+
+        // Dostępne ilości sprzedających liczone raz, potem pomniejszane lokalnie
+        Map<Portfolio, Integer> holdings = new HashMap<>();
+        boolean[] sellDone = new boolean[sells.size()];
+        int firstOpen = 0; // pierwsza sprzedaż jeszcze nie wyczerpana
+
+        for (Resting buy : buys) {
+            if (firstOpen == sells.size()) break;
+            // Kupna malejąco wg limitu - gdy najlepsza sprzedaż jest za droga, dla kolejnych też
+            if (buy.order.getPriceLimit().compareTo(sells.get(firstOpen).order.getPriceLimit()) < 0) break;
+            if (buy.portfolio.getAsset(ticker) == null) continue; // kupujący bez aktywa idzie na rynek
+
+            int buyLeft = buy.order.getQuantity();
+            for (int s = firstOpen; s < sells.size() && buyLeft > 0; s++) {
+                if (sellDone[s]) continue;
+                Resting sell = sells.get(s);
+                if (buy.order.getPriceLimit().compareTo(sell.order.getPriceLimit()) < 0) break;
+                if (buy.portfolio == sell.portfolio) continue; // własne zlecenia się nie kojarzą - tylko ta para
+
+                int held = holdings.computeIfAbsent(sell.portfolio, p -> {
+                    Asset asset = p.getAsset(ticker);
+                    return asset == null ? 0 : asset.getTotalQuantity();
+                });
+                if (held <= 0) {
+                    sellDone[s] = true; // sprzedaż bez pokrycia - zostaje w kolejce
+                    continue;
+                }
+
+                BigDecimal price = fairPrice(buy, sell);
+                int affordable = buy.portfolio.getCash().divide(price, 0, RoundingMode.FLOOR).min(BigDecimal.valueOf(Integer.MAX_VALUE)).intValue();
+                if (affordable <= 0) break; // dalsze sprzedaże nie są tańsze
+                int sellLeft = sell.order.getQuantity();
+                int quantity = Math.min(Math.min(buyLeft, sellLeft), Math.min(held, affordable));
+
+                sell.portfolio.fillOrder(sell.order, quantity, price);
+                buy.portfolio.fillOrder(buy.order, quantity, price);
+                holdings.put(sell.portfolio, held - quantity);
+                fills.add(new Fill(ticker, buy.accountId, sell.accountId, quantity, price));
+
+                buyLeft -= quantity;
+                if (sellLeft == quantity) sellDone[s] = true;
+            }
+            while (firstOpen < sells.size() && sellDone[firstOpen]) firstOpen++;
+        }
+    }
+
+    private static BigDecimal fairPrice(Resting buy, Resting sell) {
+        BigDecimal bid = buy.order.getPriceLimit();
+        BigDecimal ask = sell.order.getPriceLimit();
+        BigDecimal reference = buy.portfolio.getAsset(buy.order.getTicker()).getCurrentPrice();
+        if (reference == null || reference.signum() <= 0) {
+            return bid.add(ask).divide(BigDecimal.valueOf(2));
+        }
+        return reference.max(ask).min(bid);
+    }
+
+    private static final class Resting {
+        private final String accountId;
+        private final Portfolio portfolio;
+        private final Order order;
+        private final int sequence;
+
+        private Resting(String accountId, Portfolio portfolio, Order order, int sequence) {
+            this.accountId = accountId;
+            this.portfolio = portfolio;
+            this.order = order;
+            this.sequence = sequence;
+        }
+    }
+
+    // --- WYNIKI ---
+    public static final class Fill {
+        private final String ticker;
+        private final String buyerAccount;
+        private final String sellerAccount;
+        private final int quantity;
+        private final BigDecimal price;
+
+        private Fill(String ticker, String buyerAccount, String sellerAccount, int quantity, BigDecimal price) {
+            this.ticker = ticker;
+            this.buyerAccount = buyerAccount;
+            this.sellerAccount = sellerAccount;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public String getTicker() { return ticker; }
+        public String getBuyerAccount() { return buyerAccount; }
+        public String getSellerAccount() { return sellerAccount; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getPrice() { return price; }
+    }
+
+    public static final class ResidualOrder {
+        private final String accountId;
+        private final Order order;
+
+        private ResidualOrder(String accountId, Order order) {
+            this.accountId = accountId;
+            this.order = order;
+        }
+
+        public String getAccountId() { return accountId; }
+        public Order getOrder() { return order; }
+    }
+
+    public static final class CrossingResult {
+        private final List<Fill> fills;
+        private final List<ResidualOrder> residual;
+
+        private CrossingResult(List<Fill> fills, List<ResidualOrder> residual) {
+            this.fills = Collections.unmodifiableList(fills);
+            this.residual = Collections.unmodifiableList(residual);
+        }
+
+        public List<Fill> getFills() { return fills; }
+
+        // Zlecenia (lub ich niezrealizowane części) do wysłania na rynek
+        public List<ResidualOrder> getResidual() { return residual; }
+
+        public int getCrossedQuantity(String ticker) {
+            int total = 0;
+            for (Fill fill : fills) {
+                if (fill.ticker.equals(ticker)) total += fill.quantity;
+            }
+            return total;
+        }
+
+        // Ilość netto do rynku: dodatnia - kupno, ujemna - sprzedaż
+        public int getNetResidual(String ticker) {
+            int net = 0;
+            for (ResidualOrder r : residual) {
+                if (!r.order.getTicker().equals(ticker)) continue;
+                net += r.order.getType() == Order.Type.BUY ? r.order.getQuantity() : -r.order.getQuantity();
+            }
+            return net;
+        }
+    }
+}
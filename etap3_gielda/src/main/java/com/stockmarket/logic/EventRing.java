@@ -0,0 +1,106 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Bufor pierścieniowy zdarzeń: jeden producent (wątek handlowy), wielu konsumentów.
+// Producent nigdy nie czeka - wolny subskrybent, którego dogonił zapis, traci
+// zdarzenia zgodnie ze swoją polityką przepełnienia.
+public class EventRing {
+    public enum OverflowPolicy {
+        // Przeskok do najstarszego dostępnego zdarzenia, utracone są zliczane
+        DROP_OLDEST,
+        // Subskrypcja zostaje zerwana - subskrybent musi odbudować stan od nowa
+        DISCONNECT
+    }
+
+    private final AtomicReferenceArray<PortfolioEvent> slots;
+    private final int mask;
+    // Numer ostatnio opublikowanego zdarzenia (-1 = brak)
+    private final AtomicLong published = new AtomicLong(-1);
+
+    public EventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Pojemność musi być potęgą dwójki");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    // Wywoływane tylko z wątku producenta
+    void publish(PortfolioEvent.Type type, String ticker, int quantity, BigDecimal price) {
+        long sequence = published.get() + 1;
+        slots.lazySet((int) (sequence & mask), new PortfolioEvent(sequence, type, ticker, quantity, price));
+        published.lazySet(sequence);
+    }
+
+    // Nowy subskrybent zaczyna od następnego zdarzenia
+    public Subscription subscribe(OverflowPolicy policy) {
+        return new Subscription(policy, published.get() + 1);
+    }
+
+    public long getPublishedSequence() {
+        return published.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // Kursor jednego subskrybenta - używany z jednego wątku konsumenta
+    public final class Subscription {
+        private final OverflowPolicy policy;
+        private long cursor;
+        private long dropped;
+        private boolean disconnected;
+
+        private Subscription(OverflowPolicy policy, long cursor) {
+            this.policy = policy;
+            this.cursor = cursor;
+        }
+
+        // Następne zdarzenie albo null, gdy subskrybent jest na bieżąco
+        public PortfolioEvent poll() {
+            if (disconnected) {
+                throw new IllegalStateException("Subskrypcja zerwana po przepełnieniu");
+            }
+            while (true) {
+                long head = published.get();
+                if (cursor > head) return null;
+
+                PortfolioEvent event = slots.get((int) (cursor & mask));
+                if (event != null && event.getSequence() == cursor) {
+                    cursor++;
+                    return event;
+                }
+                // Slot nadpisany przez nowsze zdarzenie - subskrybent został dogoniony
+                long oldest = Math.max(0, published.get() - mask);
+                if (policy == OverflowPolicy.DISCONNECT) {
+                    disconnected = true;
+                    throw new IllegalStateException("Subskrypcja zerwana po przepełnieniu");
+                }
+                dropped += oldest - cursor;
+                cursor = oldest;
+            }
+        }
+
+        public int drain(Consumer<PortfolioEvent> handler, int max) {
+            int count = 0;
+            PortfolioEvent event;
+            while (count < max && (event = poll()) != null) {
+                handler.accept(event);
+                count++;
+            }
+            return count;
+        }
+
+        public long getLag() {
+            return Math.max(0, published.get() + 1 - cursor);
+        }
+
+        public long getDropped() { return dropped; }
+        public boolean isDisconnected() { return disconnected; }
+    }
+}
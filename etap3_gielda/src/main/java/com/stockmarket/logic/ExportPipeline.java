@@ -0,0 +1,235 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Masowy eksport wyciągów (format generateReport), CSV i JSON Lines dla wielu kont.
+// Konta dzielone między wątki; każdy wątek formatuje bezpośrednio do własnych, wielokrotnie
+// używanych buforów i zapisuje je przez FileChannel zapisem zbierającym (nagłówek + treść).
+// Pliki: jeden na konto (shards = 0) albo shards plików, każdy obsługiwany przez jeden wątek.
+// Portfele nie mogą być modyfikowane w trakcie eksportu.
+public class ExportPipeline {
+    public enum Format { REPORT, CSV, JSON }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "account,ticker,type,quantity,price,value\n";
+
+    private final Path outputDir;
+    private final Format format;
+    private final int workers;
+    private final int shards;
+
+    public ExportPipeline(Path outputDir, Format format, int workers, int shards) {
+        if (workers <= 0) throw new IllegalArgumentException("Liczba wątków musi być dodatnia");
+        if (shards < 0) throw new IllegalArgumentException("Liczba plików nie może być ujemna");
+        this.outputDir = outputDir;
+        this.format = format;
+        this.workers = workers;
+        this.shards = shards;
+    }
+
+    public ExportResult export(Map<String, Portfolio> accounts) {
+        List<String> ids = new ArrayList<>(new TreeMap<>(accounts).keySet());
+        // Partycje: plik shardu albo grupa kont w trybie plik-na-konto
+        int partitions = shards > 0 ? shards : workers;
+        List<List<String>> parts = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) parts.add(new ArrayList<>());
+        for (int i = 0; i < ids.size(); i++) {
+            int part = shards > 0 ? Math.floorMod(ids.get(i).hashCode(), shards) : i % partitions;
+            parts.get(part).add(ids.get(i));
+        }
+
+        AtomicLong bytes = new AtomicLong();
+        List<Path> files = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                final int partition = p;
+                futures.add(pool.submit(() -> {
+                    Writer writer = new Writer();
+                    if (shards > 0) {
+                        Path file = outputDir.resolve("shard-" + partition + extension());
+                        bytes.addAndGet(writer.writeFile(file, parts.get(partition), accounts));
+                        files.add(file);
+                    } else {
+                        for (String id : parts.get(partition)) {
+                            Path file = outputDir.resolve(id + extension());
+                            bytes.addAndGet(writer.writeFile(file, List.of(id), accounts));
+                            files.add(file);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Eksport przerwany", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Błąd eksportu", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        Collections.sort(files);
+        return new ExportResult(files, ids.size(), bytes.get());
+    }
+
+    private String extension() {
+        switch (format) {
+            case CSV: return ".csv";
+            case JSON: return ".jsonl";
+            default: return ".txt";
+        }
+    }
+
+    // --- FORMATOWANIE (bufory jednego wątku) ---
+    private final class Writer {
+        private final ByteBuffer header = ByteBuffer.allocateDirect(256);
+        private final ByteBuffer body = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer[] gather = {header, body};
+        private FileChannel channel;
+        private long written;
+
+        long writeFile(Path file, List<String> ids, Map<String, Portfolio> accounts) throws IOException {
+            written = 0;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel = ch;
+                header.clear();
+                body.clear();
+                if (format == Format.CSV) put(header, CSV_HEADER);
+                for (String id : ids) writeAccount(id, accounts.get(id), ids.size() > 1);
+                flush();
+            } finally {
+                channel = null;
+            }
+            return written;
+        }
+
+        private void writeAccount(String id, Portfolio portfolio, boolean shared) throws IOException {
+            switch (format) {
+                case REPORT:
+                    if (shared) text("=== ").text(id).text(" ===\n");
+                    text("CASH: ").text(portfolio.getCash().toString()).text("\n");
+                    for (Asset a : portfolio.getAssetsInReportOrder()) {
+                        text(a.getTicker()).text(" Qty: ").number(a.getTotalQuantity()).text("\n");
+                    }
+                    break;
+                case CSV:
+                    for (Asset a : portfolio.getAssetsInReportOrder()) {
+                        int quantity = a.getTotalQuantity();
+                        if (quantity == 0) continue;
+                        BigDecimal price = priceOf(a);
+                        text(id).text(",").text(a.getTicker()).text(",").text(a.getType().name()).text(",")
+                                .number(quantity).text(",").text(price.toPlainString()).text(",")
+                                .text(price.multiply(BigDecimal.valueOf(quantity)).toPlainString()).text("\n");
+                    }
+                    break;
+                default:
+                    text("{\"account\":\"").json(id).text("\",\"cash\":").text(portfolio.getCash().toPlainString())
+                            .text(",\"positions\":[");
+                    boolean first = true;
+                    for (Asset a : portfolio.getAssetsInReportOrder()) {
+                        int quantity = a.getTotalQuantity();
+                        if (quantity == 0) continue;
+                        BigDecimal price = priceOf(a);
+                        if (!first) text(",");
+                        first = false;
+                        text("{\"ticker\":\"").json(a.getTicker()).text("\",\"type\":\"").text(a.getType().name())
+                                .text("\",\"quantity\":").number(quantity).text(",\"price\":").text(price.toPlainString())
+                                .text(",\"value\":").text(price.multiply(BigDecimal.valueOf(quantity)).toPlainString()).text("}");
+                    }
+                    text("]}\n");
+            }
+        }
+
+        private BigDecimal priceOf(Asset asset) {
+            return asset.getCurrentPrice() == null ? BigDecimal.ZERO : asset.getCurrentPrice();
+        }
+
+        // Tekst kodowany wprost do bufora (ASCII bajt po bajcie, reszta przez UTF-8)
+        private Writer text(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (!body.hasRemaining()) flush();
+                    body.put((byte) c);
+                } else {
+                    byte[] encoded = s.substring(i).getBytes(StandardCharsets.UTF_8);
+                    for (byte b : encoded) {
+                        if (!body.hasRemaining()) flush();
+                        body.put(b);
+                    }
+                    break;
+                }
+            }
+            return this;
+        }
+
+        private Writer json(String s) throws IOException {
+            return text(s.replace("\\", "\\\\").replace("\"", "\\\""));
+        }
+
+        // Liczba całkowita bez tworzenia Stringa
+        private Writer number(int value) throws IOException {
+            if (body.remaining() < 11) flush();
+            if (value < 0) {
+                body.put((byte) '-');
+                value = -value;
+            }
+            int divisor = 1;
+            while (value / divisor >= 10) divisor *= 10;
+            for (; divisor > 0; divisor /= 10) body.put((byte) ('0' + value / divisor % 10));
+            return this;
+        }
+
+        // Zapis zbierający: nagłówek pliku (tylko przy pierwszym zapisie) i zawartość bufora
+        private void flush() throws IOException {
+            header.flip();
+            body.flip();
+            while (header.hasRemaining() || body.hasRemaining()) {
+                written += channel.write(gather);
+            }
+            header.clear();
+            body.clear();
+        }
+
+        private void put(ByteBuffer target, String s) {
+            target.put(s.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static final class ExportResult {
+        private final List<Path> files;
+        private final int accounts;
+        private final long bytesWritten;
+
+        private ExportResult(List<Path> files, int accounts, long bytesWritten) {
+            this.files = Collections.unmodifiableList(new ArrayList<>(files));
+            this.accounts = accounts;
+            this.bytesWritten = bytesWritten;
+        }
+
+        public List<Path> getFiles() { return files; }
+        public int getAccounts() { return accounts; }
+        public long getBytesWritten() { return bytesWritten; }
+    }
+}
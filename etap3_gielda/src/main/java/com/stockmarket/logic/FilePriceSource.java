@@ -0,0 +1,46 @@
+package com.stockmarket.logic;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lokalne źródło cen z pliku (testy, środowisko offline). Plik czytany przy każdym pobraniu.
+// Format: PRICE|Ticker|Cena
+public class FilePriceSource implements PriceSource {
+    private final String filename;
+    private final AtomicInteger fetchCount = new AtomicInteger();
+
+    public FilePriceSource(String filename) {
+        this.filename = filename;
+    }
+
+    @Override
+    public Map<String, BigDecimal> fetch(Collection<String> tickers) {
+        fetchCount.incrementAndGet();
+        Map<String, BigDecimal> result = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\|");
+                if (parts.length != 3 || !parts[0].equals("PRICE")) {
+                    throw new DataIntegrityException("Niepoprawny rekord ceny: " + line);
+                }
+                if (tickers.contains(parts[1])) result.put(parts[1], new BigDecimal(parts[2]));
+            }
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu pliku cen: " + e.getMessage());
+        }
+        return result;
+    }
+
+    // Liczba wykonanych pobrań (do weryfikacji łączenia zapytań)
+    public int getFetchCount() {
+        return fetchCount.get();
+    }
+}
@@ -0,0 +1,107 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Cache kursów walut: pełna macierz kursów krzyżowych wyliczana z cen aktywów Currency
+// (cena = wartość 1 jednostki waluty w walucie bazowej portfela).
+// Odczyty bez blokad - niezmienna migawka publikowana przez pole volatile.
+public class FxRateCache {
+    private static final MathContext MC = MathContext.DECIMAL64;
+
+    private final String baseCurrency;
+    private volatile Snapshot snapshot;
+
+    public FxRateCache(String baseCurrency) {
+        this.baseCurrency = baseCurrency;
+        Map<String, Integer> codes = new HashMap<>();
+        codes.put(baseCurrency, 0);
+        this.snapshot = new Snapshot(codes, new BigDecimal[]{BigDecimal.ONE}, new BigDecimal[][]{{BigDecimal.ONE}});
+    }
+
+    // Wszystkie aktywa Currency z portfela
+    public void updateFrom(Portfolio portfolio) {
+        for (Asset asset : portfolio.getAssets().values()) {
+            if (asset.getType() == AssetType.CURRENCY) {
+                onRateTick(asset.getTicker(), asset.getCurrentPrice());
+            }
+        }
+    }
+
+    // Zmiana jednego kursu przelicza tylko wiersz i kolumnę tej waluty - O(n) dzieleń
+    public synchronized void onRateTick(String currency, BigDecimal priceInBase) {
+        if (currency.equals(baseCurrency)) {
+            throw new IllegalArgumentException("Kurs waluty bazowej jest stały");
+        }
+        if (priceInBase == null || priceInBase.signum() <= 0) {
+            throw new IllegalArgumentException("Kurs musi być dodatni: " + currency);
+        }
+
+        Snapshot current = snapshot;
+        Integer existing = current.codes.get(currency);
+        int n = existing == null ? current.size() + 1 : current.size();
+        int i = existing == null ? n - 1 : existing;
+
+        Map<String, Integer> codes = current.codes;
+        if (existing == null) {
+            codes = new HashMap<>(current.codes);
+            codes.put(currency, i);
+        }
+        BigDecimal[] prices = Arrays.copyOf(current.prices, n);
+        prices[i] = priceInBase;
+
+        BigDecimal[][] matrix = new BigDecimal[n][];
+        for (int r = 0; r < n; r++) {
+            matrix[r] = r < current.size() ? Arrays.copyOf(current.matrix[r], n) : new BigDecimal[n];
+        }
+        for (int k = 0; k < n; k++) {
+            matrix[i][k] = prices[i].divide(prices[k], MC);
+            matrix[k][i] = prices[k].divide(prices[i], MC);
+        }
+        matrix[i][i] = BigDecimal.ONE;
+
+        snapshot = new Snapshot(codes, prices, matrix);
+    }
+
+    // Ile jednostek "to" za 1 jednostkę "from"
+    public BigDecimal rate(String from, String to) {
+        Snapshot s = snapshot;
+        Integer f = s.codes.get(from);
+        Integer t = s.codes.get(to);
+        if (f == null || t == null) {
+            throw new IllegalArgumentException("Brak kursu " + from + "/" + to);
+        }
+        return s.matrix[f][t];
+    }
+
+    public BigDecimal convert(BigDecimal amount, String from, String to) {
+        if (from.equals(to)) return amount;
+        return amount.multiply(rate(from, to), MC);
+    }
+
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    private static final class Snapshot {
+        private final Map<String, Integer> codes;
+        private final BigDecimal[] prices;
+        private final BigDecimal[][] matrix;
+
+        private Snapshot(Map<String, Integer> codes, BigDecimal[] prices, BigDecimal[][] matrix) {
+            this.codes = codes;
+            this.prices = prices;
+            this.matrix = matrix;
+        }
+
+        private int size() {
+            return prices.length;
+        }
+    }
+}
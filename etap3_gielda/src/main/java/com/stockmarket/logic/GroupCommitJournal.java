@@ -0,0 +1,246 @@
+package com.stockmarket.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Dziennik zmian zapisywany w tle: wątek handlowy tylko wrzuca rekord do kolejki,
+// a wątek zapisujący grupuje rekordy w partie z jednym fsync na partię.
+// Pierwszy błąd zapisu jest zapamiętywany: dalsze rekordy nie są zapisywane (dziennik miałby lukę),
+// ich future kończą się błędem, a kolejne append/submit rzucają wyjątek.
+public class GroupCommitJournal implements Closeable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    // Kolejka bez blokad, ograniczona licznikiem CAS (licznik obejmuje też miejsca zarezerwowane)
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    // Oczekiwanie producentów na miejsce - blokada tylko przy pełnej kolejce
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition notFull = spaceLock.newCondition();
+    private volatile int waiting;
+    private final int capacity;
+    private final int maxBatch;
+
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+    private volatile boolean idle;
+
+    // --- METRYKI ---
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long lastCommitNanos;
+    private volatile long maxCommitNanos;
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+
+    public GroupCommitJournal(Path file, int capacity, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Pojemność i rozmiar partii muszą być dodatnie");
+        }
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("Nie można otworzyć dziennika " + file, e);
+        }
+        this.writer = new Thread(this::run, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Fire-and-forget: bez potwierdzenia trwałości
+    public void append(String record) {
+        enqueue(new Entry(record, null));
+    }
+
+    // Future kończy się po fsync partii zawierającej rekord
+    public CompletableFuture<Void> submit(String record) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(new Entry(record, future));
+        return future;
+    }
+
+    // Wywoływane przed zmianą stanu (np. na początku buy/sell), by nie przerywać operacji w połowie
+    public void checkWritable() {
+        if (!running) {
+            throw new IllegalStateException("Dziennik zamknięty");
+        }
+        IOException error = failure;
+        if (error != null) {
+            throw new IllegalStateException("Dziennik uszkodzony - zapis przerwany: " + error.getMessage(), error);
+        }
+    }
+
+    // Pierwszy błąd zapisu (null - dziennik sprawny)
+    public IOException getFailure() {
+        return failure;
+    }
+
+    private void enqueue(Entry entry) {
+        // Przy pełnej kolejce wątek handlowy czeka na sygnał wątku zapisującego (backpressure)
+        while (true) {
+            checkWritable();
+            int current = backlog.get();
+            if (current >= capacity) {
+                awaitSpace();
+            } else if (backlog.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        // close() mógł się zacząć między sprawdzeniem a rezerwacją - miejsce jest zwracane.
+        // Rezerwacja sprzed close() jest widoczna dla wątku zapisującego (czeka na backlog == 0)
+        if (!running || failure != null) {
+            backlog.decrementAndGet();
+            checkWritable();
+        }
+        queue.offer(entry);
+        if (idle) LockSupport.unpark(writer);
+    }
+
+    private void awaitSpace() {
+        spaceLock.lock();
+        try {
+            waiting++;
+            LockSupport.unpark(writer);
+            while (running && backlog.get() >= capacity) notFull.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano oczekiwanie na miejsce w dzienniku", e);
+        } finally {
+            waiting--;
+            spaceLock.unlock();
+        }
+    }
+
+    private void signalSpace() {
+        spaceLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(maxBatch);
+        while (running || backlog.get() > 0) {
+            Entry entry;
+            while (batch.size() < maxBatch && (entry = queue.poll()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                idle = true;
+                if (queue.isEmpty()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                idle = false;
+                continue;
+            }
+            // Po pierwszym błędzie nic nie jest już dopisywane
+            IOException error = failure;
+            if (error == null) {
+                error = commit(batch);
+                if (error != null) failure = error;
+            }
+            // Miejsce zwalniane przed zakończeniem future - po get() backlog już nie obejmuje rekordu
+            backlog.addAndGet(-batch.size());
+            if (waiting > 0) signalSpace();
+            for (Entry e : batch) {
+                if (e.future == null) continue;
+                if (error == null) e.future.complete(null); else e.future.completeExceptionally(error);
+            }
+            batch.clear();
+        }
+    }
+
+    private IOException commit(List<Entry> batch) {
+        long start = System.nanoTime();
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : batch) sb.append(e.record).append('\n');
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            return e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        batches.incrementAndGet();
+        records.addAndGet(batch.size());
+        lastBatchSize = batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+        lastCommitNanos = elapsed;
+        maxCommitNanos = Math.max(maxCommitNanos, elapsed);
+        totalCommitNanos.addAndGet(elapsed);
+        return null;
+    }
+
+    // Kończy przyjmowanie rekordów i czeka na zapis zaległych (łącznie z zarezerwowanymi)
+    @Override
+    public void close() {
+        running = false;
+        signalSpace();
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Rekordy, których wątek zapisujący nie zdążył zapisać (np. przerwane czekanie) - future z błędem
+        Entry pending;
+        while ((pending = queue.poll()) != null) {
+            if (pending.future != null) pending.future.completeExceptionally(new IllegalStateException("Dziennik zamknięty"));
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Błąd zamykania dziennika", e);
+        }
+    }
+
+    public long getBatchCount() { return batches.get(); }
+    public long getRecordCount() { return records.get(); }
+    public int getLastBatchSize() { return lastBatchSize; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public long getLastCommitLatencyNanos() { return lastCommitNanos; }
+    public long getMaxCommitLatencyNanos() { return maxCommitNanos; }
+    public int getBacklog() { return backlog.get(); }
+
+    public double getAverageBatchSize() {
+        long b = batches.get();
+        return b == 0 ? 0 : (double) records.get() / b;
+    }
+
+    public double getAverageCommitLatencyNanos() {
+        long b = batches.get();
+        return b == 0 ? 0 : (double) totalCommitNanos.get() / b;
+    }
+
+    private static final class Entry {
+        private final String record;
+        private final CompletableFuture<Void> future;
+
+        private Entry(String record, CompletableFuture<Void> future) {
+            this.record = record;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Instrument;
+import com.stockmarket.domain.Lot;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Indeksy pomocnicze pozycji: członkostwo wg typu (uporządkowane wg wartości)
+// oraz uporządkowanie wg niezrealizowanego zysku/straty.
+// Pozycje unieważnione (np. po wczytaniu) są przeliczane dopiero przy zapytaniu.
+// Ilość i koszt nabycia są aktualizowane przyrostowo przez buy/sell; zmiany ceny
+// wykonane poza portfelem (Asset.setCurrentPrice, wspólny Instrument) zgłasza sam instrument
+// do zbioru przecenionych tickerów - flush kosztuje O(liczba zmian), nie O(liczba pozycji).
+class HoldingsIndex {
+    private static final Comparator<Entry> BY_VALUE_DESC =
+            Comparator.comparing((Entry e) -> e.value).reversed().thenComparing(e -> e.ticker);
+    private static final Comparator<Entry> BY_PNL =
+            Comparator.comparing((Entry e) -> e.unrealizedPnl).thenComparing(e -> e.ticker);
+
+    private final Map<AssetType, NavigableSet<Entry>> byType = new EnumMap<>(AssetType.class);
+    private final NavigableSet<Entry> byPnl = new TreeSet<>(BY_PNL);
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Set<String> stale = new HashSet<>();
+
+    // Tickery przecenione od ostatniego zapytania - dopisuje je obserwator instrumentu (dowolny wątek)
+    private final Set<String> repricedTickers = ConcurrentHashMap.newKeySet();
+    private final Consumer<Instrument> priceObserver = instrument -> repricedTickers.add(instrument.getTicker());
+    private final Map<String, Instrument> watched = new HashMap<>();
+
+    HoldingsIndex() {
+        for (AssetType type : AssetType.values()) {
+            byType.put(type, new TreeSet<>(BY_VALUE_DESC));
+        }
+    }
+
+    void invalidate(String ticker) {
+        stale.add(ticker);
+    }
+
+    // Pełne przeliczenie z partii - O(liczba partii), tylko dla pozycji unieważnionych
+    void refresh(Asset asset) {
+        stale.remove(asset.getTicker());
+        int quantity = 0;
+        BigDecimal costBasis = BigDecimal.ZERO;
+        for (Lot lot : asset.getLots()) {
+            quantity += lot.getQuantity();
+            costBasis = costBasis.add(lot.getPurchasePrice().multiply(BigDecimal.valueOf(lot.getQuantity())));
+        }
+        place(asset, quantity, costBasis);
+    }
+
+    // Transakcja: zmiana ilości i kosztu nabycia (sprzedaż - wartości ujemne) - O(log n)
+    void traded(Asset asset, int quantityDelta, BigDecimal costDelta) {
+        if (stale.contains(asset.getTicker())) return; // i tak przeliczana przy zapytaniu
+        Entry old = entries.get(asset.getTicker());
+        int quantity = quantityDelta;
+        BigDecimal costBasis = costDelta;
+        if (old != null) {
+            quantity += old.quantity;
+            costBasis = costBasis.add(old.costBasis);
+        }
+        place(asset, quantity, costBasis);
+    }
+
+    // Nowa cena przy tej samej ilości - O(log n)
+    void repriced(Asset asset) {
+        Entry old = entries.get(asset.getTicker());
+        if (old == null || stale.contains(asset.getTicker())) return;
+        place(asset, old.quantity, old.costBasis);
+    }
+
+    private void place(Asset asset, int quantity, BigDecimal costBasis) {
+        unindex(asset.getTicker());
+        if (quantity <= 0) {
+            unwatch(asset.getTicker());
+            return;
+        }
+        watch(asset.getInstrument());
+        BigDecimal value = asset.calculateRealValue(quantity);
+        Entry entry = new Entry(asset, quantity, costBasis, value, value.subtract(costBasis));
+        entries.put(entry.ticker, entry);
+        byType.get(asset.getType()).add(entry);
+        byPnl.add(entry);
+    }
+
+    void remove(String ticker) {
+        unindex(ticker);
+        unwatch(ticker);
+    }
+
+    // Obserwacja tylko instrumentów pozycji obecnych w indeksie
+    private void watch(Instrument instrument) {
+        Instrument previous = watched.put(instrument.getTicker(), instrument);
+        if (previous == instrument) return;
+        if (previous != null) previous.removeObserver(priceObserver);
+        instrument.addObserver(priceObserver);
+    }
+
+    private void unwatch(String ticker) {
+        Instrument previous = watched.remove(ticker);
+        if (previous != null) previous.removeObserver(priceObserver);
+    }
+
+    private void unindex(String ticker) {
+        Entry old = entries.remove(ticker);
+        if (old != null) {
+            byType.get(old.asset.getType()).remove(old);
+            byPnl.remove(old);
+        }
+    }
+
+    // Przeliczenie pozycji unieważnionych i przecenionych od ostatniego zapytania
+    void flush(Map<String, Asset> assets) {
+        if (!stale.isEmpty()) {
+            for (String ticker : new ArrayList<>(stale)) {
+                Asset asset = assets.get(ticker);
+                if (asset == null) {
+                    stale.remove(ticker);
+                    remove(ticker);
+                } else {
+                    refresh(asset);
+                }
+            }
+        }
+        if (repricedTickers.isEmpty()) return;
+        for (Iterator<String> it = repricedTickers.iterator(); it.hasNext(); ) {
+            String ticker = it.next();
+            it.remove();
+            Entry e = entries.get(ticker);
+            // Zmiany przez updatePrice są już przeliczone - wersja się zgadza
+            if (e != null && e.instrumentVersion != e.asset.getInstrument().getVersion()) repriced(e.asset);
+        }
+    }
+
+    // --- ZAPYTANIA ---
+    List<Asset> ofType(AssetType type) {
+        return assetsOf(byType.get(type));
+    }
+
+    List<Asset> worthMoreThan(BigDecimal threshold) {
+        List<Entry> matches = new ArrayList<>();
+        for (NavigableSet<Entry> set : byType.values()) {
+            // Zbiory malejące wg wartości: pozycje > progu są na początku
+            for (Entry e : set) {
+                if (e.value.compareTo(threshold) <= 0) break;
+                matches.add(e);
+            }
+        }
+        matches.sort(BY_VALUE_DESC);
+        return assetsOf(matches);
+    }
+
+    List<Asset> withUnrealizedLoss() {
+        List<Asset> result = new ArrayList<>();
+        for (Entry e : byPnl) {
+            if (e.unrealizedPnl.signum() >= 0) break;
+            result.add(e.asset);
+        }
+        return result;
+    }
+
+    // Wszystkie pozycje: typ, potem wartość malejąco
+    List<Asset> ordered() {
+        List<Asset> result = new ArrayList<>(entries.size());
+        for (NavigableSet<Entry> set : byType.values()) {
+            for (Entry e : set) result.add(e.asset);
+        }
+        return result;
+    }
+
+    private static List<Asset> assetsOf(Iterable<Entry> source) {
+        List<Asset> result = new ArrayList<>();
+        for (Entry e : source) result.add(e.asset);
+        return result;
+    }
+
+    private static final class Entry {
+        private final Asset asset;
+        private final String ticker;
+        private final int quantity;
+        private final BigDecimal costBasis;
+        private final BigDecimal value;
+        private final BigDecimal unrealizedPnl;
+        private final long instrumentVersion; // wersja instrumentu użyta do wyceny
+
+        private Entry(Asset asset, int quantity, BigDecimal costBasis, BigDecimal value, BigDecimal unrealizedPnl) {
+            this.asset = asset;
+            this.ticker = asset.getTicker();
+            this.quantity = quantity;
+            this.costBasis = costBasis;
+            this.value = value;
+            this.unrealizedPnl = unrealizedPnl;
+            this.instrumentVersion = asset.getInstrument().getVersion();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Instrument;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cache danych referencyjnych - jeden kanoniczny Instrument na ticker,
+// współdzielony przez wszystkie portfele
+public class InstrumentMaster {
+    private final Map<String, Instrument> instruments = new ConcurrentHashMap<>();
+
+    public Instrument get(String ticker) {
+        return instruments.get(ticker);
+    }
+
+    // Zwraca kanoniczny instrument, tworząc go z domyślnymi atrybutami przy pierwszym użyciu
+    public Instrument resolve(String ticker, AssetType type) {
+        Instrument instrument = instruments.computeIfAbsent(ticker,
+                t -> Instrument.withDefaults(t, type, BigDecimal.ZERO));
+        if (instrument.getType() != type) {
+            throw new DataIntegrityException("Niezgodny typ instrumentu " + ticker + ": " + type + " != " + instrument.getType());
+        }
+        return instrument;
+    }
+
+    public void register(Instrument instrument) {
+        Instrument existing = instruments.putIfAbsent(instrument.getTicker(), instrument);
+        if (existing != null && existing != instrument) {
+            throw new IllegalStateException("Instrument już zarejestrowany: " + instrument.getTicker());
+        }
+    }
+
+    public void updatePrice(String ticker, BigDecimal price) {
+        Instrument instrument = instruments.get(ticker);
+        if (instrument == null) {
+            throw new IllegalArgumentException("Nieznany instrument: " + ticker);
+        }
+        instrument.setPrice(price);
+    }
+
+    public int size() {
+        return instruments.size();
+    }
+
+    // --- PRZEŁADOWANIE Z PLIKU REFERENCYJNEGO ---
+    // Format: INSTRUMENT|Ticker|Typ|Cena|Opłata|KosztMagazynowania|Spread
+    // Istniejące instancje są aktualizowane w miejscu, więc pozycje w portfelach dalej na nie wskazują
+    public void reloadFromFile(String filename) {
+        List<Instrument> parsed = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\|");
+                if (parts.length != 7 || !parts[0].equals("INSTRUMENT")) {
+                    throw new DataIntegrityException("Niepoprawny rekord w linii " + lineNo);
+                }
+                parsed.add(new Instrument(parts[1], AssetType.valueOf(parts[2]), new BigDecimal(parts[3]),
+                        new BigDecimal(parts[4]), new BigDecimal(parts[5]), new BigDecimal(parts[6])));
+            }
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu pliku referencyjnego: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new DataIntegrityException("Błąd danych referencyjnych: " + e.getMessage());
+        }
+
+        // Najpierw walidacja całego pliku, potem podmiana - brak częściowego przeładowania
+        for (Instrument fresh : parsed) {
+            Instrument existing = instruments.get(fresh.getTicker());
+            if (existing != null && existing.getType() != fresh.getType()) {
+                throw new DataIntegrityException("Zmiana typu instrumentu niedozwolona: " + fresh.getTicker());
+            }
+        }
+        for (Instrument fresh : parsed) {
+            Instrument existing = instruments.putIfAbsent(fresh.getTicker(), fresh);
+            if (existing != null) {
+                existing.updateReference(fresh.getHandlingFee(), fresh.getStorageCostPerUnit(), fresh.getSpread());
+                existing.setPrice(fresh.getPrice());
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Commodity;
+import com.stockmarket.domain.Currency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+public class MonteCarloProjection {
+    public static final int TRADING_DAYS = 252;
+
+    private static final int TYPES = AssetType.values().length;
+    private static final int PATHS_PER_CHUNK = 4096;
+    private static final int DEFAULT_BINS = 1024;
+    // Zakres histogramu: wartość portfela od e^-4 do e^4 razy wartość początkowa
+    private static final double LOG_RANGE = 4.0;
+
+    private final double[] drift = new double[TYPES];
+    private final double[] volatility = new double[TYPES];
+    private final double[][] cholesky;
+    private final double withinTypeCorrelation;
+    private final int bins;
+
+    public MonteCarloProjection(double[][] typeCorrelation, double withinTypeCorrelation) {
+        this(typeCorrelation, withinTypeCorrelation, DEFAULT_BINS);
+    }
+
+    public MonteCarloProjection(double[][] typeCorrelation, double withinTypeCorrelation, int bins) {
+        if (typeCorrelation.length != TYPES) {
+            throw new IllegalArgumentException("Macierz korelacji musi mieć wymiar " + TYPES);
+        }
+        if (withinTypeCorrelation < 0 || withinTypeCorrelation > 1) {
+            throw new IllegalArgumentException("Korelacja wewnątrz typu musi być z przedziału [0, 1]");
+        }
+        if (bins < 3) {
+            throw new IllegalArgumentException("Za mało przedziałów histogramu");
+        }
+        this.cholesky = decompose(typeCorrelation);
+        this.withinTypeCorrelation = withinTypeCorrelation;
+        this.bins = bins;
+    }
+
+    // Parametry rocznego modelu GBM dla danego typu aktywa
+    public void setTypeModel(AssetType type, double annualDrift, double annualVolatility) {
+        if (annualVolatility < 0) {
+            throw new IllegalArgumentException("Zmienność nie może być ujemna");
+        }
+        drift[type.ordinal()] = annualDrift;
+        volatility[type.ordinal()] = annualVolatility;
+    }
+
+    // --- SYMULACJA ---
+    public Projection project(Portfolio portfolio, int paths, int steps, long seed) {
+        if (paths <= 0) throw new IllegalArgumentException("Liczba ścieżek musi być dodatnia");
+        if (steps <= 0) throw new IllegalArgumentException("Liczba kroków musi być dodatnia");
+
+        Positions positions = Positions.of(portfolio);
+        double initialValue = positions.valueAt(positions.logPrices(), 0);
+        if (initialValue <= 0) {
+            throw new IllegalStateException("Portfel nie ma dodatniej wartości do projekcji");
+        }
+
+        // Generatory tworzone sekwencyjnie - wynik nie zależy od liczby wątków
+        int chunks = (paths + PATHS_PER_CHUNK - 1) / PATHS_PER_CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] generators = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            generators[c] = root.split();
+        }
+
+        long[] counts = IntStream.range(0, chunks).parallel().collect(
+                () -> new long[steps * bins],
+                (acc, chunk) -> {
+                    int from = chunk * PATHS_PER_CHUNK;
+                    int count = Math.min(PATHS_PER_CHUNK, paths - from);
+                    simulateChunk(positions, generators[chunk], count, steps, initialValue, acc);
+                },
+                (left, right) -> {
+                    for (int i = 0; i < left.length; i++) left[i] += right[i];
+                });
+
+        return new Projection(counts, paths, steps, bins, initialValue);
+    }
+
+    private void simulateChunk(Positions positions, SplittableRandom random, int count, int steps,
+                               double initialValue, long[] counts) {
+        double dt = 1.0 / TRADING_DAYS;
+        double sqrtDt = Math.sqrt(dt);
+        double common = Math.sqrt(withinTypeCorrelation);
+        double idiosyncratic = Math.sqrt(1 - withinTypeCorrelation);
+
+        double[] logPrices = new double[positions.size];
+        double[] independent = new double[TYPES];
+        double[] typeShock = new double[TYPES];
+
+        for (int p = 0; p < count; p++) {
+            System.arraycopy(positions.logPrices(), 0, logPrices, 0, positions.size);
+            for (int step = 0; step < steps; step++) {
+                for (int k = 0; k < TYPES; k++) {
+                    independent[k] = random.nextGaussian();
+                }
+                for (int k = 0; k < TYPES; k++) {
+                    double sum = 0;
+                    for (int j = 0; j <= k; j++) sum += cholesky[k][j] * independent[j];
+                    typeShock[k] = sum;
+                }
+                for (int i = 0; i < positions.size; i++) {
+                    int t = positions.types[i];
+                    double shock = common * typeShock[t];
+                    if (idiosyncratic > 0) shock += idiosyncratic * random.nextGaussian();
+                    logPrices[i] += (drift[t] - 0.5 * volatility[t] * volatility[t]) * dt
+                            + volatility[t] * sqrtDt * shock;
+                }
+                double value = positions.valueAt(logPrices, (step + 1) * dt);
+                counts[step * bins + binOf(value, initialValue)]++;
+            }
+        }
+    }
+
+    private int binOf(double value, double initialValue) {
+        if (value <= 0) return 0;
+        double x = Math.log(value / initialValue);
+        if (x < -LOG_RANGE) return 0;
+        if (x >= LOG_RANGE) return bins - 1;
+        // Przedziały 1..bins-2 pokrywają zakres, 0 i bins-1 to niedomiar/nadmiar
+        int inner = bins - 2;
+        int idx = (int) ((x + LOG_RANGE) / (2 * LOG_RANGE) * inner);
+        return 1 + Math.min(idx, inner - 1);
+    }
+
+    private static double[][] decompose(double[][] correlation) {
+        int n = correlation.length;
+        double[][] l = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = correlation[i][j];
+                for (int k = 0; k < j; k++) sum -= l[i][k] * l[j][k];
+                if (i == j) {
+                    if (sum <= 0) {
+                        throw new IllegalArgumentException("Macierz korelacji nie jest dodatnio określona");
+                    }
+                    l[i][i] = Math.sqrt(sum);
+                } else {
+                    l[i][j] = sum / l[j][j];
+                }
+            }
+        }
+        return l;
+    }
+
+    // Migawka pozycji w tablicach prymitywnych - BigDecimal tylko przy starcie
+    private static final class Positions {
+        private final int size;
+        private final int[] types;
+        private final double[] quantities;
+        private final double[] startLogPrices;
+        private final double[] storageCosts;
+        private final double[] spreads;
+        private final double cash;
+
+        private Positions(List<Asset> held, double cash) {
+            this.size = held.size();
+            this.types = new int[size];
+            this.quantities = new double[size];
+            this.startLogPrices = new double[size];
+            this.storageCosts = new double[size];
+            this.spreads = new double[size];
+            this.cash = cash;
+            for (int i = 0; i < size; i++) {
+                Asset asset = held.get(i);
+                types[i] = asset.getType().ordinal();
+                quantities[i] = asset.getTotalQuantity();
+                startLogPrices[i] = Math.log(asset.getCurrentPrice().doubleValue());
+                if (asset instanceof Commodity) {
+                    storageCosts[i] = ((Commodity) asset).getStorageCostPerUnit().doubleValue();
+                } else if (asset instanceof Currency) {
+                    spreads[i] = ((Currency) asset).getSpread().doubleValue();
+                }
+            }
+        }
+
+        static Positions of(Portfolio portfolio) {
+            List<Asset> held = new ArrayList<>();
+            for (Asset asset : portfolio.getAssets().values()) {
+                if (asset.getTotalQuantity() <= 0) continue;
+                if (asset.getCurrentPrice().signum() <= 0) {
+                    throw new IllegalStateException("Brak ceny rynkowej dla: " + asset.getTicker());
+                }
+                held.add(asset);
+            }
+            return new Positions(held, portfolio.getCash().doubleValue());
+        }
+
+        double[] logPrices() {
+            return startLogPrices;
+        }
+
+        // Koszt magazynowania narasta rocznie, spread obniża cenę do bid
+        double valueAt(double[] logPrices, double years) {
+            double total = cash;
+            for (int i = 0; i < size; i++) {
+                double price = Math.exp(logPrices[i]) - spreads[i];
+                double value = quantities[i] * (price - storageCosts[i] * years);
+                total += Math.max(value, 0);
+            }
+            return total;
+        }
+    }
+
+    // --- WYNIK: histogram wartości portfela dla każdego kroku ---
+    public static final class Projection {
+        private final long[] counts;
+        private final int paths;
+        private final int steps;
+        private final int bins;
+        private final double initialValue;
+
+        private Projection(long[] counts, int paths, int steps, int bins, double initialValue) {
+            this.counts = counts;
+            this.paths = paths;
+            this.steps = steps;
+            this.bins = bins;
+            this.initialValue = initialValue;
+        }
+
+        // step liczony od 1 (koniec pierwszego dnia) do steps
+        public double percentile(int step, double q) {
+            if (step < 1 || step > steps) throw new IllegalArgumentException("Krok poza zakresem: " + step);
+            if (q < 0 || q > 1) throw new IllegalArgumentException("Percentyl musi być z przedziału [0, 1]");
+
+            long target = (long) Math.ceil(q * paths);
+            long seen = 0;
+            int offset = (step - 1) * bins;
+            for (int b = 0; b < bins; b++) {
+                seen += counts[offset + b];
+                if (seen >= Math.max(target, 1)) {
+                    return valueOfBin(b);
+                }
+            }
+            return valueOfBin(bins - 1);
+        }
+
+        public double terminalPercentile(double q) {
+            return percentile(steps, q);
+        }
+
+        private double valueOfBin(int bin) {
+            if (bin == 0) return initialValue * Math.exp(-LOG_RANGE);
+            if (bin == bins - 1) return initialValue * Math.exp(LOG_RANGE);
+            int inner = bins - 2;
+            double mid = -LOG_RANGE + (bin - 0.5) * (2 * LOG_RANGE) / inner;
+            return initialValue * Math.exp(mid);
+        }
+
+        public double getInitialValue() { return initialValue; }
+        public int getPaths() { return paths; }
+        public int getSteps() { return steps; }
+    }
+}
@@ -5,33 +5,61 @@ import java.math.BigDecimal;
 public class Order implements Comparable<Order> {
     public enum Type { BUY, SELL }
 
-    private final String ticker;
-    private final Type type;
-    private final BigDecimal priceLimit;
-    private final int quantity;
+    private String ticker;
+    private Type type;
+    private BigDecimal priceLimit;
+    private int quantity;
+    // Nadawane przez portfel przy addOrder (0 = jeszcze nie w kolejce)
+    private long id;
+    private long sequence;
 
     public Order(String ticker, Type type, BigDecimal priceLimit, int quantity) {
+        reinit(ticker, type, priceLimit, quantity);
+    }
+
+    // Ponowne użycie obiektu z OrderPool
+    void reinit(String ticker, Type type, BigDecimal priceLimit, int quantity) {
         this.ticker = ticker;
         this.type = type;
         this.priceLimit = priceLimit;
         this.quantity = quantity;
+        this.id = 0;
+        this.sequence = 0;
+    }
+
+    // Identyfikator i numer kolejny (priorytet czasowy przy równej cenie)
+    void assign(long id, long sequence) {
+        this.id = id;
+        this.sequence = sequence;
+    }
+
+    // Częściowa realizacja - pozostała ilość zlecenia
+    void reduceQuantity(int filled) {
+        this.quantity -= filled;
     }
 
     // Logika priorytetów:
     // BUY: Im drożej chcesz kupić, tym lepiej (na górę)
     // SELL: Im taniej chcesz sprzedać, tym lepiej (na górę)
+    // Przy równej cenie wcześniejsze zlecenie (niższy numer kolejny) ma pierwszeństwo
     @Override
     public int compareTo(Order other) {
         if (this.type != other.type) {
             return 0;
         }
+        int byPrice;
         if (this.type == Type.BUY) {
-            return other.priceLimit.compareTo(this.priceLimit); // Malejąco
+            byPrice = other.priceLimit.compareTo(this.priceLimit); // Malejąco
         } else {
-            return this.priceLimit.compareTo(other.priceLimit); // Rosnąco
+            byPrice = this.priceLimit.compareTo(other.priceLimit); // Rosnąco
         }
+        return byPrice != 0 ? byPrice : Long.compare(this.sequence, other.sequence);
     }
 
     public String getTicker() { return ticker; }
     public BigDecimal getPriceLimit() { return priceLimit; }
+    public Type getType() { return type; }
+    public int getQuantity() { return quantity; }
+    public long getId() { return id; }
+    public long getSequence() { return sequence; }
 }
\ No newline at end of file
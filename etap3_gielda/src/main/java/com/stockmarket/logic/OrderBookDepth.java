@@ -0,0 +1,135 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Zagregowana głębokość rynku (poziomy cenowe) dla zleceń oczekujących, per ticker.
+// Aktualizacje przyrostowe przy dodaniu, realizacji i usunięciu zlecenia - O(log poziomów).
+// Po każdej zmianie w obrębie N najlepszych poziomów publikowana jest niezmienna migawka,
+// którą czytelnicy pobierają bez blokad i przeglądają w O(N).
+public class OrderBookDepth {
+    private static final Comparator<BigDecimal> BID_ORDER = Comparator.reverseOrder();
+    private static final Comparator<BigDecimal> ASK_ORDER = Comparator.naturalOrder();
+
+    private final int levels;
+    private final Map<String, TickerBook> books = new ConcurrentHashMap<>();
+
+    public OrderBookDepth(int levels) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("Liczba poziomów musi być dodatnia");
+        }
+        this.levels = levels;
+    }
+
+    public void orderAdded(Order order) {
+        book(order.getTicker()).apply(order.getType(), order.getPriceLimit(), order.getQuantity(), 1);
+    }
+
+    // Wywoływane przed zmniejszeniem ilości zlecenia; pełna realizacja zdejmuje zlecenie z poziomu
+    public void orderFilled(Order order, int filledQuantity) {
+        int removedOrders = filledQuantity >= order.getQuantity() ? 1 : 0;
+        book(order.getTicker()).apply(order.getType(), order.getPriceLimit(), -filledQuantity, -removedOrders);
+    }
+
+    // Anulowanie lub zdjęcie zlecenia z kolejki
+    public void orderRemoved(Order order) {
+        book(order.getTicker()).apply(order.getType(), order.getPriceLimit(), -order.getQuantity(), -1);
+    }
+
+    // Ostatnia opublikowana migawka - bez blokad
+    public DepthSnapshot snapshot(String ticker) {
+        TickerBook book = books.get(ticker);
+        return book == null ? DepthSnapshot.EMPTY : book.published;
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    private TickerBook book(String ticker) {
+        return books.computeIfAbsent(ticker, t -> new TickerBook());
+    }
+
+    // --- KSIĘGA JEDNEGO TICKERA ---
+    private final class TickerBook {
+        private final TreeMap<BigDecimal, long[]> bids = new TreeMap<>(BID_ORDER);
+        private final TreeMap<BigDecimal, long[]> asks = new TreeMap<>(ASK_ORDER);
+        private volatile DepthSnapshot published = DepthSnapshot.EMPTY;
+
+        // Zapisy serializowane per ticker (wiele portfeli może dzielić jedną księgę)
+        synchronized void apply(Order.Type type, BigDecimal price, long quantityDelta, int ordersDelta) {
+            boolean bid = type == Order.Type.BUY;
+            TreeMap<BigDecimal, long[]> side = bid ? bids : asks;
+            long[] level = side.computeIfAbsent(price, p -> new long[2]);
+            level[0] += quantityDelta;
+            level[1] += ordersDelta;
+            if (level[1] <= 0 || level[0] <= 0) side.remove(price);
+
+            // Migawka odbudowywana tylko, gdy zmiana dotyczy widocznych N poziomów
+            DepthSnapshot current = published;
+            List<Level> visible = bid ? current.bids : current.asks;
+            Comparator<BigDecimal> order = bid ? BID_ORDER : ASK_ORDER;
+            if (visible.size() == levels && order.compare(price, visible.get(levels - 1).price) > 0) {
+                return; // poziom poza widoczną głębokością
+            }
+            List<Level> rebuilt = top(side);
+            published = bid ? new DepthSnapshot(current.sequence + 1, rebuilt, current.asks)
+                    : new DepthSnapshot(current.sequence + 1, current.bids, rebuilt);
+        }
+
+        private List<Level> top(TreeMap<BigDecimal, long[]> side) {
+            List<Level> result = new ArrayList<>(Math.min(levels, side.size()));
+            for (Map.Entry<BigDecimal, long[]> e : side.entrySet()) {
+                if (result.size() == levels) break;
+                result.add(new Level(e.getKey(), e.getValue()[0], (int) e.getValue()[1]));
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    // --- MIGAWKA ---
+    public static final class DepthSnapshot {
+        static final DepthSnapshot EMPTY = new DepthSnapshot(0, List.of(), List.of());
+
+        private final long sequence;
+        private final List<Level> bids;
+        private final List<Level> asks;
+
+        private DepthSnapshot(long sequence, List<Level> bids, List<Level> asks) {
+            this.sequence = sequence;
+            this.bids = bids;
+            this.asks = asks;
+        }
+
+        // Rośnie przy każdej zmianie widocznych poziomów
+        public long getSequence() { return sequence; }
+
+        // Od najlepszej (najwyższej) ceny kupna
+        public List<Level> getBids() { return bids; }
+
+        // Od najlepszej (najniższej) ceny sprzedaży
+        public List<Level> getAsks() { return asks; }
+    }
+
+    public static final class Level {
+        private final BigDecimal price;
+        private final long quantity;
+        private final int orders;
+
+        private Level(BigDecimal price, long quantity, int orders) {
+            this.price = price;
+            this.quantity = quantity;
+            this.orders = orders;
+        }
+
+        public BigDecimal getPrice() { return price; }
+        public long getQuantity() { return quantity; }
+        public int getOrders() { return orders; }
+    }
+}
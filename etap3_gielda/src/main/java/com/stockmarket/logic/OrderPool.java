@@ -0,0 +1,36 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+
+// Pula obiektów Order do ponownego użycia. Zlecenie wolno zwrócić dopiero po zdjęciu z kolejki
+// (np. Portfolio.pollNextOrder). Jednowątkowa, nadmiar ponad pojemność trafia do GC.
+public class OrderPool {
+    private final Order[] free;
+    private int available;
+    private long created;
+
+    public OrderPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pojemność puli musi być dodatnia");
+        }
+        this.free = new Order[capacity];
+    }
+
+    public Order acquire(String ticker, Order.Type type, BigDecimal priceLimit, int quantity) {
+        if (available == 0) {
+            created++;
+            return new Order(ticker, type, priceLimit, quantity);
+        }
+        Order order = free[--available];
+        free[available] = null;
+        order.reinit(ticker, type, priceLimit, quantity);
+        return order;
+    }
+
+    public void release(Order order) {
+        if (available < free.length) free[available++] = order;
+    }
+
+    public int getAvailable() { return available; }
+    public long getCreated() { return created; }
+}
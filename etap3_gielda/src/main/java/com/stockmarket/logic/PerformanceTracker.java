@@ -0,0 +1,306 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+// Strumieniowe stopy zwrotu per konto i miesiąc kalendarzowy.
+// Mierzona jest wartość pozycji (bez gotówki): zakup to wpływ kapitału (+koszt), sprzedaż - wypływ (-przychód).
+// - TWR: łańcuch dziennych stóp V_dzień / (V_poprzednia + przepływy) - 1,
+// - MWR: Modified Dietz (liniowe przybliżenie IRR) z sum przepływów i przepływów ważonych dniem.
+// Stan na konto i okres jest stały (kilka liczb), zamknięte okresy trafiają do historii wyników.
+//
+// Opcjonalny plik historii (do audytu):
+//   FLOW|konto|data|kwota
+//   VALUE|konto|data|wartość
+// Linie historii zapisuje w tle dziennik grupowy - buy/sell nie czeka na dysk;
+// kolejność w obrębie konta zachowana (rekord wrzucany pod blokadą konta), całość trwała po close().
+public class PerformanceTracker implements AutoCloseable {
+    private static final int HISTORY_CAPACITY = 8192;
+    private static final int HISTORY_BATCH = 512;
+
+    private final Map<String, AccountState> accounts = new ConcurrentHashMap<>();
+    private final GroupCommitJournal history;
+
+    public PerformanceTracker() {
+        this.history = null;
+    }
+
+    public PerformanceTracker(Path historyFile) {
+        this.history = new GroupCommitJournal(historyFile, HISTORY_CAPACITY, HISTORY_BATCH);
+    }
+
+    // --- ZDARZENIA ---
+    public void onCashFlow(String account, LocalDate date, BigDecimal amount) {
+        AccountState state = state(account);
+        synchronized (state) {
+            state.flow(date, amount.doubleValue());
+            record("FLOW|" + account + "|" + date + "|" + amount);
+        }
+    }
+
+    public void onValuation(String account, LocalDate date, BigDecimal value) {
+        AccountState state = state(account);
+        synchronized (state) {
+            state.valuation(date, value.doubleValue());
+            record("VALUE|" + account + "|" + date + "|" + value);
+        }
+    }
+
+    // Odrzuca przepływ z zamkniętego okresu - wywoływane przez buy/sell przed zmianą stanu portfela
+    public void checkFlowDate(String account, LocalDate date) {
+        AccountState state = accounts.get(account);
+        if (state == null) return;
+        synchronized (state) {
+            state.checkOpen(date);
+        }
+    }
+
+    // Dzienna wycena pozycji portfela po bieżących cenach; pozycja bez ceny wyceniana na 0
+    public void valueHoldings(String account, Portfolio portfolio, LocalDate date) {
+        BigDecimal value = BigDecimal.ZERO;
+        for (Asset asset : portfolio.getAssets().values()) {
+            if (asset.getCurrentPrice() == null) continue;
+            int quantity = asset.getTotalQuantity();
+            if (quantity > 0) value = value.add(asset.getCurrentPrice().multiply(BigDecimal.valueOf(quantity)));
+        }
+        onValuation(account, date, value);
+    }
+
+    // --- WYNIKI ---
+    public Figures getPeriodToDate(String account) {
+        AccountState state = requireState(account);
+        synchronized (state) {
+            return state.current();
+        }
+    }
+
+    // Zamknięte okresy i bieżący okres od początku miesiąca
+    public List<Figures> getHistory(String account) {
+        AccountState state = requireState(account);
+        synchronized (state) {
+            List<Figures> all = new ArrayList<>(state.closed);
+            all.add(state.current());
+            return all;
+        }
+    }
+
+    public double getSinceInceptionTwr(String account) {
+        AccountState state = requireState(account);
+        synchronized (state) {
+            return state.inceptionFactor - 1;
+        }
+    }
+
+    public double getLastDailyReturn(String account) {
+        AccountState state = requireState(account);
+        synchronized (state) {
+            return state.lastDailyReturn;
+        }
+    }
+
+    // Czeka na zapis zaległych linii historii
+    @Override
+    public void close() {
+        if (history != null) history.close();
+    }
+
+    private AccountState state(String account) {
+        return accounts.computeIfAbsent(account, a -> new AccountState());
+    }
+
+    private AccountState requireState(String account) {
+        AccountState state = accounts.get(account);
+        if (state == null) throw new IllegalArgumentException("Brak danych dla konta: " + account);
+        return state;
+    }
+
+    private void record(String line) {
+        if (history != null) history.append(line);
+    }
+
+    // --- AUDYT (pełne przeliczenie z historii, równolegle po kontach) ---
+    // TWR liczony łańcuchem dziennych stóp, MWR jako dokładne IRR okresu (bisekcja)
+    public static Map<String, List<Figures>> audit(Path historyFile, int parallelism) {
+        Map<String, List<String[]>> byAccount = new LinkedHashMap<>();
+        try {
+            for (String line : Files.readAllLines(historyFile, StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) continue;
+                String[] parts = line.split("\\|");
+                byAccount.computeIfAbsent(parts[1], a -> new ArrayList<>()).add(parts);
+            }
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu historii wyników: " + e.getMessage());
+        }
+
+        Map<String, List<Figures>> result = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> byAccount.entrySet().parallelStream()
+                    .forEach(e -> result.put(e.getKey(), recompute(e.getValue())))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Audyt przerwany", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Błąd audytu: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    private static List<Figures> recompute(List<String[]> events) {
+        List<Figures> figures = new ArrayList<>();
+        YearMonth period = null;
+        double startValue = 0;
+        double lastValue = 0;
+        LocalDate lastValuation = null;
+        double factor = 1;
+        double pending = 0;
+        List<double[]> flows = new ArrayList<>(); // [dzień okresu, kwota]
+
+        for (String[] e : events) {
+            LocalDate date = LocalDate.parse(e[2]);
+            double amount = Double.parseDouble(e[3]);
+            YearMonth month = YearMonth.from(date);
+            if (period == null) {
+                period = month;
+            } else if (month.isAfter(period)) {
+                figures.add(new Figures(period, factor - 1, irr(startValue, lastValue, flows, period.lengthOfMonth())));
+                period = month;
+                startValue = lastValue;
+                factor = 1;
+                flows.clear();
+            }
+            if (e[0].equals("FLOW")) {
+                pending += amount;
+                flows.add(new double[]{ChronoUnit.DAYS.between(period.atDay(1), date), amount});
+            } else {
+                double base = lastValue + pending;
+                if (base > 0) factor *= amount / base;
+                lastValue = amount;
+                lastValuation = date;
+                pending = 0;
+            }
+        }
+        if (period != null) {
+            int days = lastValuation == null ? 1 : Math.max(1, (int) ChronoUnit.DAYS.between(period.atDay(1), lastValuation) + 1);
+            figures.add(new Figures(period, factor - 1, irr(startValue, lastValue, flows, days)));
+        }
+        return figures;
+    }
+
+    // Stopa R za okres: V0*(1+R) + suma F*(1+R)^((T-t)/T) = V_koniec
+    private static double irr(double startValue, double endValue, List<double[]> flows, int days) {
+        double low = -0.9999;
+        double high = 10;
+        if (startValue == 0 && flows.isEmpty()) return 0;
+        for (int i = 0; i < 200; i++) {
+            double mid = (low + high) / 2;
+            double fv = startValue * (1 + mid);
+            for (double[] f : flows) fv += f[1] * Math.pow(1 + mid, (days - f[0]) / days);
+            if (fv > endValue) high = mid; else low = mid;
+        }
+        return (low + high) / 2;
+    }
+
+    // --- STAN KONTA (stały rozmiar) ---
+    private static final class AccountState {
+        private final List<Figures> closed = new ArrayList<>();
+        private double inceptionFactor = 1;
+        private double lastDailyReturn;
+
+        private YearMonth period;
+        private double startValue;
+        private double lastValue;
+        private LocalDate lastValuation;
+        private double periodFactor = 1;
+        private double pendingFlow;    // przepływy od ostatniej wyceny
+        private double flowSum;        // suma przepływów w okresie
+        private double flowDaySum;     // suma przepływów * dzień okresu
+
+        void flow(LocalDate date, double amount) {
+            roll(date);
+            pendingFlow += amount;
+            flowSum += amount;
+            flowDaySum += amount * ChronoUnit.DAYS.between(period.atDay(1), date);
+        }
+
+        void valuation(LocalDate date, double value) {
+            roll(date);
+            double base = lastValue + pendingFlow;
+            lastDailyReturn = base > 0 ? value / base - 1 : 0;
+            periodFactor *= 1 + lastDailyReturn;
+            inceptionFactor *= 1 + lastDailyReturn;
+            lastValue = value;
+            lastValuation = date;
+            pendingFlow = 0;
+        }
+
+        // Przejście do nowego miesiąca zamyka bieżący okres
+        private void roll(LocalDate date) {
+            YearMonth month = YearMonth.from(date);
+            if (period == null) {
+                period = month;
+            } else if (month.isAfter(period)) {
+                closed.add(figures(period.lengthOfMonth()));
+                period = month;
+                startValue = lastValue;
+                periodFactor = 1;
+                flowSum = 0;
+                flowDaySum = 0;
+            } else {
+                checkOpen(date);
+            }
+        }
+
+        void checkOpen(LocalDate date) {
+            if (period != null && YearMonth.from(date).isBefore(period)) {
+                throw new IllegalArgumentException("Zdarzenie z zamkniętego okresu: " + date);
+            }
+        }
+
+        Figures current() {
+            int days = lastValuation == null ? 1 : Math.max(1, (int) ChronoUnit.DAYS.between(period.atDay(1), lastValuation) + 1);
+            return figures(days);
+        }
+
+        // Modified Dietz: (V1 - V0 - F) / (V0 + suma F*(T-t)/T)
+        private Figures figures(int days) {
+            double weighted = startValue + flowSum - flowDaySum / days;
+            double mwr = weighted > 0 ? (lastValue - startValue - flowSum) / weighted : 0;
+            return new Figures(period, periodFactor - 1, mwr);
+        }
+    }
+
+    public static final class Figures {
+        private final YearMonth period;
+        private final double twr;
+        private final double mwr;
+
+        private Figures(YearMonth period, double twr, double mwr) {
+            this.period = period;
+            this.twr = twr;
+            this.mwr = mwr;
+        }
+
+        public YearMonth getPeriod() { return period; }
+        public double getTwr() { return twr; }
+        public double getMwr() { return mwr; }
+    }
+}
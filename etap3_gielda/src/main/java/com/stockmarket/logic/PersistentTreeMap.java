@@ -0,0 +1,105 @@
+package com.stockmarket.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Trwała (niemutowalna) mapa uporządkowana - drzewo typu treap z kopiowaniem ścieżki.
+// put zwraca nową mapę w O(log n), współdzieląc niezmienione poddrzewa ze starą.
+final class PersistentTreeMap<K extends Comparable<? super K>, V> {
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null);
+
+    private final Node<K, V> root;
+
+    private PersistentTreeMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp == 0) return node.value;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    PersistentTreeMap<K, V> put(K key, V value) {
+        return new PersistentTreeMap<>(insert(root, key, value, priorityOf(key)));
+    }
+
+    // Przejście w kolejności kluczy
+    void forEach(BiConsumer<K, V> action) {
+        walk(root, action);
+    }
+
+    List<V> values() {
+        List<V> result = new ArrayList<>(size());
+        forEach((k, v) -> result.add(v));
+        return result;
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+        if (node == null) return new Node<>(key, value, priority, null, null);
+        int cmp = key.compareTo(node.key);
+        if (cmp == 0) return new Node<>(key, value, node.priority, node.left, node.right);
+        if (cmp < 0) {
+            Node<K, V> left = insert(node.left, key, value, priority);
+            if (left.priority > node.priority) {
+                // rotacja w prawo
+                return new Node<>(left.key, left.value, left.priority, left.left,
+                        new Node<>(node.key, node.value, node.priority, left.right, node.right));
+            }
+            return new Node<>(node.key, node.value, node.priority, left, node.right);
+        }
+        Node<K, V> right = insert(node.right, key, value, priority);
+        if (right.priority > node.priority) {
+            // rotacja w lewo
+            return new Node<>(right.key, right.value, right.priority,
+                    new Node<>(node.key, node.value, node.priority, node.left, right.left), right.right);
+        }
+        return new Node<>(node.key, node.value, node.priority, node.left, right);
+    }
+
+    private static <K, V> void walk(Node<K, V> node, BiConsumer<K, V> action) {
+        while (node != null) {
+            walk(node.left, action);
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    // Priorytet wyznaczany z hasha klucza - deterministyczny kształt drzewa
+    private static int priorityOf(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int priority;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int size;
+
+        private Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+        }
+    }
+}
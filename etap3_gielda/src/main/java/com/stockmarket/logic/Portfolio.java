@@ -4,31 +4,113 @@ import com.stockmarket.domain.*;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class Portfolio {
+    public static final String DEFAULT_BASE_CURRENCY = "PLN";
+
+    // Gotówka w walucie bazowej
     private BigDecimal cash;
 
+    // Gotówka w pozostałych walutach (kod -> saldo)
+    private final Map<String, BigDecimal> foreignCash = new HashMap<>();
+    private String baseCurrency = DEFAULT_BASE_CURRENCY;
+
     // O(1) Access - mapa aktywów
     private final Map<String, Asset> assets = new HashMap<>();
 
-    // Priority Queue - kolejka zleceń
-    private final PriorityQueue<Order> orderQueue = new PriorityQueue<>();
+    // Priority Queue - kolejka zleceń (podmieniana przy odtwarzaniu z pliku)
+    private PriorityQueue<Order> orderQueue = new PriorityQueue<>();
+    // Liczniki identyfikatorów i numerów kolejnych zleceń (zapisywane razem z kolejką)
+    private long lastOrderId;
+    private long lastOrderSequence;
+
+    // Dane referencyjne instrumentów (współdzielone między portfelami)
+    private final InstrumentMaster instrumentMaster;
+
+    // Magazyn partii śledzonych aktywów (sterta lub off-heap)
+    private final LotStorage lotStorage;
+
+    // Tickery zmienione od ostatniego zapisu przyrostowego
+    private final Set<String> dirtyTickers = new HashSet<>();
+
+    // Indeksy pomocnicze: typ -> pozycje wg wartości, pozycje wg zysku/straty
+    private final HoldingsIndex holdingsIndex = new HoldingsIndex();
+
+    // Przyrostowy skrót stanu (porównywanie replik)
+    private final StateHash stateHash = new StateHash();
+
+    // Opcjonalny dziennik zmian zapisywany w tle
+    private GroupCommitJournal journal;
+
+    // Opcjonalny strumień zdarzeń dla subskrybentów
+    private EventRing events;
+
+    // Opcjonalna zagregowana głębokość rynku (może być wspólna dla wielu portfeli)
+    private OrderBookDepth depth;
+
+    // Opcjonalne śledzenie stóp zwrotu (przepływy z buy/sell)
+    private PerformanceTracker performance;
+    private String performanceAccount;
+
+    // Opcjonalny cache cen - wycena pozycji po odczycie z pliku
+    private PriceCache priceCache;
+
+    // Opcjonalny dziennik replikacji (rekordy zmian dla replik tylko do odczytu)
+    private ReplicationLog replication;
+
+    // Ostatnia opublikowana migawka dla czytelników z innych wątków
+    private volatile PortfolioSnapshot snapshot;
+
+    // Źródło daty sesji dla nowych partii
+    private TradingClock clock = TradingClock.SYSTEM;
+
+    // Tryb niskiej alokacji: partie z puli (null = tryb zwykły)
+    private LotPool lotPool;
 
     public Portfolio(BigDecimal initialCash) {
+        this(initialCash, new InstrumentMaster());
+    }
+
+    public Portfolio(BigDecimal initialCash, InstrumentMaster instrumentMaster) {
+        this(initialCash, instrumentMaster, LotStorage.ON_HEAP);
+    }
+
+    public Portfolio(BigDecimal initialCash, InstrumentMaster instrumentMaster, LotStorage lotStorage) {
         this.cash = initialCash;
+        this.instrumentMaster = instrumentMaster;
+        this.lotStorage = lotStorage;
+        this.snapshot = PortfolioSnapshot.initial(initialCash);
+        stateHash.cashChanged(initialCash);
     }
 
     public void trackAsset(Asset asset) {
+        asset.useLotStorage(lotStorage);
         assets.put(asset.getTicker(), asset);
+        dirtyTickers.add(asset.getTicker());
+        holdingsIndex.invalidate(asset.getTicker());
+        stateHash.invalidate(asset.getTicker());
+        publishAsset(asset);
+        if (replication != null) {
+            BigDecimal price = asset.getCurrentPrice();
+            replication.append("TRACK|" + asset.getType() + "|" + asset.getTicker() + "|" + (price == null ? "-" : price));
+            if (asset.isLoaded() && !asset.getLots().isEmpty()) replication.append(lotsRecord(asset));
+        }
     }
 
     public Asset getAsset(String ticker) {
@@ -37,10 +119,17 @@ public class Portfolio {
 
     // --- KUPNO (Dodawanie nowej partii) ---
     public void buy(String ticker, int quantity, BigDecimal price) {
+        buy(ticker, quantity, price, clock.today());
+    }
+
+    // Zakup z jawną datą partii (odtwarzanie rekordów replikacji)
+    void buy(String ticker, int quantity, BigDecimal price, LocalDate today) {
         if (!assets.containsKey(ticker)) {
             throw new IllegalArgumentException("Nieznane aktywo: " + ticker);
         }
         Asset asset = assets.get(ticker);
+        if (journal != null) journal.checkWritable(); // transakcja bez zapisu w dzienniku jest odrzucana
+        if (performance != null) performance.checkFlowDate(performanceAccount, today);
 
         BigDecimal cost = price.multiply(BigDecimal.valueOf(quantity));
         if (cash.compareTo(cost) < 0) {
@@ -48,14 +137,34 @@ public class Portfolio {
         }
 
         cash = cash.subtract(cost);
+        stateHash.cashChanged(cash);
 
         // Dodanie nowej partii (LOT)
-        Lot newLot = new Lot(LocalDate.now(), quantity, price);
+        Lot newLot = lotPool != null ? lotPool.acquire(today, quantity, price) : new Lot(today, quantity, price);
         asset.addLot(newLot);
+        stateHash.lotAdded(ticker, newLot);
+        dirtyTickers.add(ticker);
+        if (journal != null) journal.append("BUY|" + ticker + "|" + newLot);
+        if (replication != null) replication.append("BUY|" + ticker + "|" + today + "|" + quantity + "|" + price);
+        // Magazyn off-heap skopiował wartości - obiekt wraca od razu do puli
+        if (lotPool != null && asset.getLotStorage() != LotStorage.ON_HEAP) lotPool.release(newLot);
+        if (afterTrade(asset, quantity, cost)) publishLotAdded(asset, newLot);
+        if (performance != null) performance.onCashFlow(performanceAccount, today, cost);
+        if (events != null) {
+            events.publish(PortfolioEvent.Type.LOT_ADDED, ticker, quantity, price);
+            events.publish(PortfolioEvent.Type.CASH_CHANGED, ticker, 0, cash);
+        }
     }
 
     // --- SPRZEDAŻ (Algorytm FIFO) ---
     public BigDecimal sell(String ticker, int quantityToSell, BigDecimal currentMarketPrice) {
+        SellResult result = new SellResult();
+        sell(ticker, quantityToSell, currentMarketPrice, result);
+        return result.getProfit();
+    }
+
+    // Wariant zapisujący wynik do obiektu wywołującego (bez alokacji wyniku)
+    public void sell(String ticker, int quantityToSell, BigDecimal currentMarketPrice, SellResult result) {
         if (!assets.containsKey(ticker)) {
             throw new IllegalArgumentException("Nieznane aktywo");
         }
@@ -63,67 +172,462 @@ public class Portfolio {
         if (asset.getTotalQuantity() < quantityToSell) {
             throw new IllegalStateException("Nie masz wystarczającej liczby akcji");
         }
+        if (journal != null) journal.checkWritable();
+        LocalDate today = clock.today();
+        if (performance != null) performance.checkFlowDate(performanceAccount, today);
 
-        BigDecimal totalProfit = BigDecimal.ZERO;
+        result.reset(ticker);
+        // Zysk = przychód - koszt nabycia zużytych partii
+        BigDecimal totalCost = BigDecimal.ZERO;
         int remaining = quantityToSell;
+        int removedLots = 0;
+        boolean resized = false;
+        boolean recycle = lotPool != null && asset.getLotStorage() == LotStorage.ON_HEAP;
 
         Iterator<Lot> iterator = asset.getLots().iterator();
 
         while (iterator.hasNext() && remaining > 0) {
             Lot lot = iterator.next();
+            BigDecimal buyPrice = lot.getPurchasePrice(); // przed usunięciem - widok off-heap czyta slot
             int soldFromThisLot;
+            boolean consumed = lot.getQuantity() <= remaining;
 
-            if (lot.getQuantity() <= remaining) {
+            if (consumed) {
                 // Cała partia zużyta
                 soldFromThisLot = lot.getQuantity();
+                stateHash.lotRemoved(ticker, lot);
                 iterator.remove();
+                removedLots++;
             } else {
                 // Część partii zużyta
                 soldFromThisLot = remaining;
+                stateHash.lotResized(ticker, lot, lot.getQuantity() - remaining);
                 lot.setQuantity(lot.getQuantity() - remaining);
+                resized = true;
             }
 
-            BigDecimal buyPrice = lot.getPurchasePrice();
-            BigDecimal profitPerUnit = currentMarketPrice.subtract(buyPrice);
-            BigDecimal lotProfit = profitPerUnit.multiply(BigDecimal.valueOf(soldFromThisLot));
+            totalCost = totalCost.add(buyPrice.multiply(BigDecimal.valueOf(soldFromThisLot)));
 
-            totalProfit = totalProfit.add(lotProfit);
+            remaining -= soldFromThisLot;
+            result.lotConsumed();
+            if (events != null) events.publish(PortfolioEvent.Type.LOT_CONSUMED, ticker, soldFromThisLot, buyPrice);
+            if (consumed && recycle) lotPool.release(lot);
+        }
 
-            // Przychód ze sprzedaży trafia do gotówki
-            BigDecimal revenue = currentMarketPrice.multiply(BigDecimal.valueOf(soldFromThisLot));
-            cash = cash.add(revenue);
+        // Przychód ze sprzedaży trafia do gotówki
+        BigDecimal revenue = currentMarketPrice.multiply(BigDecimal.valueOf(quantityToSell));
+        cash = cash.add(revenue);
+        stateHash.cashChanged(cash);
+        result.complete(quantityToSell, revenue, revenue.subtract(totalCost));
+
+        if (events != null) events.publish(PortfolioEvent.Type.CASH_CHANGED, ticker, 0, cash);
+        dirtyTickers.add(ticker);
+        // Migawka dopiero po zużyciu wszystkich partii
+        if (afterTrade(asset, -quantityToSell, totalCost.negate())) {
+            publishLotsConsumed(asset, removedLots, resized ? asset.getLots().get(0) : null, quantityToSell);
+        }
+        if (journal != null) journal.append("SELL|" + ticker + "|" + quantityToSell + "|" + currentMarketPrice);
+        if (replication != null) replication.append("SELL|" + ticker + "|" + quantityToSell + "|" + currentMarketPrice);
+        if (performance != null) performance.onCashFlow(performanceAccount, today, revenue.negate());
+    }
 
-            remaining -= soldFromThisLot;
+    // W trybie niskiej alokacji indeks liczony leniwie przy zapytaniu, migawki tylko na żądanie.
+    // Zwraca true, gdy wywołujący ma opublikować migawkę pozycji
+    private boolean afterTrade(Asset asset, int quantityDelta, BigDecimal costDelta) {
+        if (lotPool != null) {
+            holdingsIndex.invalidate(asset.getTicker());
+            return false;
+        }
+        holdingsIndex.traded(asset, quantityDelta, costDelta);
+        return true;
+    }
+
+    // --- TRYB NISKIEJ ALOKACJI ---
+    // Partie z puli i zwracane do niej przy sprzedaży; null przywraca tryb zwykły
+    public void setLowGarbageMode(LotPool lotPool) {
+        this.lotPool = lotPool;
+        if (lotPool == null) publishSnapshot();
+    }
+
+    public boolean isLowGarbageMode() {
+        return lotPool != null;
+    }
+
+    public void setTradingClock(TradingClock clock) {
+        this.clock = clock;
+    }
+
+    public void attachJournal(GroupCommitJournal journal) {
+        this.journal = journal;
+    }
+
+    // Zdarzenia publikuje wątek wywołujący buy/sell/addOrder (jeden producent na bufor)
+    public void attachEventRing(EventRing events) {
+        this.events = events;
+    }
+
+    public void attachPerformanceTracker(PerformanceTracker performance, String accountId) {
+        this.performance = performance;
+        this.performanceAccount = accountId;
+    }
+
+    // Kolejne mutacje trafiają do dziennika jako uporządkowane rekordy zmian.
+    // Zmiany cen wykonane poza portfelem (wspólny Instrument) nie tworzą rekordów - zob. ReplicationPrimary
+    public void attachReplicationLog(ReplicationLog replication) {
+        this.replication = replication;
+    }
+
+    // Zlecenia już oczekujące w kolejce są dopisywane do księgi
+    public void attachDepthBook(OrderBookDepth depth) {
+        this.depth = depth;
+        for (Order order : orderQueue) depth.orderAdded(order);
+    }
+
+    // Portfel porzucany: sloty partii wracają do (wspólnego) magazynu, pozycje zostają puste.
+    // Bez tego partie off-heap porzuconego portfela zajmują magazyn do jego zamknięcia
+    public void releaseLots() {
+        for (Asset asset : assets.values()) {
+            asset.releaseLots();
+            holdingsIndex.invalidate(asset.getTicker());
+            stateHash.invalidate(asset.getTicker());
+            publishAsset(asset);
         }
+    }
 
-        return totalProfit;
+    // Dla zmian partii wykonanych poza buy/sell (np. Asset.addLot)
+    public void markDirty(String ticker) {
+        dirtyTickers.add(ticker);
+        holdingsIndex.invalidate(ticker);
+        stateHash.invalidate(ticker);
+        Asset asset = assets.get(ticker);
+        if (asset != null) publishAsset(asset);
+        if (replication != null && asset != null) replication.append(lotsRecord(asset));
+    }
+
+    // Pełny stan partii aktywa: LOTS|ticker|data,ilość,cena;...
+    private static String lotsRecord(Asset asset) {
+        StringBuilder sb = new StringBuilder("LOTS|").append(asset.getTicker()).append('|');
+        for (Lot lot : asset.getLots()) {
+            sb.append(lot.getPurchaseDate()).append(',').append(lot.getQuantity()).append(',').append(lot.getPurchasePrice()).append(';');
+        }
+        return sb.toString();
+    }
+
+    // Skrót stanu (gotówka, salda walutowe, partie) - O(1) gdy od ostatniego odczytu były tylko buy/sell
+    public StateHash stateHash() {
+        stateHash.flush(assets);
+        return stateHash;
+    }
+
+    // --- MIGAWKI (odczyt bez blokad) ---
+    // Zwraca ostatnią opublikowaną migawkę - O(1), bezpieczne z dowolnego wątku
+    public PortfolioSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Pełna publikacja - w trybie niskiej alokacji wywoływana przez wątek modyfikujący, gdy potrzebna
+    public void publishSnapshot() {
+        for (Asset asset : assets.values()) publishAsset(asset);
+        publishCash();
+    }
+
+    // Publikację wykonuje wyłącznie wątek modyfikujący portfel
+    private void publishAsset(Asset asset) {
+        if (!asset.isLoaded()) return; // pozycja leniwa - publikowana w loadFromFileLazy
+        snapshot = snapshot.withAsset(PortfolioSnapshot.AssetSnapshot.of(asset), cash);
+    }
+
+    // Publikacje przyrostowe: poprzednia migawka pozycji odpowiada partiom sprzed operacji
+    // (każda zmiana partii jest publikowana, poza buy/sell - przez markDirty), więc
+    // wystarczy dopisać/zdjąć zmienione partie; niezmienione są współdzielone
+    private void publishLotAdded(Asset asset, Lot lot) {
+        PortfolioSnapshot.AssetSnapshot previous = snapshot.getAsset(asset.getTicker());
+        publishIncremental(asset, previous == null ? null : previous.withLotAppended(lot, asset.getCurrentPrice()));
+    }
+
+    private void publishLotsConsumed(Asset asset, int removedLots, Lot resizedHead, int soldQuantity) {
+        PortfolioSnapshot.AssetSnapshot previous = snapshot.getAsset(asset.getTicker());
+        publishIncremental(asset, previous == null ? null
+                : previous.withHeadConsumed(removedLots, resizedHead, soldQuantity, asset.getCurrentPrice()));
+    }
+
+    private void publishPrice(Asset asset) {
+        if (!asset.isLoaded()) return;
+        PortfolioSnapshot.AssetSnapshot previous = snapshot.getAsset(asset.getTicker());
+        publishIncremental(asset, previous == null ? null : previous.withPrice(asset.getCurrentPrice()));
+    }
+
+    // Brak poprzedniej migawki (albo jej partie niewczytane) - pełna kopia
+    private void publishIncremental(Asset asset, PortfolioSnapshot.AssetSnapshot next) {
+        if (next == null) {
+            publishAsset(asset);
+        } else {
+            snapshot = snapshot.withAsset(next, cash);
+        }
+    }
+
+    private void publishCash() {
+        snapshot = snapshot.withCash(cash, foreignCash);
+        stateHash.cashChanged(cash);
+        stateHash.foreignCashChanged(foreignCash);
+        if (replication != null) {
+            // CASH|saldo bazowe|WALUTA=saldo;...
+            StringBuilder sb = new StringBuilder("CASH|").append(cash).append('|');
+            for (Map.Entry<String, BigDecimal> ledger : foreignCash.entrySet()) {
+                sb.append(ledger.getKey()).append('=').append(ledger.getValue()).append(';');
+            }
+            replication.append(sb.toString());
+        }
+    }
+
+    // Zwraca i czyści zbiór zmienionych tickerów
+    Set<String> drainDirtyTickers() {
+        Set<String> drained = new HashSet<>(dirtyTickers);
+        dirtyTickers.clear();
+        return drained;
+    }
+
+    void restoreCash(BigDecimal cash) {
+        this.cash = cash;
+        publishCash();
+    }
+
+    // Zastąpienie wszystkich sald (odtwarzanie rekordu CASH)
+    void restoreCashState(BigDecimal cash, Map<String, BigDecimal> balances) {
+        this.cash = cash;
+        foreignCash.clear();
+        foreignCash.putAll(balances);
+        publishCash();
+    }
+
+    // Księgowanie opłat/uznań poza buy/sell (saldo może spaść poniżej zera)
+    void adjustCash(BigDecimal delta) {
+        this.cash = cash.add(delta);
+        publishCash();
+    }
+
+    // --- GOTÓWKA WIELOWALUTOWA ---
+    public void depositCash(String currency, BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Kwota musi być dodatnia");
+        }
+        if (currency.equals(baseCurrency)) {
+            cash = cash.add(amount);
+        } else {
+            foreignCash.merge(currency, amount, BigDecimal::add);
+        }
+        publishCash();
+    }
+
+    public void withdrawCash(String currency, BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Kwota musi być dodatnia");
+        }
+        BigDecimal balance = getCashBalance(currency);
+        if (balance.compareTo(amount) < 0) {
+            throw new IllegalStateException("Niewystarczające środki w " + currency);
+        }
+        restoreCashBalance(currency, balance.subtract(amount));
+    }
+
+    public BigDecimal getCashBalance(String currency) {
+        if (currency.equals(baseCurrency)) return cash;
+        return foreignCash.getOrDefault(currency, BigDecimal.ZERO);
+    }
+
+    // Wszystkie salda łącznie z walutą bazową
+    public Map<String, BigDecimal> getCashBalances() {
+        Map<String, BigDecimal> balances = new HashMap<>(foreignCash);
+        balances.put(baseCurrency, cash);
+        return Collections.unmodifiableMap(balances);
+    }
+
+    void restoreCashBalance(String currency, BigDecimal amount) {
+        if (currency.equals(baseCurrency)) {
+            cash = amount;
+        } else if (amount.signum() == 0) {
+            foreignCash.remove(currency);
+        } else {
+            foreignCash.put(currency, amount);
+        }
+        publishCash();
+    }
+
+    // Wycena całego portfela (gotówka we wszystkich walutach + aktywa) w walucie raportowej
+    public BigDecimal calculateTotalValueIn(String reportingCurrency, FxRateCache rates) {
+        BigDecimal inBase = cash;
+        for (Asset asset : assets.values()) {
+            int quantity = asset.getTotalQuantity();
+            if (quantity > 0) inBase = inBase.add(asset.calculateRealValue(quantity));
+        }
+        BigDecimal total = rates.convert(inBase, baseCurrency, reportingCurrency);
+        for (Map.Entry<String, BigDecimal> entry : foreignCash.entrySet()) {
+            total = total.add(rates.convert(entry.getValue(), entry.getKey(), reportingCurrency));
+        }
+        return total;
+    }
+
+    public String getBaseCurrency() { return baseCurrency; }
+
+    public void setBaseCurrency(String baseCurrency) {
+        if (!foreignCash.isEmpty()) {
+            throw new IllegalStateException("Nie można zmienić waluty bazowej przy saldach walutowych");
+        }
+        this.baseCurrency = baseCurrency;
+        if (replication != null) replication.append("BASE|" + baseCurrency);
     }
 
     // --- OBSŁUGA ZLECEŃ ---
     public void addOrder(Order order) {
+        long id = order.getId() != 0 ? order.getId() : ++lastOrderId;
+        order.assign(id, ++lastOrderSequence);
         orderQueue.add(order);
+        if (replication != null) replication.append(orderRecord(order));
+        if (depth != null) depth.orderAdded(order);
+        if (events != null) {
+            events.publish(PortfolioEvent.Type.ORDER_QUEUED, order.getTicker(), order.getQuantity(), order.getPriceLimit());
+        }
     }
 
     public Order peekNextOrder() {
         return orderQueue.peek();
     }
 
+    // Zdjęcie zlecenia z kolejki (np. przed zwrotem do OrderPool)
+    public Order pollNextOrder() {
+        Order order = orderQueue.poll();
+        if (order != null && depth != null) depth.orderRemoved(order);
+        if (order != null && replication != null) replication.append("ORDER_QTY|" + order.getId() + "|0");
+        return order;
+    }
+
+    // Zlecenie z kolejki wg identyfikatora (null gdy brak)
+    Order findOrder(long id) {
+        for (Order order : orderQueue) {
+            if (order.getId() == id) return order;
+        }
+        return null;
+    }
+
+    // Dopisanie zlecenia z nadanym już identyfikatorem i numerem kolejnym
+    void restoreOrder(Order order) {
+        lastOrderId = Math.max(lastOrderId, order.getId());
+        lastOrderSequence = Math.max(lastOrderSequence, order.getSequence());
+        orderQueue.add(order);
+        if (depth != null) depth.orderAdded(order);
+    }
+
+    private static String orderRecord(Order order) {
+        return "ORDER|" + order.getId() + "|" + order.getSequence() + "|" + order.getTicker()
+                + "|" + order.getType() + "|" + order.getPriceLimit() + "|" + order.getQuantity();
+    }
+
+    // Kopia oczekujących zleceń (kolejność kolejki nieokreślona)
+    public List<Order> getPendingOrders() {
+        return new ArrayList<>(orderQueue);
+    }
+
+    public boolean cancelOrder(Order order) {
+        boolean removed = orderQueue.remove(order);
+        if (removed && depth != null) depth.orderRemoved(order);
+        if (removed && replication != null) replication.append("ORDER_QTY|" + order.getId() + "|0");
+        return removed;
+    }
+
+    // Realizacja (także częściowa) oczekującego zlecenia: transakcja przez buy/sell po cenie fillPrice
+    public void fillOrder(Order order, int quantity, BigDecimal fillPrice) {
+        if (!orderQueue.contains(order)) {
+            throw new IllegalArgumentException("Zlecenie nie oczekuje w kolejce");
+        }
+        if (quantity <= 0 || quantity > order.getQuantity()) {
+            throw new IllegalArgumentException("Nieprawidłowa ilość realizacji: " + quantity);
+        }
+        if (order.getType() == Order.Type.BUY) {
+            buy(order.getTicker(), quantity, fillPrice);
+        } else {
+            sell(order.getTicker(), quantity, fillPrice);
+        }
+        if (depth != null) depth.orderFilled(order, quantity);
+        int remaining = order.getQuantity() - quantity;
+        if (remaining == 0) {
+            orderQueue.remove(order);
+        } else {
+            order.reduceQuantity(quantity);
+        }
+        if (replication != null) replication.append("ORDER_QTY|" + order.getId() + "|" + remaining);
+    }
+
     // --- PERSYSTENCJA (Zapis do pliku) ---
+    // Obok pliku zapisywany jest indeks przesunięć (plik.idx) dla leniwego odczytu.
+    // Zapis do pliku tymczasowego i podmiana - partie leniwe czytane są jeszcze ze starego pliku
     public void saveToFile(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            writer.println("HEADER|CASH|" + cash);
-            for (Asset asset : assets.values()) {
-                if (asset.getLots().isEmpty()) continue;
-                // Zapisujemy: Typ|Ticker
-                writer.println("ASSET|" + asset.getType() + "|" + asset.getTicker());
-                for (Lot lot : asset.getLots()) {
-                    // Zapisujemy: Data|Ilość|Cena
-                    writer.println("LOT|" + lot.getPurchaseDate() + "|" + lot.getQuantity() + "|" + lot.getPurchasePrice());
-                }
+        List<PortfolioFileIndex.Entry> entries = new ArrayList<>();
+        long position;
+        Path target = Paths.get(filename);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                position = writeState(out, entries);
             }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // plik tymczasowy zostanie nadpisany przy następnym zapisie
+            }
             throw new RuntimeException("Błąd zapisu pliku", e);
         }
+        try {
+            new PortfolioFileIndex(position, entries).write(filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Błąd zapisu indeksu", e);
+        }
+    }
+
+    // Stan w formacie pliku portfela (np. migawka dla replik)
+    byte[] stateBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeState(out, new ArrayList<>());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Zwraca długość zapisu; entries dostaje przesunięcia partii dla indeksu
+    private long writeState(OutputStream out, List<PortfolioFileIndex.Entry> entries) throws IOException {
+        long position = writeLine(out, "HEADER|CASH|" + cash);
+        for (Map.Entry<String, BigDecimal> ledger : foreignCash.entrySet()) {
+            // Zapisujemy: Waluta|Saldo
+            position += writeLine(out, "LEDGER|" + ledger.getKey() + "|" + ledger.getValue());
+        }
+        // Zlecenia przed katalogiem aktywów - odczyt leniwy też je widzi
+        position += writeLine(out, "ORDERSEQ|" + lastOrderId + "|" + lastOrderSequence);
+        for (Order order : orderQueue) {
+            // Zapisujemy: Id|NumerKolejny|Ticker|Typ|Limit|Ilość
+            position += writeLine(out, orderRecord(order));
+        }
+        for (Asset asset : assets.values()) {
+            if (asset.getLots().isEmpty()) continue;
+            // Zapisujemy: Typ|Ticker
+            position += writeLine(out, "ASSET|" + asset.getType() + "|" + asset.getTicker());
+            long lotsStart = position;
+            for (Lot lot : asset.getLots()) {
+                // Zapisujemy: Data|Ilość|Cena
+                position += writeLine(out, "LOT|" + lot.getPurchaseDate() + "|" + lot.getQuantity() + "|" + lot.getPurchasePrice());
+            }
+            entries.add(new PortfolioFileIndex.Entry(asset.getType(), asset.getTicker(), lotsStart,
+                    (int) (position - lotsStart), asset.getLots().size()));
+        }
+        return position;
+    }
+
+    private static int writeLine(OutputStream out, String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        return bytes.length;
     }
 
     // --- PERSYSTENCJA (Odczyt z pliku) ---
@@ -131,7 +635,43 @@ public class Portfolio {
         File file = new File(filename);
         if (!file.exists()) return;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        ReplicationLog log = suspendReplication();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            readState(reader);
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu pliku: " + e.getMessage());
+        } finally {
+            resumeReplication(log);
+        }
+    }
+
+    // Odczyt stanu zapisanego przez stateBytes
+    void loadState(byte[] state) {
+        ReplicationLog log = suspendReplication();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(state), StandardCharsets.UTF_8))) {
+            readState(reader);
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu stanu: " + e.getMessage());
+        } finally {
+            resumeReplication(log);
+        }
+    }
+
+    // Odczyt z pliku to zmiana hurtowa - repliki dostają nową migawkę zamiast pojedynczych rekordów
+    private ReplicationLog suspendReplication() {
+        ReplicationLog log = replication;
+        replication = null;
+        return log;
+    }
+
+    private void resumeReplication(ReplicationLog log) {
+        replication = log;
+        if (log != null) log.reset();
+    }
+
+    private void readState(BufferedReader reader) {
+        List<Order> restoredOrders = new ArrayList<>();
+        try {
             String line;
             Asset currentAsset = null;
 
@@ -143,16 +683,21 @@ public class Portfolio {
                     case "HEADER":
                         this.cash = new BigDecimal(parts[2]);
                         break;
+                    case "LEDGER":
+                        restoreCashBalance(parts[1], new BigDecimal(parts[2]));
+                        break;
+                    case "ORDERSEQ":
+                    case "ORDER":
+                        readOrderRecord(parts, restoredOrders);
+                        break;
                     case "ASSET":
                         String typeStr = parts[1];
                         String ticker = parts[2];
 
-                        // Odtwarzamy obiekt Asset (cena rynkowa resetowana do 0 przy wczytaniu, bo to stan historyczny)
-                        if (typeStr.equals("SHARE")) currentAsset = new Share(ticker, BigDecimal.ZERO);
-                        else if (typeStr.equals("COMMODITY")) currentAsset = new Commodity(ticker, BigDecimal.ZERO, BigDecimal.ZERO);
-                        else if (typeStr.equals("CURRENCY")) currentAsset = new Currency(ticker, BigDecimal.ZERO, BigDecimal.ZERO);
-
-                        if (currentAsset != null) trackAsset(currentAsset);
+                        // Pozycja wskazuje na kanoniczny instrument z cache (cena 0, jeśli instrument jest nowy)
+                        Instrument instrument = instrumentMaster.resolve(ticker, AssetType.valueOf(typeStr));
+                        currentAsset = Asset.forInstrument(instrument);
+                        trackAsset(currentAsset);
                         break;
                     case "LOT":
                         if (currentAsset == null) throw new DataIntegrityException("LOT bez ASSET");
@@ -166,37 +711,165 @@ public class Portfolio {
         } catch (Exception e) {
             throw new DataIntegrityException("Błąd odczytu pliku: " + e.getMessage());
         }
+        restoreOrders(restoredOrders);
+        if (priceCache != null) refreshPrices(priceCache);
+        // Partie dodawane po trackAsset - publikacja kompletnego stanu
+        for (Asset asset : assets.values()) publishAsset(asset);
+        publishCash();
     }
 
-    // --- RAPORTOWANIE ---
-    public String generateReport() {
-        List<Asset> assetList = new ArrayList<>(assets.values());
-
-        // Sortowanie
-        Collections.sort(assetList, new Comparator<Asset>() {
-            @Override
-            public int compare(Asset a1, Asset a2) {
-                // 1. Sortowanie po typie
-                int typeCompare = a1.getType().compareTo(a2.getType());
-                if (typeCompare != 0) return typeCompare;
-
-                // 2. Sortowanie po wartości rynkowej malejąco
-                BigDecimal val1 = a1.calculateRealValue(a1.getTotalQuantity());
-                BigDecimal val2 = a2.calculateRealValue(a2.getTotalQuantity());
-                return val2.compareTo(val1);
+    // --- PERSYSTENCJA (Odczyt leniwy) ---
+    // Wczytuje gotówkę i katalog aktywów z indeksu; partie doczytywane przy pierwszym dostępie
+    public void loadFromFileLazy(String filename) {
+        File file = new File(filename);
+        if (!file.exists()) return;
+
+        ReplicationLog log = suspendReplication();
+        try {
+            readStateLazy(filename);
+        } finally {
+            resumeReplication(log);
+        }
+    }
+
+    private void readStateLazy(String filename) {
+        PortfolioFileIndex.LotFile lotFile;
+        try {
+            lotFile = PortfolioFileIndex.LotFile.open(filename);
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu pliku: " + e.getMessage());
+        }
+        if (lotFile == null) {
+            // Brak lub nieaktualny indeks - pełny odczyt
+            loadFromFile(filename);
+            return;
+        }
+
+        List<Order> restoredOrders = new ArrayList<>();
+        try (BufferedReader reader = lotFile.headReader()) {
+            String[] header = reader.readLine().split("\\|");
+            if (!header[0].equals("HEADER")) throw new DataIntegrityException("Brak nagłówka");
+            this.cash = new BigDecimal(header[2]);
+            // Salda walutowe i zlecenia stoją przed katalogiem aktywów
+            String line;
+            while ((line = reader.readLine()) != null && !line.startsWith("ASSET|")) {
+                String[] parts = line.split("\\|");
+                if (parts[0].equals("LEDGER")) {
+                    restoreCashBalance(parts[1], new BigDecimal(parts[2]));
+                } else {
+                    readOrderRecord(parts, restoredOrders);
+                }
             }
-        });
+            lotFile.headRead();
+        } catch (IOException | RuntimeException e) {
+            throw new DataIntegrityException("Błąd odczytu pliku: " + e.getMessage());
+        }
+        restoreOrders(restoredOrders);
+
+        for (PortfolioFileIndex.Entry entry : lotFile.getEntries()) {
+            Asset asset = Asset.forInstrument(instrumentMaster.resolve(entry.ticker, entry.type));
+            Supplier<List<Lot>> lotSource = new PortfolioFileIndex.LazyLots(lotFile, entry);
+            asset.setLotSource(lotSource);
+            trackAsset(asset);
+            snapshot = snapshot.withAsset(PortfolioSnapshot.AssetSnapshot.deferred(asset, lotSource), cash);
+        }
+        if (priceCache != null) refreshPrices(priceCache);
+        publishCash();
+        dirtyTickers.clear();
+    }
+
+    private void readOrderRecord(String[] parts, List<Order> restoredOrders) {
+        if (parts[0].equals("ORDERSEQ")) {
+            lastOrderId = Math.max(lastOrderId, Long.parseLong(parts[1]));
+            lastOrderSequence = Math.max(lastOrderSequence, Long.parseLong(parts[2]));
+        } else if (parts[0].equals("ORDER")) {
+            Order order = new Order(parts[3], Order.Type.valueOf(parts[4]), new BigDecimal(parts[5]), Integer.parseInt(parts[6]));
+            order.assign(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            restoredOrders.add(order);
+        } else {
+            throw new DataIntegrityException("Nieznany typ rekordu");
+        }
+    }
 
+    // Odbudowa kolejki jednym kopcowaniem O(n) zamiast n wstawień O(log n)
+    private void restoreOrders(List<Order> restoredOrders) {
+        if (restoredOrders.isEmpty()) return;
+        for (Order order : restoredOrders) {
+            lastOrderId = Math.max(lastOrderId, order.getId());
+            lastOrderSequence = Math.max(lastOrderSequence, order.getSequence());
+            if (depth != null) depth.orderAdded(order);
+        }
+        restoredOrders.addAll(orderQueue);
+        orderQueue = new PriorityQueue<>(restoredOrders);
+    }
+
+    // --- ZAPYTANIA (indeksy pomocnicze) ---
+    public List<Asset> getAssetsByType(AssetType type) {
+        holdingsIndex.flush(assets);
+        return holdingsIndex.ofType(type);
+    }
+
+    public List<Asset> getAssetsWorthMoreThan(BigDecimal threshold) {
+        holdingsIndex.flush(assets);
+        return holdingsIndex.worthMoreThan(threshold);
+    }
+
+    public List<Asset> getAssetsWithUnrealizedLoss() {
+        holdingsIndex.flush(assets);
+        return holdingsIndex.withUnrealizedLoss();
+    }
+
+    // Aktualizacja ceny z odświeżeniem indeksu wartości
+    public void updatePrice(String ticker, BigDecimal price) {
+        Asset asset = assets.get(ticker);
+        if (asset == null) {
+            throw new IllegalArgumentException("Nieznane aktywo: " + ticker);
+        }
+        asset.setCurrentPrice(price);
+        holdingsIndex.repriced(asset);
+        publishPrice(asset);
+        if (replication != null) replication.append("PRICE|" + ticker + "|" + price);
+    }
+
+    public void attachPriceCache(PriceCache priceCache) {
+        this.priceCache = priceCache;
+    }
+
+    // Zbiorcza wycena wszystkich pozycji z cache; pozycje leniwe nie są przy tym doczytywane
+    public void refreshPrices(PriceCache cache) {
+        Map<String, BigDecimal> prices = cache.getAll(assets.keySet());
+        for (Map.Entry<String, BigDecimal> entry : prices.entrySet()) {
+            Asset asset = assets.get(entry.getKey());
+            asset.setCurrentPrice(entry.getValue());
+            holdingsIndex.repriced(asset);
+            publishPrice(asset);
+            if (replication != null) replication.append("PRICE|" + entry.getKey() + "|" + entry.getValue());
+        }
+    }
+
+    // Po zmianie ceny poza portfelem (np. przez InstrumentMaster)
+    public void refreshValuation(String ticker) {
+        holdingsIndex.invalidate(ticker);
+    }
+
+    // --- RAPORTOWANIE ---
+    public String generateReport() {
         StringBuilder report = new StringBuilder();
         report.append("CASH: ").append(cash).append("\n");
-        for (Asset a : assetList) {
-            if (a.getTotalQuantity() > 0) {
-                report.append(a.getTicker()).append(" Qty: ").append(a.getTotalQuantity()).append("\n");
-            }
+        for (Asset a : getAssetsInReportOrder()) {
+            report.append(a.getTicker()).append(" Qty: ").append(a.getTotalQuantity()).append("\n");
         }
         return report.toString();
     }
 
+    // Kolejność z indeksu: typ, potem wartość rynkowa malejąco
+    List<Asset> getAssetsInReportOrder() {
+        holdingsIndex.flush(assets);
+        return holdingsIndex.ordered();
+    }
+
     public BigDecimal getCash() { return cash; }
+    public InstrumentMaster getInstrumentMaster() { return instrumentMaster; }
+    public LotStorage getLotStorage() { return lotStorage; }
     public Map<String, Asset> getAssets() { return assets; }
 }
\ No newline at end of file
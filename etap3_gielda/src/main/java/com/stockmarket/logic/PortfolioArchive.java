@@ -0,0 +1,310 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Kompaktowy format archiwum portfeli:
+//   MAGIC
+//   ACCOUNT: id (UTF) | długość ciała (varint) | ciało
+//   ciało:   gotówka (decimal) | liczba aktywów (varint) | bloki aktywów
+//   blok:    typ (bajt) | ticker (UTF) | liczba partii | długość danych | dane | CRC32 danych
+//   partia:  delta dni względem poprzedniej partii (zigzag) | ilość (varint) | cena (decimal)
+//   decimal: skala (varint) | wartość nieskalowana (zigzag varlong)
+public final class PortfolioArchive {
+    private static final int MAGIC = 0x50464131; // "PFA1"
+
+    private PortfolioArchive() {
+    }
+
+    // --- ZAPIS ---
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+            this.out.writeInt(MAGIC);
+        }
+
+        public void writeAccount(String accountId, Portfolio portfolio) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream bodyOut = new DataOutputStream(body);
+
+            List<Asset> held = new ArrayList<>();
+            for (Asset asset : portfolio.getAssets().values()) {
+                if (!asset.getLots().isEmpty()) held.add(asset);
+            }
+            writeDecimal(bodyOut, portfolio.getCash());
+            writeVarLong(bodyOut, held.size());
+
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream payloadOut = new DataOutputStream(payload);
+            CRC32 crc = new CRC32();
+            for (Asset asset : held) {
+                payload.reset();
+                long previousDay = 0;
+                for (Lot lot : asset.getLots()) {
+                    long day = lot.getPurchaseDate().toEpochDay();
+                    writeVarLong(payloadOut, zigzag(day - previousDay));
+                    writeVarLong(payloadOut, lot.getQuantity());
+                    writeDecimal(payloadOut, lot.getPurchasePrice());
+                    previousDay = day;
+                }
+                byte[] bytes = payload.toByteArray();
+                crc.reset();
+                crc.update(bytes);
+
+                bodyOut.writeByte(asset.getType().ordinal());
+                bodyOut.writeUTF(asset.getTicker());
+                writeVarLong(bodyOut, asset.getLots().size());
+                writeVarLong(bodyOut, bytes.length);
+                bodyOut.write(bytes);
+                bodyOut.writeInt((int) crc.getValue());
+            }
+
+            out.writeUTF(accountId);
+            writeVarLong(out, body.size());
+            body.writeTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // --- ODCZYT STRUMIENIOWY (blok po bloku) ---
+    public static final class Reader implements Closeable {
+        private final CountingInputStream counter;
+        private final DataInputStream in;
+        private int assetsLeft;
+        private long bodyEnd;
+        private boolean inAccount;
+
+        public Reader(InputStream in) throws IOException {
+            this.counter = new CountingInputStream(new BufferedInputStream(in));
+            this.in = new DataInputStream(counter);
+            if (this.in.readInt() != MAGIC) {
+                throw new DataIntegrityException("Nieznany format archiwum");
+            }
+        }
+
+        // Przechodzi do następnego konta (pomijając nieprzeczytaną resztę bieżącego); null na końcu pliku
+        public AccountHeader nextAccount() throws IOException {
+            if (inAccount) skipFully(bodyEnd - counter.position);
+            String accountId;
+            try {
+                accountId = in.readUTF();
+            } catch (EOFException e) {
+                inAccount = false;
+                return null;
+            }
+            long bodyLength = readVarLong(in);
+            bodyEnd = counter.position + bodyLength;
+            BigDecimal cash = readDecimal(in);
+            assetsLeft = (int) readVarLong(in);
+            inAccount = true;
+            return new AccountHeader(accountId, cash, assetsLeft);
+        }
+
+        // Kolejny blok aktywa w bieżącym koncie; null gdy blok konta się skończył
+        public AssetBlock nextAsset() throws IOException {
+            if (!inAccount || assetsLeft == 0) return null;
+            int typeOrdinal = in.readUnsignedByte();
+            String ticker = in.readUTF();
+            int lotCount = (int) readVarLong(in);
+            int length = (int) readVarLong(in);
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            int checksum = in.readInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum || typeOrdinal >= AssetType.values().length) {
+                throw new DataIntegrityException("Błędna suma kontrolna bloku " + ticker);
+            }
+            assetsLeft--;
+            return new AssetBlock(AssetType.values()[typeOrdinal], ticker, lotCount, payload);
+        }
+
+        private void skipFully(long bytes) throws IOException {
+            while (bytes > 0) {
+                long skipped = in.skip(bytes);
+                if (skipped <= 0) {
+                    if (in.read() < 0) throw new DataIntegrityException("Archiwum ucięte");
+                    skipped = 1;
+                }
+                bytes -= skipped;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Śledzi pozycję w strumieniu, żeby umieć pominąć resztę bloku konta
+    private static final class CountingInputStream extends FilterInputStream {
+        private long position;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+
+    public static final class AccountHeader {
+        private final String accountId;
+        private final BigDecimal cash;
+        private final int assetCount;
+
+        private AccountHeader(String accountId, BigDecimal cash, int assetCount) {
+            this.accountId = accountId;
+            this.cash = cash;
+            this.assetCount = assetCount;
+        }
+
+        public String getAccountId() { return accountId; }
+        public BigDecimal getCash() { return cash; }
+        public int getAssetCount() { return assetCount; }
+    }
+
+    public static final class AssetBlock {
+        private final AssetType type;
+        private final String ticker;
+        private final int lotCount;
+        private final byte[] payload;
+
+        private AssetBlock(AssetType type, String ticker, int lotCount, byte[] payload) {
+            this.type = type;
+            this.ticker = ticker;
+            this.lotCount = lotCount;
+            this.payload = payload;
+        }
+
+        // Dekodowanie partii dopiero na żądanie
+        public List<Lot> decodeLots() {
+            List<Lot> lots = new ArrayList<>(lotCount);
+            try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload))) {
+                long day = 0;
+                for (int i = 0; i < lotCount; i++) {
+                    day += unzigzag(readVarLong(data));
+                    int quantity = (int) readVarLong(data);
+                    BigDecimal price = readDecimal(data);
+                    lots.add(new Lot(LocalDate.ofEpochDay(day), quantity, price));
+                }
+            } catch (IOException e) {
+                throw new DataIntegrityException("Błąd dekodowania bloku " + ticker + ": " + e.getMessage());
+            }
+            return lots;
+        }
+
+        public AssetType getType() { return type; }
+        public String getTicker() { return ticker; }
+        public int getLotCount() { return lotCount; }
+    }
+
+    // --- WYDOBYCIE POJEDYNCZEGO KONTA / AKTYWA ---
+    public static Portfolio readAccount(InputStream archive, String accountId, InstrumentMaster master) throws IOException {
+        try (Reader reader = new Reader(archive)) {
+            AccountHeader header;
+            while ((header = reader.nextAccount()) != null) {
+                if (!header.getAccountId().equals(accountId)) continue;
+
+                Portfolio portfolio = new Portfolio(header.getCash(), master);
+                AssetBlock block;
+                while ((block = reader.nextAsset()) != null) {
+                    Asset asset = Asset.forInstrument(master.resolve(block.getTicker(), block.getType()));
+                    for (Lot lot : block.decodeLots()) asset.addLot(lot);
+                    portfolio.trackAsset(asset);
+                }
+                return portfolio;
+            }
+        }
+        return null;
+    }
+
+    public static List<Lot> readAsset(InputStream archive, String accountId, String ticker) throws IOException {
+        try (Reader reader = new Reader(archive)) {
+            AccountHeader header;
+            while ((header = reader.nextAccount()) != null) {
+                if (!header.getAccountId().equals(accountId)) continue;
+                AssetBlock block;
+                while ((block = reader.nextAsset()) != null) {
+                    if (block.getTicker().equals(ticker)) return block.decodeLots();
+                }
+                return List.of();
+            }
+        }
+        return List.of();
+    }
+
+    // --- KODOWANIE ---
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new DataIntegrityException("Niepoprawny varint");
+    }
+
+    static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        if (value.unscaledValue().bitLength() > 63) {
+            throw new IllegalArgumentException("Wartość poza zakresem archiwum: " + value);
+        }
+        writeVarLong(out, zigzag(value.scale()));
+        writeVarLong(out, zigzag(value.unscaledValue().longValue()));
+    }
+
+    static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = (int) unzigzag(readVarLong(in));
+        long unscaled = unzigzag(readVarLong(in));
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,35 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+
+// Niezmienne zdarzenie publikowane przez Portfolio
+public final class PortfolioEvent {
+    public enum Type { LOT_ADDED, LOT_CONSUMED, CASH_CHANGED, ORDER_QUEUED }
+
+    private final long sequence;
+    private final Type type;
+    private final String ticker;
+    private final int quantity;
+    private final BigDecimal price;
+
+    PortfolioEvent(long sequence, Type type, String ticker, int quantity, BigDecimal price) {
+        this.sequence = sequence;
+        this.type = type;
+        this.ticker = ticker;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public String getTicker() { return ticker; }
+    public int getQuantity() { return quantity; }
+
+    // LOT_ADDED/LOT_CONSUMED: cena partii, CASH_CHANGED: nowe saldo, ORDER_QUEUED: limit ceny
+    public BigDecimal getPrice() { return price; }
+
+    @Override
+    public String toString() {
+        return sequence + "|" + type + "|" + ticker + "|" + quantity + "|" + price;
+    }
+}
@@ -0,0 +1,205 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Indeks przesunięć pliku portfela (plik.idx): ticker -> zakres bajtów jego partii
+//   INDEX|SIZE|rozmiar pliku danych|MTIME|czas modyfikacji pliku danych (ms)
+//   ENTRY|Typ|Ticker|offset|długość|liczba partii
+public final class PortfolioFileIndex {
+    static final String SUFFIX = ".idx";
+
+    private final long dataSize;
+    private final List<Entry> entries;
+
+    PortfolioFileIndex(long dataSize, List<Entry> entries) {
+        this.dataSize = dataSize;
+        this.entries = entries;
+    }
+
+    static Path indexPath(String filename) {
+        return Paths.get(filename + SUFFIX);
+    }
+
+    void write(String filename) throws IOException {
+        long modified = Files.getLastModifiedTime(Paths.get(filename)).toMillis();
+        StringBuilder sb = new StringBuilder();
+        sb.append("INDEX|SIZE|").append(dataSize).append("|MTIME|").append(modified).append('\n');
+        for (Entry e : entries) {
+            sb.append("ENTRY|").append(e.type).append('|').append(e.ticker).append('|')
+              .append(e.offset).append('|').append(e.length).append('|').append(e.lotCount).append('\n');
+        }
+        SegmentedStore.writeAtomically(indexPath(filename), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null, gdy indeksu brak albo nie pasuje do pliku danych (np. plik zapisany starszą wersją)
+    static PortfolioFileIndex read(String filename) {
+        Path index = indexPath(filename);
+        try {
+            if (!Files.exists(index)) return null;
+            List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) return null;
+            String[] header = lines.get(0).split("\\|");
+            if (header.length != 5 || !header[0].equals("INDEX") || !header[3].equals("MTIME")) return null;
+            long size = Long.parseLong(header[2]);
+            Path data = Paths.get(filename);
+            // Rozmiar i czas modyfikacji - edycja zachowująca rozmiar też unieważnia indeks
+            if (size != Files.size(data) || Long.parseLong(header[4]) != Files.getLastModifiedTime(data).toMillis()) return null;
+
+            List<Entry> entries = new ArrayList<>(lines.size() - 1);
+            for (int i = 1; i < lines.size(); i++) {
+                String[] parts = lines.get(i).split("\\|");
+                if (!parts[0].equals("ENTRY")) throw new DataIntegrityException("Nieznany rekord indeksu");
+                entries.add(new Entry(AssetType.valueOf(parts[1]), parts[2], Long.parseLong(parts[3]),
+                        Integer.parseInt(parts[4]), Integer.parseInt(parts[5])));
+            }
+            return new PortfolioFileIndex(size, entries);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Partie jednego aktywa z zakresu bajtów pliku danych
+    private static List<Lot> parseLots(Entry entry, byte[] bytes) {
+        List<Lot> lots = new ArrayList<>(entry.lotCount);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        for (String line : text.split("\n")) {
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("\\|");
+            if (!parts[0].equals("LOT")) throw new DataIntegrityException("Indeks wskazuje poza partie: " + entry.ticker);
+            lots.add(new Lot(LocalDate.parse(parts[1]), Integer.parseInt(parts[2]), new BigDecimal(parts[3])));
+        }
+        return lots;
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    // --- ODCZYT LENIWY ---
+    // Plik danych otwarty raz przy odczycie leniwym: nagłówek i partie czytane są z pliku
+    // sprawdzonego z indeksem, także gdy późniejszy zapis (tego lub innego portfela)
+    // podmieni plik pod tą samą ścieżką. Kanał zamykany po odczycie partii wszystkich pozycji.
+    static final class LotFile {
+        private final FileChannel channel;
+        private final PortfolioFileIndex index;
+        private int unread;
+
+        private LotFile(FileChannel channel, PortfolioFileIndex index) {
+            this.channel = channel;
+            this.index = index;
+            this.unread = index.entries.size();
+        }
+
+        // null, gdy indeksu brak, jest nieaktualny albo plik podmieniono w trakcie otwierania
+        static LotFile open(String filename) throws IOException {
+            Path data = Paths.get(filename);
+            BasicFileAttributes before = Files.readAttributes(data, BasicFileAttributes.class);
+            FileChannel channel = FileChannel.open(data, StandardOpenOption.READ);
+            try {
+                PortfolioFileIndex index = PortfolioFileIndex.read(filename);
+                BasicFileAttributes after = Files.readAttributes(data, BasicFileAttributes.class);
+                // Indeks sprawdza plik pod ścieżką - kanał musi wskazywać ten sam plik
+                boolean same = index != null && channel.size() == index.dataSize
+                        && before.lastModifiedTime().equals(after.lastModifiedTime())
+                        && (before.fileKey() == null || before.fileKey().equals(after.fileKey()));
+                if (same) return new LotFile(channel, index);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+            return null;
+        }
+
+        List<Entry> getEntries() {
+            return index.entries;
+        }
+
+        // Nagłówek (gotówka, salda, zlecenia) z otwartego kanału; zamknięcie czytnika nie zamyka kanału
+        BufferedReader headReader() throws IOException {
+            channel.position(0);
+            return new BufferedReader(new InputStreamReader(new FilterInputStream(Channels.newInputStream(channel)) {
+                @Override
+                public void close() {
+                    // kanał zostaje otwarty dla partii
+                }
+            }, StandardCharsets.UTF_8));
+        }
+
+        // Po nagłówku - bez pozycji w indeksie kanał nie jest już potrzebny
+        synchronized void headRead() throws IOException {
+            if (unread == 0) channel.close();
+        }
+
+        // Każda pozycja czytana co najwyżej raz (zob. LazyLots)
+        synchronized byte[] read(Entry entry) {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                        throw new DataIntegrityException("Plik krótszy niż wskazuje indeks: " + entry.ticker);
+                    }
+                }
+                if (--unread == 0) channel.close();
+            } catch (IOException e) {
+                throw new DataIntegrityException("Błąd odczytu partii " + entry.ticker + ": " + e.getMessage());
+            }
+            return buffer.array();
+        }
+    }
+
+    // Źródło partii jednej pozycji - wspólne dla leniwego aktywa i jego migawki.
+    // Bajty czytane raz; kto pyta później (np. starsza migawka po zapisie), dostaje tę samą treść
+    static final class LazyLots implements Supplier<List<Lot>> {
+        private final LotFile file;
+        private final Entry entry;
+        private byte[] bytes;
+
+        LazyLots(LotFile file, Entry entry) {
+            this.file = file;
+            this.entry = entry;
+        }
+
+        @Override
+        public synchronized List<Lot> get() {
+            if (bytes == null) bytes = file.read(entry);
+            return parseLots(entry, bytes);
+        }
+    }
+
+    static final class Entry {
+        final AssetType type;
+        final String ticker;
+        final long offset;
+        final int length;
+        final int lotCount;
+
+        Entry(AssetType type, String ticker, long offset, int length, int lotCount) {
+            this.type = type;
+            this.ticker = ticker;
+            this.offset = offset;
+            this.length = length;
+            this.lotCount = lotCount;
+        }
+    }
+}
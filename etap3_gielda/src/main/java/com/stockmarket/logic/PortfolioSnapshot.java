@@ -0,0 +1,257 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// Niemutowalna migawka portfela do odczytu z wielu wątków bez blokad.
+// Portfel publikuje nową migawkę po zakończeniu każdej operacji (np. całej sprzedaży FIFO),
+// więc czytelnik nigdy nie widzi stanu pośredniego. Kolejne migawki współdzielą
+// niezmienione pozycje - zmiana jednego aktywa kopiuje tylko ścieżkę O(log n) w mapie,
+// a w obrębie pozycji kupno/sprzedaż współdzielą niezmienione partie (zob. Lots).
+public final class PortfolioSnapshot {
+    private final long version;
+    private final BigDecimal cash;
+    private final Map<String, BigDecimal> foreignCash;
+    private final PersistentTreeMap<String, AssetSnapshot> assets;
+
+    private PortfolioSnapshot(long version, BigDecimal cash, Map<String, BigDecimal> foreignCash,
+                              PersistentTreeMap<String, AssetSnapshot> assets) {
+        this.version = version;
+        this.cash = cash;
+        this.foreignCash = foreignCash;
+        this.assets = assets;
+    }
+
+    static PortfolioSnapshot initial(BigDecimal cash) {
+        return new PortfolioSnapshot(0, cash, Map.of(), PersistentTreeMap.empty());
+    }
+
+    PortfolioSnapshot withAsset(AssetSnapshot asset, BigDecimal cash) {
+        return new PortfolioSnapshot(version + 1, cash, foreignCash, assets.put(asset.getTicker(), asset));
+    }
+
+    PortfolioSnapshot withCash(BigDecimal cash, Map<String, BigDecimal> foreignCash) {
+        return new PortfolioSnapshot(version + 1, cash, Map.copyOf(foreignCash), assets);
+    }
+
+    // Numer kolejny - rośnie przy każdej publikacji
+    public long getVersion() { return version; }
+
+    public BigDecimal getCash() { return cash; }
+
+    // Salda w walutach innych niż bazowa
+    public Map<String, BigDecimal> getForeignCash() { return foreignCash; }
+
+    public AssetSnapshot getAsset(String ticker) {
+        return assets.get(ticker);
+    }
+
+    // Pozycje w kolejności tickerów
+    public List<AssetSnapshot> getAssets() {
+        return Collections.unmodifiableList(assets.values());
+    }
+
+    public int getAssetCount() {
+        return assets.size();
+    }
+
+    // Wycena w walucie bazowej wg cen z chwili publikacji
+    public BigDecimal getMarketValue() {
+        BigDecimal total = cash;
+        for (AssetSnapshot asset : assets.values()) {
+            total = total.add(asset.getMarketValue());
+        }
+        return total;
+    }
+
+    // --- POZYCJA ---
+    public static final class AssetSnapshot {
+        private final String ticker;
+        private final AssetType type;
+        private final BigDecimal price;
+        private volatile Lots lots;
+        private Supplier<List<Lot>> lotSource; // partie jeszcze niewczytane z pliku
+
+        private AssetSnapshot(String ticker, AssetType type, BigDecimal price, Lots lots, Supplier<List<Lot>> lotSource) {
+            this.ticker = ticker;
+            this.type = type;
+            this.price = price;
+            this.lots = lots;
+            this.lotSource = lotSource;
+        }
+
+        // Pełna kopia partii - O(liczba partii); tylko gdy zmiana nie jest znana (trackAsset, markDirty, odczyt)
+        static AssetSnapshot of(Asset asset) {
+            return new AssetSnapshot(asset.getTicker(), asset.getType(), asset.getCurrentPrice(), Lots.copyOf(asset.getLots()), null);
+        }
+
+        // Kupno: partia dopisana na koniec, pozostałe współdzielone - zamortyzowane O(1).
+        // null, gdy partie tej migawki nie są jeszcze wczytane
+        AssetSnapshot withLotAppended(Lot lot, BigDecimal price) {
+            Lots current = lots;
+            if (current == null) return null;
+            return new AssetSnapshot(ticker, type, price, current.append(LotEntry.of(lot)), null);
+        }
+
+        // Sprzedaż FIFO: removed partii zdjętych z początku, newHead = częściowo zużyta partia (lub null)
+        AssetSnapshot withHeadConsumed(int removed, Lot newHead, int soldQuantity, BigDecimal price) {
+            Lots current = lots;
+            if (current == null) return null;
+            return new AssetSnapshot(ticker, type, price,
+                    current.dropHead(removed, newHead == null ? null : LotEntry.of(newHead), soldQuantity), null);
+        }
+
+        // Nowa cena przy tych samych partiach - O(1)
+        AssetSnapshot withPrice(BigDecimal price) {
+            Lots current = lots;
+            if (current == null) return null;
+            return new AssetSnapshot(ticker, type, price, current, null);
+        }
+
+        // Pozycja wczytana leniwie - partie czytane z pliku przy pierwszym dostępie do migawki
+        static AssetSnapshot deferred(Asset asset, Supplier<List<Lot>> lotSource) {
+            return new AssetSnapshot(asset.getTicker(), asset.getType(), asset.getCurrentPrice(), null, lotSource);
+        }
+
+        public String getTicker() { return ticker; }
+        public AssetType getType() { return type; }
+        public BigDecimal getPrice() { return price; }
+
+        public List<LotEntry> getLots() {
+            return loadedLots();
+        }
+
+        public int getTotalQuantity() {
+            return loadedLots().totalQuantity;
+        }
+
+        public BigDecimal getMarketValue() {
+            if (price == null) return BigDecimal.ZERO;
+            return price.multiply(BigDecimal.valueOf(getTotalQuantity()));
+        }
+
+        private Lots loadedLots() {
+            Lots loaded = lots;
+            if (loaded == null) {
+                synchronized (this) {
+                    if (lots == null) {
+                        lots = Lots.copyOf(lotSource.get());
+                        lotSource = null;
+                    }
+                    loaded = lots;
+                }
+            }
+            return loaded;
+        }
+    }
+
+    // --- PARTIE POZYCJI (współdzielone między migawkami) ---
+    // Widok [from, to) na tablicę współdzieloną przez kolejne migawki pozycji.
+    // Kupno dopisuje w miejscu, jeśli ta migawka jest właścicielem końca bufora (używane == to),
+    // sprzedaż FIFO przesuwa from i ewentualnie podmienia pierwszą partię (head).
+    // Starsze migawki nie czytają poza swoim to, więc dopisanie ich nie zmienia.
+    // Bufor zapisuje tylko wątek modyfikujący portfel; publikacja przez volatile migawki.
+    private static final class Lots extends AbstractList<LotEntry> {
+        private static final Lots EMPTY = new Lots(new Buffer(new LotEntry[0], 0), 0, 0, null, 0);
+
+        private final Buffer buffer;
+        private final LotEntry[] array;
+        private final int from;
+        private final int to;
+        private final LotEntry head; // zastępuje array[from] po częściowej sprzedaży
+        private final int totalQuantity;
+
+        private Lots(Buffer buffer, int from, int to, LotEntry head, int totalQuantity) {
+            this.buffer = buffer;
+            this.array = buffer.array;
+            this.from = from;
+            this.to = to;
+            this.head = head;
+            this.totalQuantity = totalQuantity;
+        }
+
+        static Lots copyOf(List<Lot> source) {
+            if (source.isEmpty()) return EMPTY;
+            LotEntry[] copy = new LotEntry[source.size()];
+            int total = 0;
+            int i = 0;
+            for (Lot lot : source) {
+                copy[i++] = LotEntry.of(lot);
+                total += lot.getQuantity();
+            }
+            return new Lots(new Buffer(copy, copy.length), 0, copy.length, null, total);
+        }
+
+        Lots append(LotEntry entry) {
+            int total = totalQuantity + entry.getQuantity();
+            if (buffer.used == to && to < array.length) {
+                array[to] = entry;
+                buffer.used++;
+                return new Lots(buffer, from, to + 1, head, total);
+            }
+            // Koniec bufora zajęty przez inną migawkę albo brak miejsca - kopia żywych partii (x2)
+            int size = size();
+            LotEntry[] grown = new LotEntry[Math.max(8, 2 * (size + 1))];
+            for (int i = 0; i < size; i++) grown[i] = get(i);
+            grown[size] = entry;
+            return new Lots(new Buffer(grown, size + 1), 0, size + 1, null, total);
+        }
+
+        Lots dropHead(int removed, LotEntry newHead, int soldQuantity) {
+            LotEntry keptHead = newHead != null ? newHead : (removed == 0 ? head : null);
+            return new Lots(buffer, from + removed, to, keptHead, totalQuantity - soldQuantity);
+        }
+
+        @Override
+        public LotEntry get(int index) {
+            Objects.checkIndex(index, size());
+            return index == 0 && head != null ? head : array[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    private static final class Buffer {
+        private final LotEntry[] array;
+        private int used;
+
+        private Buffer(LotEntry[] array, int used) {
+            this.array = array;
+            this.used = used;
+        }
+    }
+
+    // --- PARTIA (niemutowalna kopia Lot) ---
+    public static final class LotEntry {
+        private final LocalDate purchaseDate;
+        private final int quantity;
+        private final BigDecimal purchasePrice;
+
+        private LotEntry(LocalDate purchaseDate, int quantity, BigDecimal purchasePrice) {
+            this.purchaseDate = purchaseDate;
+            this.quantity = quantity;
+            this.purchasePrice = purchasePrice;
+        }
+
+        private static LotEntry of(Lot lot) {
+            return new LotEntry(lot.getPurchaseDate(), lot.getQuantity(), lot.getPurchasePrice());
+        }
+
+        public LocalDate getPurchaseDate() { return purchaseDate; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getPurchasePrice() { return purchasePrice; }
+    }
+}
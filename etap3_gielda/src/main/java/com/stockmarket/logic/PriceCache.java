@@ -0,0 +1,169 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+// Cache cen z TTL per ticker przed PriceSource.
+// - brak ceny: pobranie synchroniczne; równoczesne żądania tego samego tickera czekają na jedno pobranie,
+// - cena przeterminowana: zwracana od razu, odświeżenie w tle (też łączone),
+// - refreshStale: jedno zbiorcze pobranie wszystkich przeterminowanych tickerów.
+public class PriceCache {
+    private final PriceSource source;
+    private final Duration defaultTtl;
+    private final Clock clock;
+    private final Executor executor;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<BigDecimal>> inFlight = new ConcurrentHashMap<>();
+
+    public PriceCache(PriceSource source, Duration defaultTtl) {
+        this(source, defaultTtl, Clock.systemUTC(), ForkJoinPool.commonPool());
+    }
+
+    public PriceCache(PriceSource source, Duration defaultTtl, Clock clock, Executor executor) {
+        this.source = source;
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    public void setTtl(String ticker, Duration ttl) {
+        ttls.put(ticker, ttl);
+    }
+
+    // --- ODCZYT ---
+    public BigDecimal get(String ticker) {
+        Entry entry = entries.get(ticker);
+        if (entry != null) {
+            if (isStale(ticker, entry)) refreshAsync(List.of(ticker));
+            return entry.price;
+        }
+        BigDecimal price = await(fetchCoalesced(List.of(ticker)).get(ticker));
+        if (price == null) {
+            throw new IllegalStateException("Brak ceny dla: " + ticker);
+        }
+        return price;
+    }
+
+    // Zbiorczo: brakujące pobierane jednym zapytaniem, przeterminowane odświeżane w tle
+    public Map<String, BigDecimal> getAll(Collection<String> tickers) {
+        Map<String, BigDecimal> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        for (String ticker : tickers) {
+            Entry entry = entries.get(ticker);
+            if (entry == null) {
+                missing.add(ticker);
+            } else {
+                result.put(ticker, entry.price);
+                if (isStale(ticker, entry)) stale.add(ticker);
+            }
+        }
+        if (!stale.isEmpty()) refreshAsync(stale);
+        if (!missing.isEmpty()) {
+            for (Map.Entry<String, CompletableFuture<BigDecimal>> f : fetchCoalesced(missing).entrySet()) {
+                BigDecimal price = await(f.getValue());
+                if (price != null) result.put(f.getKey(), price);
+            }
+        }
+        return result;
+    }
+
+    // --- ODŚWIEŻANIE ---
+    // Synchroniczne zbiorcze odświeżenie przeterminowanych wpisów; zwraca liczbę odświeżonych tickerów
+    public int refreshStale() {
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (isStale(e.getKey(), e.getValue())) stale.add(e.getKey());
+        }
+        int refreshed = 0;
+        for (CompletableFuture<BigDecimal> f : fetchCoalesced(stale).values()) {
+            if (await(f) != null) refreshed++;
+        }
+        return refreshed;
+    }
+
+    public boolean isCached(String ticker) {
+        return entries.containsKey(ticker);
+    }
+
+    private void refreshAsync(List<String> tickers) {
+        executor.execute(() -> {
+            try {
+                fetchCoalesced(tickers);
+            } catch (RuntimeException e) {
+                // Błąd odświeżenia w tle - zostaje poprzednia cena
+            }
+        });
+    }
+
+    // Tickery już pobierane przez inny wątek dołączają do istniejącego pobrania,
+    // pozostałe idą jednym zapytaniem do źródła
+    private Map<String, CompletableFuture<BigDecimal>> fetchCoalesced(Collection<String> tickers) {
+        Map<String, CompletableFuture<BigDecimal>> futures = new HashMap<>();
+        Map<String, CompletableFuture<BigDecimal>> owned = new HashMap<>();
+        for (String ticker : tickers) {
+            CompletableFuture<BigDecimal> mine = new CompletableFuture<>();
+            CompletableFuture<BigDecimal> existing = inFlight.putIfAbsent(ticker, mine);
+            if (existing == null) {
+                owned.put(ticker, mine);
+                futures.put(ticker, mine);
+            } else {
+                futures.put(ticker, existing);
+            }
+        }
+        if (owned.isEmpty()) return futures;
+
+        try {
+            Map<String, BigDecimal> prices = source.fetch(owned.keySet());
+            long now = clock.millis();
+            for (Map.Entry<String, CompletableFuture<BigDecimal>> e : owned.entrySet()) {
+                BigDecimal price = prices.get(e.getKey());
+                if (price != null) entries.put(e.getKey(), new Entry(price, now));
+                inFlight.remove(e.getKey());
+                e.getValue().complete(price);
+            }
+        } catch (RuntimeException ex) {
+            for (Map.Entry<String, CompletableFuture<BigDecimal>> e : owned.entrySet()) {
+                inFlight.remove(e.getKey());
+                e.getValue().completeExceptionally(ex);
+            }
+        }
+        return futures;
+    }
+
+    private boolean isStale(String ticker, Entry entry) {
+        Duration ttl = ttls.getOrDefault(ticker, defaultTtl);
+        return clock.millis() - entry.fetchedAt >= ttl.toMillis();
+    }
+
+    private static BigDecimal await(CompletableFuture<BigDecimal> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Błąd pobrania ceny", e.getCause());
+        }
+    }
+
+    private static final class Entry {
+        private final BigDecimal price;
+        private final long fetchedAt;
+
+        private Entry(BigDecimal price, long fetchedAt) {
+            this.price = price;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
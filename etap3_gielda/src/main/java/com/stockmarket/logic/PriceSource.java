@@ -0,0 +1,10 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+// Źródło cen rynkowych dla PriceCache. Pobranie zbiorcze - brakujące tickery pomijane w wyniku.
+public interface PriceSource {
+    Map<String, BigDecimal> fetch(Collection<String> tickers);
+}
@@ -0,0 +1,221 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Wyznacza minimalną listę zleceń (w całych sztukach) doprowadzającą portfel do wag docelowych.
+// Wynikiem są Order z limitem równym bieżącej cenie; sprzedaże zawsze przed zakupami.
+// - transakcje warte nie więcej niż opłata manipulacyjna instrumentu są pomijane,
+// - zakupy są przycinane do gotówki (łącznie z przychodem ze sprzedaży i opłatami),
+// - przy wagach wg typu sprzedajemy najpierw pozycje o najmniejszym zysku FIFO (najniższy podatek).
+public class Rebalancer {
+
+    // --- WAGI WG TICKERA ---
+    public List<Order> rebalance(Portfolio portfolio, Map<String, BigDecimal> targetWeights) {
+        validateWeights(targetWeights.values());
+        BigDecimal total = totalMarketValue(portfolio);
+
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        for (Asset asset : portfolio.getAssets().values()) {
+            if (asset.getTotalQuantity() > 0 && !targetWeights.containsKey(asset.getTicker())) {
+                deltas.put(asset.getTicker(), -asset.getTotalQuantity()); // poza modelem - do sprzedaży
+            }
+        }
+        for (Map.Entry<String, BigDecimal> target : targetWeights.entrySet()) {
+            Asset asset = requirePricedAsset(portfolio, target.getKey());
+            BigDecimal targetValue = total.multiply(target.getValue());
+            int desired = targetValue.divide(asset.getCurrentPrice(), 0, RoundingMode.FLOOR).intValue();
+            deltas.put(asset.getTicker(), desired - asset.getTotalQuantity());
+        }
+        return toOrders(portfolio, deltas);
+    }
+
+    // --- WAGI WG TYPU AKTYWA ---
+    public List<Order> rebalanceByType(Portfolio portfolio, Map<AssetType, BigDecimal> targetWeights) {
+        validateWeights(targetWeights.values());
+        BigDecimal total = totalMarketValue(portfolio);
+
+        Map<AssetType, List<Asset>> byType = new EnumMap<>(AssetType.class);
+        for (Asset asset : portfolio.getAssets().values()) {
+            if (asset.getCurrentPrice() == null || asset.getCurrentPrice().signum() <= 0) continue;
+            byType.computeIfAbsent(asset.getType(), t -> new ArrayList<>()).add(asset);
+        }
+
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        for (AssetType type : AssetType.values()) {
+            List<Asset> candidates = byType.getOrDefault(type, List.of());
+            BigDecimal weight = targetWeights.getOrDefault(type, BigDecimal.ZERO);
+            BigDecimal current = BigDecimal.ZERO;
+            for (Asset a : candidates) current = current.add(marketValue(a));
+            BigDecimal diff = total.multiply(weight).subtract(current);
+
+            if (diff.signum() < 0) {
+                sellLowestTaxFirst(candidates, diff.negate(), deltas);
+            } else if (diff.signum() > 0) {
+                buyProportionally(candidates, current, diff, deltas);
+            }
+        }
+        return toOrders(portfolio, deltas);
+    }
+
+    // Równoległe wyznaczenie zleceń dla wielu kont (portfele tylko czytane)
+    public Map<String, List<Order>> rebalanceAll(Map<String, Portfolio> accounts, Map<String, BigDecimal> targetWeights) {
+        Map<String, List<Order>> result = new ConcurrentHashMap<>();
+        accounts.entrySet().parallelStream().forEach(e -> result.put(e.getKey(), rebalance(e.getValue(), targetWeights)));
+        return result;
+    }
+
+    public Map<String, List<Order>> rebalanceAllByType(Map<String, Portfolio> accounts, Map<AssetType, BigDecimal> targetWeights) {
+        Map<String, List<Order>> result = new ConcurrentHashMap<>();
+        accounts.entrySet().parallelStream().forEach(e -> result.put(e.getKey(), rebalanceByType(e.getValue(), targetWeights)));
+        return result;
+    }
+
+    // Wykonanie listy zleceń na portfelu
+    public void apply(Portfolio portfolio, List<Order> orders) {
+        for (Order order : orders) {
+            if (order.getType() == Order.Type.SELL) {
+                portfolio.sell(order.getTicker(), order.getQuantity(), order.getPriceLimit());
+            } else {
+                portfolio.buy(order.getTicker(), order.getQuantity(), order.getPriceLimit());
+            }
+        }
+    }
+
+    private void sellLowestTaxFirst(List<Asset> candidates, BigDecimal toSell, Map<String, Integer> deltas) {
+        Map<Asset, Integer> needed = new HashMap<>();
+        Map<Asset, BigDecimal> gainPerUnit = new HashMap<>();
+        for (Asset a : candidates) {
+            int held = a.getTotalQuantity();
+            if (held <= 0) continue;
+            int qty = Math.min(held, unitsFor(toSell, a.getCurrentPrice()));
+            needed.put(a, qty);
+            gainPerUnit.put(a, fifoGain(a, qty, a.getCurrentPrice()).divide(BigDecimal.valueOf(qty), 8, RoundingMode.HALF_UP));
+        }
+        List<Asset> order = new ArrayList<>(needed.keySet());
+        order.sort(Comparator.comparing((Asset a) -> gainPerUnit.get(a)).thenComparing(Asset::getTicker));
+
+        BigDecimal remaining = toSell;
+        for (Asset a : order) {
+            if (remaining.signum() <= 0) break;
+            int qty = Math.min(a.getTotalQuantity(), unitsFor(remaining, a.getCurrentPrice()));
+            deltas.put(a.getTicker(), -qty);
+            remaining = remaining.subtract(a.getCurrentPrice().multiply(BigDecimal.valueOf(qty)));
+        }
+    }
+
+    private void buyProportionally(List<Asset> candidates, BigDecimal current, BigDecimal toBuy, Map<String, Integer> deltas) {
+        if (candidates.isEmpty()) return;
+        for (Asset a : candidates) {
+            BigDecimal share = current.signum() > 0
+                    ? marketValue(a).divide(current, 8, RoundingMode.HALF_UP)
+                    : BigDecimal.ONE.divide(BigDecimal.valueOf(candidates.size()), 8, RoundingMode.HALF_UP);
+            int qty = toBuy.multiply(share).divide(a.getCurrentPrice(), 0, RoundingMode.FLOOR).intValue();
+            if (qty > 0) deltas.put(a.getTicker(), qty);
+        }
+    }
+
+    // Filtr opłat i ograniczenie gotówką; sprzedaże przed zakupami, zakupy od największego niedoboru
+    private List<Order> toOrders(Portfolio portfolio, Map<String, Integer> deltas) {
+        List<Order> sells = new ArrayList<>();
+        List<Order> buys = new ArrayList<>();
+        BigDecimal available = portfolio.getCash();
+
+        for (Map.Entry<String, Integer> e : deltas.entrySet()) {
+            int delta = e.getValue();
+            if (delta == 0) continue;
+            Asset asset = portfolio.getAsset(e.getKey());
+            BigDecimal price = asset.getCurrentPrice();
+            BigDecimal fee = asset.getInstrument().getHandlingFee();
+            BigDecimal value = price.multiply(BigDecimal.valueOf(Math.abs(delta)));
+            if (value.compareTo(fee) <= 0) continue; // nieopłacalne - opłata zjadłaby transakcję
+
+            if (delta < 0) {
+                sells.add(new Order(asset.getTicker(), Order.Type.SELL, price, -delta));
+                available = available.add(value).subtract(fee);
+            } else {
+                buys.add(new Order(asset.getTicker(), Order.Type.BUY, price, delta));
+            }
+        }
+
+        buys.sort(Comparator.comparing((Order o) -> o.getPriceLimit().multiply(BigDecimal.valueOf(o.getQuantity()))).reversed()
+                .thenComparing(Order::getTicker));
+        List<Order> result = new ArrayList<>(sells);
+        for (Order buy : buys) {
+            BigDecimal fee = portfolio.getAsset(buy.getTicker()).getInstrument().getHandlingFee();
+            BigDecimal budget = available.subtract(fee);
+            if (budget.signum() <= 0) continue;
+            int affordable = budget.divide(buy.getPriceLimit(), 0, RoundingMode.FLOOR).intValue();
+            int qty = Math.min(buy.getQuantity(), affordable);
+            if (qty <= 0) continue;
+            BigDecimal cost = buy.getPriceLimit().multiply(BigDecimal.valueOf(qty));
+            if (cost.compareTo(fee) <= 0) continue;
+            result.add(qty == buy.getQuantity() ? buy : new Order(buy.getTicker(), Order.Type.BUY, buy.getPriceLimit(), qty));
+            available = available.subtract(cost).subtract(fee);
+        }
+        return result;
+    }
+
+    // Zysk, jaki zrealizowałaby sprzedaż qty sztuk metodą FIFO
+    static BigDecimal fifoGain(Asset asset, int qty, BigDecimal price) {
+        BigDecimal gain = BigDecimal.ZERO;
+        int remaining = qty;
+        for (Lot lot : asset.getLots()) {
+            if (remaining <= 0) break;
+            int used = Math.min(remaining, lot.getQuantity());
+            gain = gain.add(price.subtract(lot.getPurchasePrice()).multiply(BigDecimal.valueOf(used)));
+            remaining -= used;
+        }
+        return gain;
+    }
+
+    private static int unitsFor(BigDecimal value, BigDecimal price) {
+        return value.divide(price, 0, RoundingMode.CEILING).intValue();
+    }
+
+    private static BigDecimal marketValue(Asset asset) {
+        return asset.getCurrentPrice().multiply(BigDecimal.valueOf(asset.getTotalQuantity()));
+    }
+
+    private static BigDecimal totalMarketValue(Portfolio portfolio) {
+        BigDecimal total = portfolio.getCash();
+        for (Asset asset : portfolio.getAssets().values()) {
+            if (asset.getTotalQuantity() > 0) total = total.add(marketValue(asset));
+        }
+        return total;
+    }
+
+    private static Asset requirePricedAsset(Portfolio portfolio, String ticker) {
+        Asset asset = portfolio.getAsset(ticker);
+        if (asset == null) {
+            throw new IllegalArgumentException("Nieznane aktywo: " + ticker);
+        }
+        if (asset.getCurrentPrice() == null || asset.getCurrentPrice().signum() <= 0) {
+            throw new IllegalStateException("Brak ceny rynkowej dla: " + ticker);
+        }
+        return asset;
+    }
+
+    private static void validateWeights(Iterable<BigDecimal> weights) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal w : weights) {
+            if (w.signum() < 0) throw new IllegalArgumentException("Waga nie może być ujemna");
+            sum = sum.add(w);
+        }
+        if (sum.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("Suma wag przekracza 1");
+        }
+    }
+}
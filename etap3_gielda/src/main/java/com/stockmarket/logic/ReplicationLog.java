@@ -0,0 +1,140 @@
+package com.stockmarket.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Uporządkowany dziennik zmian portfela dla replik (w pamięci).
+// Każdy rekord dostaje kolejny numer; obok trzymana jest ostatnia migawka stanu.
+// Replika nadąża z ogona dziennika, a gdy jej pozycja wypadła już z ogona - od migawki.
+// checkpoint() przycina dziennik do rekordów od poprzedniej migawki, więc replika
+// lekko opóźniona względem ostatniej migawki dalej czyta sam ogon.
+// append wykonuje migawkę sam co checkpointEvery rekordów - ogon ma najwyżej ~2x tyle rekordów.
+public class ReplicationLog {
+    public static final int DEFAULT_CHECKPOINT_EVERY = 10_000;
+
+    private final Supplier<byte[]> stateSupplier;
+    private final int checkpointEvery;
+    private final List<Record> records = new ArrayList<>();
+    private long firstSequence = 1; // numer records.get(0)
+    private long head;              // numer ostatniego rekordu
+    private byte[] checkpointState;
+    private long checkpointSequence;
+    private long previousCheckpoint;
+
+    // stateSupplier wywoływany w wątku modyfikującym portfel (append/checkpoint/reset)
+    public ReplicationLog(Supplier<byte[]> stateSupplier) {
+        this(stateSupplier, DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    public ReplicationLog(Supplier<byte[]> stateSupplier, int checkpointEvery) {
+        if (checkpointEvery <= 0) {
+            throw new IllegalArgumentException("Odstęp migawek musi być dodatni");
+        }
+        this.stateSupplier = stateSupplier;
+        this.checkpointEvery = checkpointEvery;
+        this.checkpointState = stateSupplier.get();
+    }
+
+    // Wywoływane przez wątek modyfikujący portfel po zastosowaniu zmiany
+    public long append(String payload) {
+        long sequence;
+        boolean due;
+        synchronized (this) {
+            records.add(new Record(++head, System.currentTimeMillis(), payload));
+            notifyAll();
+            sequence = head;
+            due = head - checkpointSequence >= checkpointEvery;
+        }
+        // Stan portfela zawiera już tę zmianę - migawka na numerze sequence jest spójna
+        if (due) checkpoint();
+        return sequence;
+    }
+
+    // Nowa migawka; rekordy sprzed poprzedniej migawki są odrzucane
+    public void checkpoint() {
+        byte[] state = stateSupplier.get();
+        synchronized (this) {
+            previousCheckpoint = checkpointSequence;
+            checkpointSequence = head;
+            checkpointState = state;
+            trimThrough(previousCheckpoint);
+        }
+    }
+
+    // Zmiana hurtowa (np. odczyt z pliku) - wszystkie repliki przechodzą na nową migawkę
+    public void reset() {
+        byte[] state = stateSupplier.get();
+        synchronized (this) {
+            head++;
+            checkpointState = state;
+            checkpointSequence = head;
+            previousCheckpoint = head;
+            trimThrough(head);
+            notifyAll();
+        }
+    }
+
+    // Następna porcja dla repliki, która zastosowała rekordy do numeru after włącznie.
+    // Czeka do timeoutMillis na nowe rekordy; pusta porcja = brak zmian.
+    public synchronized Batch next(long after, int max, long timeoutMillis) throws InterruptedException {
+        if (!canTail(after)) return new Batch(checkpointSequence, checkpointState, List.of());
+        if (after == head && timeoutMillis > 0) {
+            wait(timeoutMillis);
+            if (!canTail(after)) return new Batch(checkpointSequence, checkpointState, List.of());
+        }
+        int from = (int) (after + 1 - firstSequence);
+        int to = (int) Math.min(records.size(), (long) from + max);
+        return new Batch(after, null, new ArrayList<>(records.subList(from, to)));
+    }
+
+    public synchronized long getHeadSequence() { return head; }
+    public synchronized long getCheckpointSequence() { return checkpointSequence; }
+
+    // Liczba rekordów trzymanych w ogonie
+    public synchronized int getRetained() { return records.size(); }
+
+    private boolean canTail(long after) {
+        return after >= firstSequence - 1 && after <= head;
+    }
+
+    private void trimThrough(long sequence) {
+        int drop = (int) Math.min(records.size(), Math.max(0, sequence - firstSequence + 1));
+        records.subList(0, drop).clear();
+        firstSequence = sequence + 1 > firstSequence ? sequence + 1 : firstSequence;
+    }
+
+    // --- REKORD / PORCJA ---
+    public static final class Record {
+        private final long sequence;
+        private final long timestamp;
+        private final String payload;
+
+        Record(long sequence, long timestamp, String payload) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+
+        public long getSequence() { return sequence; }
+        public long getTimestamp() { return timestamp; }
+        public String getPayload() { return payload; }
+    }
+
+    public static final class Batch {
+        private final long snapshotSequence;
+        private final byte[] snapshot;
+        private final List<Record> records;
+
+        private Batch(long snapshotSequence, byte[] snapshot, List<Record> records) {
+            this.snapshotSequence = snapshotSequence;
+            this.snapshot = snapshot;
+            this.records = records;
+        }
+
+        // Migawka do wczytania zamiast ogona (null = sam ogon)
+        public byte[] getSnapshot() { return snapshot; }
+        public long getSnapshotSequence() { return snapshotSequence; }
+        public List<Record> getRecords() { return records; }
+    }
+}
@@ -0,0 +1,206 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Strona główna replikacji: udostępnia dziennik zmian portfela przez gniazdo TCP (localhost).
+// Protokół ramek (DataOutputStream):
+//   replika -> główny:  'J' ostatni numer (-1 = brak stanu), potem 'A' numer potwierdzony
+//   główny -> replika:  'S' numer, długość, migawka | 'R' numer, czas, długość, rekord | 'H' numer ostatni, czas
+// Portfel modyfikuje wyłącznie wątek właściciela; on też wywołuje checkpoint() (jawnie
+// albo automatycznie z append co ReplicationLog.DEFAULT_CHECKPOINT_EVERY rekordów).
+// Ceny: rekordy PRICE powstają tylko w updatePrice/refreshPrices; zmiana wprost na wspólnym
+// Instrument (np. InstrumentMaster.updatePrice) dociera do replik dopiero z najbliższą migawką.
+public class ReplicationPrimary implements AutoCloseable {
+    static final byte JOIN = 'J';
+    static final byte ACK = 'A';
+    static final byte SNAPSHOT = 'S';
+    static final byte RECORD = 'R';
+    static final byte HEARTBEAT = 'H';
+
+    private static final int MAX_BATCH = 512;
+    private static final long HEARTBEAT_MILLIS = 100;
+
+    private final Portfolio portfolio;
+    private final ReplicationLog log;
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicLong> acknowledged = new ConcurrentHashMap<>();
+    private final AtomicInteger replicaCounter = new AtomicInteger();
+    private volatile boolean running = true;
+
+    // port 0 = port efemeryczny (zob. getPort)
+    public ReplicationPrimary(Portfolio portfolio, int port) {
+        this.portfolio = portfolio;
+        this.log = new ReplicationLog(() -> captureState(portfolio));
+        portfolio.attachReplicationLog(log);
+        try {
+            this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("Nie można otworzyć portu replikacji " + port, e);
+        }
+        this.acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public ReplicationLog getLog() {
+        return log;
+    }
+
+    // Nowa migawka i przycięcie ogona - wywoływać z wątku modyfikującego portfel
+    public void checkpoint() {
+        log.checkpoint();
+    }
+
+    // Opóźnienie każdej repliki w rekordach (ostatni numer - potwierdzony)
+    public Map<String, Long> getReplicaLag() {
+        long head = log.getHeadSequence();
+        Map<String, Long> lag = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> e : acknowledged.entrySet()) {
+            lag.put(e.getKey(), Math.max(0, head - e.getValue().get()));
+        }
+        return lag;
+    }
+
+    public int getConnectedReplicas() {
+        return acknowledged.size();
+    }
+
+    // Migawka: waluta bazowa, stan w formacie pliku portfela, ceny bieżące
+    static byte[] captureState(Portfolio portfolio) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            out.write(("BASE|" + portfolio.getBaseCurrency() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.write(portfolio.stateBytes());
+            for (Asset asset : portfolio.getAssets().values()) {
+                if (asset.getCurrentPrice() == null) continue;
+                out.write(("PRICE|" + asset.getTicker() + "|" + asset.getCurrentPrice() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                String name = "replica-" + replicaCounter.incrementAndGet();
+                Thread sender = new Thread(() -> serve(socket, name), "replication-" + name);
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                // gniazdo zamknięte w close() albo chwilowy błąd accept
+            }
+        }
+    }
+
+    private void serve(Socket socket, String name) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            if (in.readByte() != JOIN) throw new IOException("Oczekiwano ramki JOIN");
+            long sent = in.readLong();
+            AtomicLong acked = new AtomicLong(Math.max(sent, 0));
+            acknowledged.put(name, acked);
+            startAckReader(in, acked, name);
+
+            while (running) {
+                ReplicationLog.Batch batch = log.next(sent, MAX_BATCH, HEARTBEAT_MILLIS);
+                if (batch.getSnapshot() != null) {
+                    out.writeByte(SNAPSHOT);
+                    out.writeLong(batch.getSnapshotSequence());
+                    out.writeInt(batch.getSnapshot().length);
+                    out.write(batch.getSnapshot());
+                    sent = batch.getSnapshotSequence();
+                } else if (batch.getRecords().isEmpty()) {
+                    out.writeByte(HEARTBEAT);
+                    out.writeLong(log.getHeadSequence());
+                    out.writeLong(System.currentTimeMillis());
+                } else {
+                    for (ReplicationLog.Record record : batch.getRecords()) {
+                        byte[] payload = record.getPayload().getBytes(StandardCharsets.UTF_8);
+                        out.writeByte(RECORD);
+                        out.writeLong(record.getSequence());
+                        out.writeLong(record.getTimestamp());
+                        out.writeInt(payload.length);
+                        out.write(payload);
+                        sent = record.getSequence();
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // replika rozłączona - połączy się ponownie od ostatniego potwierdzonego numeru
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            acknowledged.remove(name);
+            connections.remove(socket);
+        }
+    }
+
+    private void startAckReader(DataInputStream in, AtomicLong acked, String name) {
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    if (in.readByte() != ACK) return;
+                    acked.set(in.readLong());
+                }
+            } catch (IOException e) {
+                // koniec połączenia
+            }
+        }, "replication-ack-" + name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        portfolio.attachReplicationLog(null);
+        try {
+            server.close();
+        } catch (IOException e) {
+            // zamykanie - błąd bez znaczenia
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // jw.
+            }
+        }
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
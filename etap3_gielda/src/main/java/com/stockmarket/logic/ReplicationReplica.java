@@ -0,0 +1,283 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Replika tylko do odczytu: łączy się z ReplicationPrimary, wczytuje migawkę (gdy trzeba)
+// i stosuje kolejne rekordy zmian. Po zerwaniu połączenia wznawia od ostatniego
+// zastosowanego numeru - zwykle wystarcza sam ogon dziennika.
+// Zapytania wykonywane są pod tą samą blokadą co stosowanie rekordów.
+public class ReplicationReplica implements AutoCloseable {
+    private static final long RECONNECT_MILLIS = 100;
+
+    private final String host;
+    private final int port;
+    private final InstrumentMaster instrumentMaster;
+    private final Object lock = new Object();
+    private final Thread worker;
+
+    private volatile Portfolio portfolio;
+    private volatile Socket socket;
+    private volatile boolean running = true;
+
+    // --- STAN REPLIKACJI / OPÓŹNIENIE ---
+    private volatile long applied = -1;
+    private volatile long primaryHead;
+    private volatile long lagMillis;
+    private volatile int snapshotsLoaded;
+    private volatile long recordsApplied;
+
+    public ReplicationReplica(String host, int port, InstrumentMaster instrumentMaster) {
+        this.host = host;
+        this.port = port;
+        this.instrumentMaster = instrumentMaster;
+        this.portfolio = new Portfolio(BigDecimal.ZERO, instrumentMaster);
+        this.worker = new Thread(this::run, "replica-" + host + ":" + port);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // Odczyt pod blokadą - funkcja nie może modyfikować portfela
+    public <T> T query(Function<Portfolio, T> reader) {
+        synchronized (lock) {
+            return reader.apply(portfolio);
+        }
+    }
+
+    // Odczyt bez blokady z ostatniej opublikowanej migawki
+    public PortfolioSnapshot snapshot() {
+        return portfolio.snapshot();
+    }
+
+    // Czeka, aż replika zastosuje rekordy co najmniej do numeru sequence
+    public boolean awaitSequence(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            while (applied < sequence) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) return false;
+                lock.wait(left);
+            }
+        }
+        return true;
+    }
+
+    public long getAppliedSequence() { return applied; }
+    public long getPrimarySequence() { return primaryHead; }
+
+    // Rekordy znane z głównego, jeszcze niezastosowane
+    public long getLagRecords() { return Math.max(0, primaryHead - applied); }
+
+    // Czas od zapisu ostatniego zastosowanego rekordu na głównym do jego zastosowania
+    public long getLagMillis() { return lagMillis; }
+
+    public int getSnapshotsLoaded() { return snapshotsLoaded; }
+    public long getRecordsApplied() { return recordsApplied; }
+
+    // Zerwanie bieżącego połączenia (replika połączy się ponownie)
+    void dropConnection() throws IOException {
+        Socket current = socket;
+        if (current != null) current.close();
+    }
+
+    private void run() {
+        while (running) {
+            try (Socket s = new Socket(host, port)) {
+                s.setTcpNoDelay(true);
+                socket = s;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                out.writeByte(ReplicationPrimary.JOIN);
+                out.writeLong(applied);
+                out.flush();
+                while (running) {
+                    readFrame(in);
+                    if (in.available() == 0) {
+                        out.writeByte(ReplicationPrimary.ACK);
+                        out.writeLong(applied);
+                        out.flush();
+                    }
+                }
+            } catch (RuntimeException e) {
+                applied = -1; // stan niespójny - ponowne połączenie od migawki
+            } catch (IOException e) {
+                // główny niedostępny lub połączenie zerwane
+            }
+            socket = null;
+            if (!running) break;
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void readFrame(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ReplicationPrimary.SNAPSHOT: {
+                long sequence = in.readLong();
+                byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                Portfolio restored = restore(state);
+                synchronized (lock) {
+                    portfolio = restored;
+                    applied = sequence;
+                    snapshotsLoaded++;
+                    lock.notifyAll();
+                }
+                primaryHead = Math.max(primaryHead, sequence);
+                break;
+            }
+            case ReplicationPrimary.RECORD: {
+                long sequence = in.readLong();
+                long timestamp = in.readLong();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                primaryHead = Math.max(primaryHead, sequence);
+                if (sequence != applied + 1) throw new IllegalStateException("Luka w dzienniku: " + applied + " -> " + sequence);
+                synchronized (lock) {
+                    apply(portfolio, new String(payload, StandardCharsets.UTF_8));
+                    applied = sequence;
+                    recordsApplied++;
+                    lock.notifyAll();
+                }
+                lagMillis = Math.max(0, System.currentTimeMillis() - timestamp);
+                break;
+            }
+            case ReplicationPrimary.HEARTBEAT:
+                primaryHead = Math.max(applied, in.readLong());
+                in.readLong();
+                break;
+            default:
+                throw new EOFException("Nieznany typ ramki: " + type);
+        }
+    }
+
+    // Migawka z ReplicationPrimary.captureState do nowego portfela
+    private Portfolio restore(byte[] state) {
+        Portfolio restored = new Portfolio(BigDecimal.ZERO, instrumentMaster);
+        ByteArrayOutputStream fileState = new ByteArrayOutputStream();
+        Map<String, BigDecimal> prices = new LinkedHashMap<>();
+        for (String line : new String(state, StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith("BASE|")) {
+                restored.setBaseCurrency(line.substring(5));
+            } else if (line.startsWith("PRICE|")) {
+                String[] parts = line.split("\\|");
+                prices.put(parts[1], new BigDecimal(parts[2]));
+            } else if (!line.isEmpty()) {
+                byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                fileState.write(bytes, 0, bytes.length);
+            }
+        }
+        restored.loadState(fileState.toByteArray());
+        for (Map.Entry<String, BigDecimal> price : prices.entrySet()) {
+            restored.updatePrice(price.getKey(), price.getValue());
+        }
+        return restored;
+    }
+
+    // Zastosowanie pojedynczego rekordu zmian (format rekordów - Portfolio)
+    static void apply(Portfolio p, String record) {
+        String[] f = record.split("\\|", -1);
+        switch (f[0]) {
+            case "TRACK": {
+                Asset asset = Asset.forInstrument(p.getInstrumentMaster().resolve(f[2], AssetType.valueOf(f[1])));
+                if (!f[3].equals("-")) asset.setCurrentPrice(new BigDecimal(f[3]));
+                p.trackAsset(asset);
+                break;
+            }
+            case "LOTS": {
+                Asset asset = requireAsset(p, f[1]);
+                List<Lot> lots = new ArrayList<>();
+                for (String lot : f[2].split(";")) {
+                    if (lot.isEmpty()) continue;
+                    String[] l = lot.split(",");
+                    lots.add(new Lot(LocalDate.parse(l[0]), Integer.parseInt(l[1]), new BigDecimal(l[2])));
+                }
+                asset.getLots().clear();
+                asset.addLots(lots);
+                p.markDirty(f[1]);
+                break;
+            }
+            case "BUY":
+                p.buy(f[1], Integer.parseInt(f[3]), new BigDecimal(f[4]), LocalDate.parse(f[2]));
+                break;
+            case "SELL":
+                p.sell(f[1], Integer.parseInt(f[2]), new BigDecimal(f[3]));
+                break;
+            case "CASH": {
+                Map<String, BigDecimal> balances = new HashMap<>();
+                for (String ledger : f[2].split(";")) {
+                    if (ledger.isEmpty()) continue;
+                    int eq = ledger.indexOf('=');
+                    balances.put(ledger.substring(0, eq), new BigDecimal(ledger.substring(eq + 1)));
+                }
+                p.restoreCashState(new BigDecimal(f[1]), balances);
+                break;
+            }
+            case "BASE":
+                p.setBaseCurrency(f[1]);
+                break;
+            case "PRICE":
+                p.updatePrice(f[1], new BigDecimal(f[2]));
+                break;
+            case "ORDER": {
+                Order order = new Order(f[3], Order.Type.valueOf(f[4]), new BigDecimal(f[5]), Integer.parseInt(f[6]));
+                order.assign(Long.parseLong(f[1]), Long.parseLong(f[2]));
+                p.restoreOrder(order);
+                break;
+            }
+            case "ORDER_QTY": {
+                Order order = p.findOrder(Long.parseLong(f[1]));
+                if (order == null) throw new DataIntegrityException("Brak zlecenia " + f[1]);
+                int remaining = Integer.parseInt(f[2]);
+                if (remaining == 0) {
+                    p.cancelOrder(order);
+                } else {
+                    order.reduceQuantity(order.getQuantity() - remaining);
+                }
+                break;
+            }
+            default:
+                throw new DataIntegrityException("Nieznany rekord replikacji: " + f[0]);
+        }
+    }
+
+    private static Asset requireAsset(Portfolio p, String ticker) {
+        Asset asset = p.getAsset(ticker);
+        if (asset == null) throw new DataIntegrityException("Nieznane aktywo w rekordzie: " + ticker);
+        return asset;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            dropConnection();
+        } catch (IOException e) {
+            // zamykanie - błąd bez znaczenia
+        }
+        worker.interrupt();
+    }
+}
@@ -0,0 +1,250 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// Przyrostowy zapis portfela: jeden segment na aktywo + manifest.
+// Każdy plik zapisywany jest jako tmp -> fsync -> atomowa zmiana nazwy, a nowy
+// manifest jest punktem zatwierdzenia - awaria w trakcie zostawia poprzedni stan.
+//
+// MANIFEST:
+//   HEADER|CASH|kwota
+//   HEADER|GENERATION|n
+//   LEDGER|Waluta|saldo
+//   SEGMENT|Typ|Ticker|plik|crc32
+//   CHECKSUM|crc32 wszystkich poprzednich linii
+public class SegmentedStore {
+    static final String MANIFEST = "MANIFEST";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final Map<String, SegmentRef> segments = new HashMap<>();
+    private final Map<String, BigDecimal> ledgers = new HashMap<>();
+    private long generation;
+
+    public SegmentedStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Nie można utworzyć katalogu " + directory, e);
+        }
+        if (Files.exists(directory.resolve(MANIFEST))) {
+            readManifest();
+        }
+    }
+
+    // --- ZAPIS (tylko zmienione aktywa) ---
+    public void save(Portfolio portfolio) {
+        Set<String> dirty = portfolio.drainDirtyTickers();
+        Map<String, SegmentRef> next = new HashMap<>(segments);
+        Set<String> obsolete = new HashSet<>();
+        long nextGeneration = generation + 1;
+        int sequence = 0;
+        try {
+            for (String ticker : dirty) {
+                Asset asset = portfolio.getAsset(ticker);
+                SegmentRef previous = next.remove(ticker);
+                if (previous != null) obsolete.add(previous.file);
+                if (asset == null || asset.getLots().isEmpty()) continue;
+
+                String file = SEGMENT_PREFIX + nextGeneration + "-" + (sequence++) + ".dat";
+                byte[] bytes = encodeSegment(asset);
+                writeAtomically(directory.resolve(file), bytes);
+                next.put(ticker, new SegmentRef(asset.getType(), ticker, file, crc(bytes)));
+            }
+            writeAtomically(directory.resolve(MANIFEST), encodeManifest(portfolio, nextGeneration, next));
+            syncDirectory();
+        } catch (IOException e) {
+            // Nic nie zostało zatwierdzone - tickery wracają do zbioru zmienionych
+            for (String ticker : dirty) portfolio.markDirty(ticker);
+            throw new RuntimeException("Błąd zapisu przyrostowego", e);
+        }
+
+        segments.clear();
+        segments.putAll(next);
+        generation = nextGeneration;
+        for (String file : obsolete) {
+            try {
+                Files.deleteIfExists(directory.resolve(file));
+            } catch (IOException ignored) {
+                // Osierocony segment zostanie usunięty przy następnym odtworzeniu
+            }
+        }
+    }
+
+    // --- ODTWORZENIE ---
+    public void load(Portfolio portfolio) {
+        BigDecimal cash = readManifest();
+        portfolio.restoreCash(cash);
+        for (Map.Entry<String, BigDecimal> ledger : ledgers.entrySet()) {
+            portfolio.restoreCashBalance(ledger.getKey(), ledger.getValue());
+        }
+        for (SegmentRef ref : segments.values()) {
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(directory.resolve(ref.file));
+            } catch (IOException e) {
+                throw new DataIntegrityException("Brak segmentu " + ref.file + " dla " + ref.ticker);
+            }
+            if (crc(bytes) != ref.crc) {
+                throw new DataIntegrityException("Uszkodzony segment " + ref.file + " dla " + ref.ticker);
+            }
+            Asset asset = Asset.forInstrument(portfolio.getInstrumentMaster().resolve(ref.ticker, ref.type));
+            for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+                if (line.isEmpty()) continue;
+                String[] parts = line.split("\\|");
+                if (!parts[0].equals("LOT")) throw new DataIntegrityException("Nieznany typ rekordu w segmencie");
+                asset.addLot(new Lot(LocalDate.parse(parts[1]), Integer.parseInt(parts[2]), new BigDecimal(parts[3])));
+            }
+            portfolio.trackAsset(asset);
+        }
+        portfolio.drainDirtyTickers();
+        removeOrphans();
+    }
+
+    private BigDecimal readManifest() {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(directory.resolve(MANIFEST));
+        } catch (IOException e) {
+            throw new DataIntegrityException("Brak manifestu w " + directory);
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        int checksumAt = text.lastIndexOf("CHECKSUM|");
+        if (checksumAt < 0) {
+            throw new DataIntegrityException("Manifest niekompletny (przerwany zapis)");
+        }
+        long expected;
+        try {
+            expected = Long.parseLong(text.substring(checksumAt + 9).trim());
+        } catch (NumberFormatException e) {
+            throw new DataIntegrityException("Manifest niekompletny (przerwany zapis)");
+        }
+        byte[] body = text.substring(0, checksumAt).getBytes(StandardCharsets.UTF_8);
+        if (crc(body) != expected) {
+            throw new DataIntegrityException("Błędna suma kontrolna manifestu");
+        }
+
+        BigDecimal cash = BigDecimal.ZERO;
+        segments.clear();
+        ledgers.clear();
+        for (String line : text.substring(0, checksumAt).split("\n")) {
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("\\|");
+            switch (parts[0]) {
+                case "HEADER":
+                    if (parts[1].equals("CASH")) cash = new BigDecimal(parts[2]);
+                    else if (parts[1].equals("GENERATION")) generation = Long.parseLong(parts[2]);
+                    break;
+                case "LEDGER":
+                    ledgers.put(parts[1], new BigDecimal(parts[2]));
+                    break;
+                case "SEGMENT":
+                    segments.put(parts[2], new SegmentRef(AssetType.valueOf(parts[1]), parts[2], parts[3], Long.parseLong(parts[4])));
+                    break;
+                default:
+                    throw new DataIntegrityException("Nieznany typ rekordu w manifeście");
+            }
+        }
+        return cash;
+    }
+
+    private void removeOrphans() {
+        Set<String> live = new HashSet<>();
+        for (SegmentRef ref : segments.values()) live.add(ref.file);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean orphan = name.startsWith(SEGMENT_PREFIX) && !live.contains(name);
+                if (orphan || name.endsWith(TMP_SUFFIX)) Files.deleteIfExists(file);
+            }
+        } catch (IOException ignored) {
+            // Sprzątanie nie jest konieczne do poprawności
+        }
+    }
+
+    private static byte[] encodeSegment(Asset asset) {
+        StringBuilder sb = new StringBuilder();
+        for (Lot lot : asset.getLots()) {
+            sb.append("LOT|").append(lot.getPurchaseDate()).append('|')
+              .append(lot.getQuantity()).append('|').append(lot.getPurchasePrice()).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encodeManifest(Portfolio portfolio, long generation, Map<String, SegmentRef> segments) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HEADER|CASH|").append(portfolio.getCash()).append('\n');
+        sb.append("HEADER|GENERATION|").append(generation).append('\n');
+        for (Map.Entry<String, BigDecimal> ledger : portfolio.getCashBalances().entrySet()) {
+            if (ledger.getKey().equals(portfolio.getBaseCurrency())) continue;
+            sb.append("LEDGER|").append(ledger.getKey()).append('|').append(ledger.getValue()).append('\n');
+        }
+        for (SegmentRef ref : segments.values()) {
+            sb.append("SEGMENT|").append(ref.type).append('|').append(ref.ticker).append('|')
+              .append(ref.file).append('|').append(ref.crc).append('\n');
+        }
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        sb.append("CHECKSUM|").append(crc(body)).append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + TMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void syncDirectory() {
+        // fsync katalogu utrwala samą zmianę nazwy; nie każdy system na to pozwala
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static final class SegmentRef {
+        private final AssetType type;
+        private final String ticker;
+        private final String file;
+        private final long crc;
+
+        private SegmentRef(AssetType type, String ticker, String file, long crc) {
+            this.type = type;
+            this.ticker = ticker;
+            this.file = file;
+            this.crc = crc;
+        }
+    }
+}
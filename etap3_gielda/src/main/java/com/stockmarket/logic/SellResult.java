@@ -0,0 +1,39 @@
+package com.stockmarket.logic;
+
+import java.math.BigDecimal;
+
+// Wynik sprzedaży FIFO zapisywany do obiektu dostarczonego przez wywołującego -
+// ten sam obiekt można przekazywać do kolejnych wywołań Portfolio.sell.
+public class SellResult {
+    private String ticker;
+    private int quantity;
+    private int lotsConsumed;
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private BigDecimal profit = BigDecimal.ZERO;
+
+    void reset(String ticker) {
+        this.ticker = ticker;
+        this.quantity = 0;
+        this.lotsConsumed = 0;
+        this.revenue = BigDecimal.ZERO;
+        this.profit = BigDecimal.ZERO;
+    }
+
+    void lotConsumed() {
+        lotsConsumed++;
+    }
+
+    void complete(int quantity, BigDecimal revenue, BigDecimal profit) {
+        this.quantity = quantity;
+        this.revenue = revenue;
+        this.profit = profit;
+    }
+
+    public String getTicker() { return ticker; }
+    public int getQuantity() { return quantity; }
+
+    // Partie zużyte w całości lub częściowo
+    public int getLotsConsumed() { return lotsConsumed; }
+    public BigDecimal getRevenue() { return revenue; }
+    public BigDecimal getProfit() { return profit; }
+}
@@ -0,0 +1,189 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.Lot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Przyrostowy skrót stanu portfela do porównywania replik i migawek bez pełnego zapisu.
+// Każda partia daje składnik mix(ticker, data, ilość, cena); składniki są sumowane (mod 2^64),
+// więc kolejność nie ma znaczenia, a dodanie/usunięcie partii to O(1).
+// Sumy pozycji trafiają do liści drzewa (kubełek wg hasha tickera); węzeł = suma dzieci,
+// dlatego aktualizacja liścia poprawia tylko ścieżkę do korzenia, a różnice wskazuje zejście
+// po węzłach o różnych wartościach - O(log n) na różniący się ticker.
+// Skrót zależy od zapisu liczb (100 i 100.00 to różne wartości), jak plik portfela.
+public final class StateHash {
+    private static final int LEAVES = 256;
+
+    private final long[] tree = new long[2 * LEAVES];
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Entry[] buckets = new Entry[LEAVES]; // listy pozycji w kubełkach
+    private final Set<String> pending = new HashSet<>();
+    private long cashHash;
+    private long foreignCashHash;
+
+    // --- AKTUALIZACJE (wywoływane przez Portfolio) ---
+    void lotAdded(String ticker, Lot lot) {
+        if (pending.contains(ticker)) return; // i tak przeliczane przy odczycie
+        add(ticker, lotHash(ticker, lot.getPurchaseDate(), lot.getQuantity(), lot.getPurchasePrice()));
+    }
+
+    void lotRemoved(String ticker, Lot lot) {
+        if (pending.contains(ticker)) return;
+        add(ticker, -lotHash(ticker, lot.getPurchaseDate(), lot.getQuantity(), lot.getPurchasePrice()));
+    }
+
+    // Zmiana ilości partii (częściowa sprzedaż) - wywoływane przed setQuantity
+    void lotResized(String ticker, Lot lot, int newQuantity) {
+        if (pending.contains(ticker)) return;
+        LocalDate date = lot.getPurchaseDate();
+        BigDecimal price = lot.getPurchasePrice();
+        add(ticker, lotHash(ticker, date, newQuantity, price) - lotHash(ticker, date, lot.getQuantity(), price));
+    }
+
+    // Zmiany poza buy/sell (trackAsset, markDirty) - pozycja przeliczana przy najbliższym odczycie
+    void invalidate(String ticker) {
+        pending.add(ticker);
+    }
+
+    void cashChanged(BigDecimal cash) {
+        cashHash = mix(0x434153484C4BL ^ cash.hashCode());
+    }
+
+    void foreignCashChanged(Map<String, BigDecimal> foreignCash) {
+        long sum = 0;
+        for (Map.Entry<String, BigDecimal> e : foreignCash.entrySet()) {
+            sum += mix(mix(e.getKey().hashCode()) ^ e.getValue().hashCode());
+        }
+        foreignCashHash = sum;
+    }
+
+    // Przeliczenie pozycji oczekujących - O(liczba ich partii)
+    void flush(Map<String, Asset> assets) {
+        if (pending.isEmpty()) return;
+        for (String ticker : pending) {
+            Asset asset = assets.get(ticker);
+            long sum = 0;
+            if (asset != null) {
+                for (Lot lot : asset.getLots()) {
+                    sum += lotHash(ticker, lot.getPurchaseDate(), lot.getQuantity(), lot.getPurchasePrice());
+                }
+            }
+            Entry entry = entry(ticker);
+            addToTree(entry.bucket, sum - entry.hash);
+            entry.hash = sum;
+        }
+        pending.clear();
+    }
+
+    // --- ODCZYT ---
+    public long getValue() {
+        return mix(cashHash + 31 * foreignCashHash) + tree[1];
+    }
+
+    // Skrót pozycji (0 dla pozycji bez partii lub nieznanej)
+    public long getAssetHash(String ticker) {
+        Entry entry = entries.get(ticker);
+        return entry == null ? 0 : entry.hash;
+    }
+
+    // Porównanie z innym skrótem: różniące się tickery w kolejności alfabetycznej
+    public Mismatch compare(StateHash other) {
+        Set<String> tickers = new TreeSet<>();
+        if (tree[1] != other.tree[1]) descend(other, 1, tickers);
+        boolean cashDiffers = cashHash != other.cashHash || foreignCashHash != other.foreignCashHash;
+        return new Mismatch(cashDiffers, new ArrayList<>(tickers));
+    }
+
+    private void descend(StateHash other, int node, Set<String> tickers) {
+        if (tree[node] == other.tree[node]) return;
+        if (node >= LEAVES) {
+            int bucket = node - LEAVES;
+            collectDifferences(this, other, bucket, tickers);
+            collectDifferences(other, this, bucket, tickers);
+            return;
+        }
+        descend(other, 2 * node, tickers);
+        descend(other, 2 * node + 1, tickers);
+    }
+
+    private static void collectDifferences(StateHash a, StateHash b, int bucket, Set<String> tickers) {
+        for (Entry entry = a.buckets[bucket]; entry != null; entry = entry.next) {
+            if (entry.hash != b.getAssetHash(entry.ticker)) tickers.add(entry.ticker);
+        }
+    }
+
+    private void add(String ticker, long delta) {
+        Entry entry = entry(ticker);
+        entry.hash += delta;
+        addToTree(entry.bucket, delta);
+    }
+
+    private void addToTree(int bucket, long delta) {
+        for (int node = LEAVES + bucket; node >= 1; node >>= 1) tree[node] += delta;
+    }
+
+    private Entry entry(String ticker) {
+        Entry entry = entries.get(ticker);
+        if (entry == null) {
+            int bucket = (int) (mix(ticker.hashCode()) & (LEAVES - 1));
+            entry = new Entry(ticker, bucket, buckets[bucket]);
+            buckets[bucket] = entry;
+            entries.put(ticker, entry);
+        }
+        return entry;
+    }
+
+    static long lotHash(String ticker, LocalDate date, int quantity, BigDecimal price) {
+        long h = mix(ticker.hashCode());
+        h = mix(h ^ date.toEpochDay());
+        h = mix(h ^ quantity);
+        return mix(h ^ price.hashCode());
+    }
+
+    // Finalizator SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Entry {
+        private final String ticker;
+        private final int bucket;
+        private final Entry next;
+        private long hash;
+
+        private Entry(String ticker, int bucket, Entry next) {
+            this.ticker = ticker;
+            this.bucket = bucket;
+            this.next = next;
+        }
+    }
+
+    public static final class Mismatch {
+        private final boolean cashDiffers;
+        private final List<String> tickers;
+
+        private Mismatch(boolean cashDiffers, List<String> tickers) {
+            this.cashDiffers = cashDiffers;
+            this.tickers = Collections.unmodifiableList(tickers);
+        }
+
+        public boolean isCashMismatch() { return cashDiffers; }
+        public List<String> getTickers() { return tickers; }
+
+        public boolean isEmpty() {
+            return !cashDiffers && tickers.isEmpty();
+        }
+    }
+}
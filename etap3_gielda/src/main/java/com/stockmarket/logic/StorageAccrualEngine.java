@@ -0,0 +1,226 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Commodity;
+import com.stockmarket.domain.Lot;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Nocne naliczanie kosztów magazynowania surowców.
+// storageCostPerUnit traktujemy jako koszt roczny za jednostkę (ACT/365),
+// naliczany za dni od max(data zakupu, data poprzedniego naliczenia) do dnia przebiegu.
+//
+// Plik punktu kontrolnego:
+//   RUN|dzień przebiegu|naliczone do (lub -)
+//   DONE|konto|kwota         (dopisywane po zaksięgowaniu każdego konta)
+//   COMPLETE
+public class StorageAccrualEngine {
+    private static final BigDecimal DAYS_IN_YEAR = BigDecimal.valueOf(365);
+
+    private final Path checkpointFile;
+    private final int parallelism;
+
+    public StorageAccrualEngine(Path checkpointFile, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Liczba wątków musi być dodatnia");
+        }
+        this.checkpointFile = checkpointFile;
+        this.parallelism = parallelism;
+    }
+
+    public AccrualResult run(Map<String, Portfolio> accounts, LocalDate runDate) {
+        Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+        LocalDate accruedThrough;
+        if (checkpoint != null && checkpoint.runDate.equals(runDate)) {
+            if (checkpoint.complete) {
+                // Przebieg już zakończony - brak ponownego księgowania
+                return new AccrualResult(checkpoint.done, checkpoint.done.size());
+            }
+            accruedThrough = checkpoint.accruedThrough; // wznowienie przerwanego przebiegu
+            checkpoint.rewrite(checkpointFile); // odcina ewentualnie uciętą ostatnią linię
+        } else {
+            if (checkpoint != null && !checkpoint.complete) {
+                throw new IllegalStateException("Nieukończony przebieg z dnia " + checkpoint.runDate);
+            }
+            if (checkpoint != null && !checkpoint.runDate.isBefore(runDate)) {
+                throw new IllegalArgumentException("Dzień przebiegu wcześniejszy niż ostatnie naliczenie");
+            }
+            accruedThrough = checkpoint == null ? null : checkpoint.runDate;
+            checkpoint = Checkpoint.start(checkpointFile, runDate, accruedThrough);
+        }
+
+        // Podział kont na partycje - każde konto obsługuje dokładnie jeden wątek
+        List<String> pending = new ArrayList<>();
+        for (String accountId : new TreeMap<>(accounts).keySet()) {
+            if (!checkpoint.done.containsKey(accountId)) pending.add(accountId);
+        }
+        int resumed = checkpoint.done.size();
+        Map<String, BigDecimal> charges = Collections.synchronizedMap(new HashMap<>(checkpoint.done));
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try (BufferedWriter log = Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int part = 0; part < parallelism; part++) {
+                final int partition = part;
+                futures.add(pool.submit(() -> {
+                    for (int i = partition; i < pending.size(); i += parallelism) {
+                        String accountId = pending.get(i);
+                        BigDecimal charge = accrue(accounts.get(accountId), runDate, accruedThrough);
+                        charges.put(accountId, charge);
+                        appendDone(log, accountId, charge);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+            log.write("COMPLETE\n");
+            log.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Błąd zapisu punktu kontrolnego", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przebieg przerwany", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Błąd naliczania: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new AccrualResult(charges, resumed);
+    }
+
+    // Naliczenie i zaksięgowanie kosztu dla jednego konta
+    BigDecimal accrue(Portfolio portfolio, LocalDate runDate, LocalDate accruedThrough) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Asset asset : portfolio.getAssets().values()) {
+            if (asset.getType() != AssetType.COMMODITY) continue;
+            BigDecimal costPerUnit = ((Commodity) asset).getStorageCostPerUnit();
+            if (costPerUnit.signum() == 0) continue;
+            for (Lot lot : asset.getLots()) {
+                LocalDate from = lot.getPurchaseDate();
+                if (accruedThrough != null && accruedThrough.isAfter(from)) from = accruedThrough;
+                long days = ChronoUnit.DAYS.between(from, runDate);
+                if (days <= 0) continue;
+                total = total.add(costPerUnit.multiply(BigDecimal.valueOf((long) lot.getQuantity() * days)));
+            }
+        }
+        BigDecimal charge = total.divide(DAYS_IN_YEAR, 2, RoundingMode.HALF_UP);
+        if (charge.signum() > 0) portfolio.adjustCash(charge.negate());
+        return charge;
+    }
+
+    private static void appendDone(BufferedWriter log, String accountId, BigDecimal charge) {
+        synchronized (log) {
+            try {
+                log.write("DONE|" + accountId + "|" + charge + "\n");
+                log.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class Checkpoint {
+        private final LocalDate runDate;
+        private final LocalDate accruedThrough;
+        private final Map<String, BigDecimal> done;
+        private final boolean complete;
+
+        private Checkpoint(LocalDate runDate, LocalDate accruedThrough, Map<String, BigDecimal> done, boolean complete) {
+            this.runDate = runDate;
+            this.accruedThrough = accruedThrough;
+            this.done = done;
+            this.complete = complete;
+        }
+
+        static Checkpoint read(Path file) {
+            if (!Files.exists(file)) return null;
+            try {
+                String text = Files.readString(file, StandardCharsets.UTF_8);
+                List<String> lines = new ArrayList<>(List.of(text.split("\n")));
+                // Ucięta ostatnia linia (awaria w trakcie zapisu) - konto zostanie przeliczone
+                if (!text.endsWith("\n") && !lines.isEmpty()) lines.remove(lines.size() - 1);
+                if (lines.isEmpty()) return null;
+                String[] header = lines.get(0).split("\\|");
+                if (!header[0].equals("RUN")) throw new DataIntegrityException("Brak nagłówka punktu kontrolnego");
+                LocalDate runDate = LocalDate.parse(header[1]);
+                LocalDate through = header[2].equals("-") ? null : LocalDate.parse(header[2]);
+                Map<String, BigDecimal> done = new HashMap<>();
+                boolean complete = false;
+                for (int i = 1; i < lines.size(); i++) {
+                    String line = lines.get(i);
+                    if (line.equals("COMPLETE")) {
+                        complete = true;
+                    } else if (line.startsWith("DONE|")) {
+                        String[] parts = line.split("\\|");
+                        done.put(parts[1], new BigDecimal(parts[2]));
+                    }
+                }
+                return new Checkpoint(runDate, through, done, complete);
+            } catch (IOException e) {
+                throw new DataIntegrityException("Błąd odczytu punktu kontrolnego: " + e.getMessage());
+            }
+        }
+
+        static Checkpoint start(Path file, LocalDate runDate, LocalDate accruedThrough) {
+            Checkpoint checkpoint = new Checkpoint(runDate, accruedThrough, new HashMap<>(), false);
+            checkpoint.rewrite(file);
+            return checkpoint;
+        }
+
+        void rewrite(Path file) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("RUN|").append(runDate).append('|').append(accruedThrough == null ? "-" : accruedThrough).append('\n');
+            for (Map.Entry<String, BigDecimal> entry : done.entrySet()) {
+                sb.append("DONE|").append(entry.getKey()).append('|').append(entry.getValue()).append('\n');
+            }
+            try {
+                SegmentedStore.writeAtomically(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new RuntimeException("Błąd zapisu punktu kontrolnego", e);
+            }
+        }
+    }
+
+    public static final class AccrualResult {
+        private final Map<String, BigDecimal> charges;
+        private final int resumedAccounts;
+
+        private AccrualResult(Map<String, BigDecimal> charges, int resumedAccounts) {
+            this.charges = Collections.unmodifiableMap(new HashMap<>(charges));
+            this.resumedAccounts = resumedAccounts;
+        }
+
+        public BigDecimal getCharge(String accountId) {
+            return charges.getOrDefault(accountId, BigDecimal.ZERO);
+        }
+
+        public BigDecimal getTotalCharge() {
+            BigDecimal total = BigDecimal.ZERO;
+            for (BigDecimal c : charges.values()) total = total.add(c);
+            return total;
+        }
+
+        public int getAccountCount() { return charges.size(); }
+        public int getResumedAccounts() { return resumedAccounts; }
+    }
+}
@@ -0,0 +1,237 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Asset;
+import com.stockmarket.domain.AssetType;
+import com.stockmarket.domain.Lot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Import historii transakcji z pliku CSV brokera do partii portfela.
+// Format: date,ticker,type,side,quantity,price   (np. 2019-03-04,CDR,SHARE,BUY,10,250.40)
+// Plik czytany strumieniowo, walidacja w paczkach (równolegle w obrębie paczki) z błędami na poziomie wiersza.
+// Po odczycie transakcje każdego tickera odtwarzane chronologicznie: BUY tworzy partię z oryginalną
+// datą i ceną, SELL zdejmuje partie metodą FIFO. Gotówka portfela nie jest zmieniana.
+public class TradeImporter {
+    public static final String HEADER = "date,ticker,type,side,quantity,price";
+    private static final int DEFAULT_BATCH = 8192;
+
+    private final int batchSize;
+
+    public TradeImporter() {
+        this(DEFAULT_BATCH);
+    }
+
+    public TradeImporter(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Rozmiar paczki musi być dodatni");
+        this.batchSize = batchSize;
+    }
+
+    public ImportResult importFile(Path file, Portfolio portfolio) {
+        Map<String, List<Trade>> byTicker = new HashMap<>();
+        List<RowError> errors = new ArrayList<>();
+        long rows = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.trim().equalsIgnoreCase(HEADER)) {
+                throw new DataIntegrityException("Nieprawidłowy nagłówek pliku transakcji");
+            }
+            String[] batch = new String[batchSize];
+            long firstLine = 2;
+            int filled;
+            do {
+                filled = 0;
+                String line;
+                while (filled < batchSize && (line = reader.readLine()) != null) batch[filled++] = line;
+                rows += filled;
+                validateBatch(batch, filled, firstLine, byTicker, errors);
+                firstLine += filled;
+            } while (filled == batchSize);
+        } catch (IOException e) {
+            throw new DataIntegrityException("Błąd odczytu pliku transakcji: " + e.getMessage());
+        }
+
+        long imported = 0;
+        BigDecimal realized = BigDecimal.ZERO;
+        for (Map.Entry<String, List<Trade>> entry : byTicker.entrySet()) {
+            List<Trade> trades = entry.getValue();
+            Asset asset = portfolio.getAsset(entry.getKey());
+            if (asset == null) {
+                asset = Asset.forInstrument(portfolio.getInstrumentMaster().resolve(entry.getKey(), trades.get(0).type));
+                portfolio.trackAsset(asset);
+            } else if (asset.getType() != trades.get(0).type) {
+                for (Trade t : trades) errors.add(new RowError(t.line, "Niezgodny typ aktywa " + entry.getKey()));
+                continue;
+            }
+            Replay replay = replay(asset, trades, errors);
+            portfolio.markDirty(asset.getTicker());
+            imported += replay.applied;
+            realized = realized.add(replay.realizedGain);
+        }
+        errors.sort(Comparator.comparingLong(RowError::getLine));
+        return new ImportResult(rows, imported, errors, realized);
+    }
+
+    // Parsowanie paczki równolegle (wynik w tablicy wg pozycji), grupowanie sekwencyjnie w kolejności pliku
+    private void validateBatch(String[] lines, int count, long firstLine, Map<String, List<Trade>> byTicker, List<RowError> errors) {
+        Object[] parsed = new Object[count];
+        IntStream.range(0, count).parallel().forEach(i -> parsed[i] = parse(lines[i], firstLine + i));
+        for (int i = 0; i < count; i++) {
+            if (parsed[i] instanceof RowError) {
+                errors.add((RowError) parsed[i]);
+            } else if (parsed[i] != null) {
+                Trade trade = (Trade) parsed[i];
+                byTicker.computeIfAbsent(trade.ticker, t -> new ArrayList<>()).add(trade);
+            }
+        }
+    }
+
+    private static Object parse(String line, long lineNo) {
+        if (line.isBlank()) return null;
+        String[] f = line.split(",", -1);
+        if (f.length != 6) return new RowError(lineNo, "Oczekiwano 6 pól, jest " + f.length);
+        try {
+            LocalDate date = LocalDate.parse(f[0].trim());
+            String ticker = f[1].trim();
+            if (ticker.isEmpty()) return new RowError(lineNo, "Pusty ticker");
+            AssetType type = AssetType.valueOf(f[2].trim());
+            boolean sell;
+            switch (f[3].trim()) {
+                case "BUY": sell = false; break;
+                case "SELL": sell = true; break;
+                default: return new RowError(lineNo, "Nieznana strona transakcji: " + f[3]);
+            }
+            int quantity = Integer.parseInt(f[4].trim());
+            if (quantity <= 0) return new RowError(lineNo, "Ilość musi być dodatnia");
+            BigDecimal price = new BigDecimal(f[5].trim());
+            if (price.signum() < 0) return new RowError(lineNo, "Cena nie może być ujemna");
+            return new Trade(lineNo, date, ticker, type, sell, quantity, price);
+        } catch (RuntimeException e) {
+            return new RowError(lineNo, "Błąd formatu: " + e.getMessage());
+        }
+    }
+
+    // Odtworzenie partii jednego tickera; istniejące partie aktywa stoją na początku kolejki FIFO
+    private Replay replay(Asset asset, List<Trade> trades, List<RowError> errors) {
+        trades.sort(Comparator.comparing((Trade t) -> t.date).thenComparingLong(t -> t.line));
+        int buys = 0;
+        for (Trade t : trades) if (!t.sell) buys++;
+
+        List<Lot> existing = asset.getLots();
+        ArrayDeque<Lot> fifo = new ArrayDeque<>(existing.size() + buys);
+        for (Lot lot : existing) fifo.add(new Lot(lot.getPurchaseDate(), lot.getQuantity(), lot.getPurchasePrice()));
+        long held = 0;
+        for (Lot lot : fifo) held += lot.getQuantity();
+
+        Replay result = new Replay();
+        for (Trade t : trades) {
+            if (!t.sell) {
+                fifo.add(new Lot(t.date, t.quantity, t.price));
+                held += t.quantity;
+                result.applied++;
+                continue;
+            }
+            if (held < t.quantity) {
+                errors.add(new RowError(t.line, "Sprzedaż " + t.quantity + " " + t.ticker + " przy stanie " + held));
+                continue;
+            }
+            int remaining = t.quantity;
+            while (remaining > 0) {
+                Lot head = fifo.peekFirst();
+                int used = Math.min(remaining, head.getQuantity());
+                result.realizedGain = result.realizedGain.add(t.price.subtract(head.getPurchasePrice()).multiply(BigDecimal.valueOf(used)));
+                if (used == head.getQuantity()) {
+                    fifo.pollFirst();
+                } else {
+                    head.setQuantity(head.getQuantity() - used);
+                }
+                remaining -= used;
+            }
+            held -= t.quantity;
+            result.applied++;
+        }
+
+        existing.clear();
+        asset.addLots(fifo);
+        return result;
+    }
+
+    private static final class Replay {
+        private long applied;
+        private BigDecimal realizedGain = BigDecimal.ZERO;
+    }
+
+    private static final class Trade {
+        private final long line;
+        private final LocalDate date;
+        private final String ticker;
+        private final AssetType type;
+        private final boolean sell;
+        private final int quantity;
+        private final BigDecimal price;
+
+        private Trade(long line, LocalDate date, String ticker, AssetType type, boolean sell, int quantity, BigDecimal price) {
+            this.line = line;
+            this.date = date;
+            this.ticker = ticker;
+            this.type = type;
+            this.sell = sell;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    // --- WYNIKI ---
+    public static final class RowError {
+        private final long line;
+        private final String message;
+
+        private RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "wiersz " + line + ": " + message;
+        }
+    }
+
+    public static final class ImportResult {
+        private final long rowsRead;
+        private final long tradesImported;
+        private final List<RowError> errors;
+        private final BigDecimal realizedGain;
+
+        private ImportResult(long rowsRead, long tradesImported, List<RowError> errors, BigDecimal realizedGain) {
+            this.rowsRead = rowsRead;
+            this.tradesImported = tradesImported;
+            this.errors = Collections.unmodifiableList(errors);
+            this.realizedGain = realizedGain;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getTradesImported() { return tradesImported; }
+        public List<RowError> getErrors() { return errors; }
+
+        // Zysk zrealizowany przez historyczne sprzedaże (FIFO)
+        public BigDecimal getRealizedGain() { return realizedGain; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.stockmarket.logic;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+// Data sesji z pamięci podręcznej: LocalDate liczona raz na dobę,
+// w pozostałych wywołaniach tylko odczyt milisekund zegara i porównanie.
+public class TradingClock {
+    public static final TradingClock SYSTEM = new TradingClock(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile Day current;
+
+    public TradingClock(Clock clock) {
+        this.clock = clock;
+        this.current = dayAt(clock);
+    }
+
+    public LocalDate today() {
+        Day day = current;
+        long now = clock.millis();
+        if (now < day.startMillis || now >= day.endMillis) {
+            day = dayAt(clock);
+            current = day;
+        }
+        return day.date;
+    }
+
+    private static Day dayAt(Clock clock) {
+        LocalDate date = LocalDate.now(clock);
+        long start = date.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        long end = date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Day(date, start, end);
+    }
+
+    private static final class Day {
+        private final LocalDate date;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Day(LocalDate date, long startMillis, long endMillis) {
+            this.date = date;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.stockmarket.soak;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+// Próbkowanie JVM przez beany zarządzania: sterta, GC (liczba i czas od ostatniej próbki)
+// oraz bajty zaalokowane przez wątek obciążenia (jeśli JVM to wspiera, inaczej -1).
+public class JvmSampler {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final long threadId;
+
+    private long lastGcCount;
+    private long lastGcMillis;
+    private long lastAllocated;
+
+    public JvmSampler(long threadId) {
+        this.threadId = threadId;
+        this.lastGcCount = gcCount();
+        this.lastGcMillis = gcMillis();
+        this.lastAllocated = allocatedBytes();
+    }
+
+    public Sample sample() {
+        long count = gcCount();
+        long millis = gcMillis();
+        long allocated = allocatedBytes();
+        Sample sample = new Sample(memory.getHeapMemoryUsage().getUsed(), count - lastGcCount, millis - lastGcMillis,
+                allocated < 0 ? -1 : allocated - lastAllocated);
+        lastGcCount = count;
+        lastGcMillis = millis;
+        lastAllocated = allocated;
+        return sample;
+    }
+
+    private long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    private long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean ext = (com.sun.management.ThreadMXBean) threads;
+            if (ext.isThreadAllocatedMemorySupported() && ext.isThreadAllocatedMemoryEnabled()) {
+                return ext.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+
+    public static final class Sample {
+        private final long heapUsed;
+        private final long gcCount;
+        private final long gcMillis;
+        private final long allocatedBytes;
+
+        private Sample(long heapUsed, long gcCount, long gcMillis, long allocatedBytes) {
+            this.heapUsed = heapUsed;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public long getHeapUsed() { return heapUsed; }
+        public long getGcCount() { return gcCount; }
+        public long getGcMillis() { return gcMillis; }
+        public long getAllocatedBytes() { return allocatedBytes; }
+    }
+}
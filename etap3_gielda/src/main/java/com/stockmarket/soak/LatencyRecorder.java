@@ -0,0 +1,38 @@
+package com.stockmarket.soak;
+
+import java.util.Arrays;
+
+// Czasy operacji w bieżącym interwale (ns); percentyle liczone przy zamknięciu interwału.
+public class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+
+    public void record(long nanos) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = nanos;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Zwraca percentyle [p50, p90, p99, p99.9, max] i zeruje interwał
+    public long[] drainPercentiles() {
+        long[] result = new long[5];
+        if (count > 0) {
+            Arrays.sort(samples, 0, count);
+            result[0] = percentile(0.50);
+            result[1] = percentile(0.90);
+            result[2] = percentile(0.99);
+            result[3] = percentile(0.999);
+            result[4] = samples[count - 1];
+        }
+        count = 0;
+        return result;
+    }
+
+    private long percentile(double p) {
+        int idx = (int) Math.ceil(p * count) - 1;
+        return samples[Math.max(0, Math.min(idx, count - 1))];
+    }
+}
@@ -0,0 +1,275 @@
+package com.stockmarket.soak;
+
+import com.stockmarket.domain.Lot;
+import com.stockmarket.domain.LotStorage;
+import com.stockmarket.domain.OffHeapLotStore;
+import com.stockmarket.domain.Share;
+import com.stockmarket.logic.DataIntegrityException;
+import com.stockmarket.logic.InstrumentMaster;
+import com.stockmarket.logic.Order;
+import com.stockmarket.logic.Portfolio;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Test wytrzymałościowy: wykonuje strumień z WorkloadGenerator na portfelach etapu 3
+// przez zadany czas i co interwał raportuje przepustowość, percentyle opóźnień oraz stan JVM.
+//
+// Uruchomienie: java com.stockmarket.soak.SoakHarness seed=7 accounts=32 duration=600 heavyLots=2000000 lots=offheap
+public class SoakHarness {
+    private static final BigDecimal INITIAL_CASH = new BigDecimal("1000000000000");
+
+    private final WorkloadConfig config;
+    private final Path workDir;
+    private LotStorage lotStorage;
+    private long restingOrdersVerified;
+
+    public SoakHarness(WorkloadConfig config, Path workDir) {
+        this.config = config;
+        this.workDir = workDir;
+    }
+
+    public SoakReport run() {
+        WorkloadGenerator generator = new WorkloadGenerator(config);
+        InstrumentMaster master = new InstrumentMaster();
+        lotStorage = LotStorage.fromConfig(config.getLotStorage());
+        try {
+            return runWorkload(generator, master);
+        } finally {
+            if (lotStorage instanceof OffHeapLotStore) ((OffHeapLotStore) lotStorage).close();
+        }
+    }
+
+    private SoakReport runWorkload(WorkloadGenerator generator, InstrumentMaster master) {
+        Portfolio[] accounts = new Portfolio[config.getAccounts()];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = newAccount(generator, master);
+        }
+        for (int i = 0; i < Math.min(config.getHeavyAccounts(), accounts.length); i++) {
+            seedLots(accounts[i], generator);
+        }
+
+        Map<WorkloadGenerator.Kind, LatencyRecorder> latencies = new EnumMap<>(WorkloadGenerator.Kind.class);
+        for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) latencies.put(kind, new LatencyRecorder());
+        JvmSampler jvm = new JvmSampler(Thread.currentThread().getId());
+
+        List<IntervalStats> intervals = new ArrayList<>();
+        long intervalNanos = config.getReportInterval().toNanos();
+        long start = System.nanoTime();
+        long deadline = start + config.getDuration().toNanos();
+        long intervalStart = start;
+        long operations = 0;
+        long rejected = 0;
+
+        while (operations < config.getMaxOperations()) {
+            long now = System.nanoTime();
+            if (now - deadline >= 0) break;
+            if (now - intervalStart >= intervalNanos) {
+                intervals.add(closeInterval(now - start, now - intervalStart, latencies, jvm));
+                intervalStart = now;
+            }
+
+            WorkloadGenerator.Operation op = generator.next();
+            long t0 = System.nanoTime();
+            if (!execute(op, accounts, generator, master)) rejected++;
+            latencies.get(op.getKind()).record(System.nanoTime() - t0);
+            operations++;
+        }
+        long end = System.nanoTime();
+        intervals.add(closeInterval(end - start, end - intervalStart, latencies, jvm));
+        return new SoakReport(intervals, operations, rejected, restingOrdersVerified);
+    }
+
+    // false - operacja odrzucona przez portfel (brak środków lub pozycji)
+    private boolean execute(WorkloadGenerator.Operation op, Portfolio[] accounts, WorkloadGenerator generator, InstrumentMaster master) {
+        Portfolio portfolio = accounts[op.getAccount()];
+        try {
+            switch (op.getKind()) {
+                case BUY:
+                    portfolio.buy(op.getTicker(), op.getQuantity(), op.getPrice());
+                    return true;
+                case SELL:
+                    portfolio.sell(op.getTicker(), op.getQuantity(), op.getPrice());
+                    return true;
+                case ADD_ORDER:
+                    Order.Type type = op.getQuantity() % 2 == 0 ? Order.Type.BUY : Order.Type.SELL;
+                    portfolio.addOrder(new Order(op.getTicker(), type, op.getPrice(), op.getQuantity()));
+                    return true;
+                default:
+                    // Cykl zapis/odczyt - konto zastępowane wczytaną kopią razem z kolejką zleceń
+                    String file = workDir.resolve("konto-" + op.getAccount() + ".txt").toString();
+                    portfolio.saveToFile(file);
+                    Portfolio reloaded = newAccount(generator, master);
+                    reloaded.loadFromFile(file);
+                    verifyRestingOrders(portfolio, reloaded);
+                    portfolio.releaseLots();
+                    accounts[op.getAccount()] = reloaded;
+                    return true;
+            }
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private Portfolio newAccount(WorkloadGenerator generator, InstrumentMaster master) {
+        Portfolio portfolio = new Portfolio(INITIAL_CASH, master, lotStorage);
+        for (int rank = 0; rank < config.getTickers(); rank++) {
+            portfolio.trackAsset(new Share(WorkloadGenerator.tickerName(rank), generator.initialPrice(rank)));
+        }
+        return portfolio;
+    }
+
+    // Zlecenia oczekujące muszą przetrwać zapis/odczyt bez zmian (id, kolejność napływu, limit, ilość)
+    private void verifyRestingOrders(Portfolio saved, Portfolio reloaded) {
+        List<String> before = describeOrders(saved);
+        List<String> after = describeOrders(reloaded);
+        if (!before.equals(after)) {
+            throw new DataIntegrityException("Zlecenia po odczycie różnią się od zapisanych: " + before.size() + " vs " + after.size());
+        }
+        restingOrdersVerified += before.size();
+    }
+
+    private static List<String> describeOrders(Portfolio portfolio) {
+        List<Order> orders = portfolio.getPendingOrders();
+        orders.sort(Comparator.comparingLong(Order::getId));
+        List<String> described = new ArrayList<>(orders.size());
+        for (Order o : orders) {
+            described.add(o.getId() + "|" + o.getSequence() + "|" + o.getTicker() + "|" + o.getType()
+                    + "|" + o.getPriceLimit() + "|" + o.getQuantity());
+        }
+        return described;
+    }
+
+    // Partie dokładane bezpośrednio (bez buy) - szybkie przygotowanie milionów partii
+    private void seedLots(Portfolio portfolio, WorkloadGenerator generator) {
+        LocalDate date = LocalDate.now().minusYears(1);
+        int tickers = config.getTickers();
+        for (int i = 0; i < config.getLotsPerHeavyAccount(); i++) {
+            int rank = i % tickers;
+            portfolio.getAsset(WorkloadGenerator.tickerName(rank)).addLot(new Lot(date, 10, generator.initialPrice(rank)));
+        }
+        for (int rank = 0; rank < tickers; rank++) {
+            portfolio.markDirty(WorkloadGenerator.tickerName(rank));
+        }
+    }
+
+    private static IntervalStats closeInterval(long elapsedNanos, long intervalNanos,
+                                               Map<WorkloadGenerator.Kind, LatencyRecorder> latencies, JvmSampler jvm) {
+        Map<WorkloadGenerator.Kind, long[]> percentiles = new EnumMap<>(WorkloadGenerator.Kind.class);
+        long ops = 0;
+        for (Map.Entry<WorkloadGenerator.Kind, LatencyRecorder> entry : latencies.entrySet()) {
+            ops += entry.getValue().getCount();
+            percentiles.put(entry.getKey(), entry.getValue().drainPercentiles());
+        }
+        return new IntervalStats(Duration.ofNanos(elapsedNanos), ops, ops * 1e9 / Math.max(1, intervalNanos), percentiles, jvm.sample());
+    }
+
+    // --- WYNIKI ---
+    public static final class IntervalStats {
+        private final Duration elapsed;
+        private final long operations;
+        private final double throughput;
+        private final Map<WorkloadGenerator.Kind, long[]> percentiles;
+        private final JvmSampler.Sample jvm;
+
+        private IntervalStats(Duration elapsed, long operations, double throughput,
+                              Map<WorkloadGenerator.Kind, long[]> percentiles, JvmSampler.Sample jvm) {
+            this.elapsed = elapsed;
+            this.operations = operations;
+            this.throughput = throughput;
+            this.percentiles = percentiles;
+            this.jvm = jvm;
+        }
+
+        public Duration getElapsed() { return elapsed; }
+        public long getOperations() { return operations; }
+        public double getThroughput() { return throughput; }
+        public JvmSampler.Sample getJvm() { return jvm; }
+
+        // [p50, p90, p99, p99.9, max] w nanosekundach
+        public long[] getPercentiles(WorkloadGenerator.Kind kind) {
+            return percentiles.get(kind).clone();
+        }
+    }
+
+    public static final class SoakReport {
+        private final List<IntervalStats> intervals;
+        private final long operations;
+        private final long rejected;
+        private final long restingOrdersVerified;
+
+        private SoakReport(List<IntervalStats> intervals, long operations, long rejected, long restingOrdersVerified) {
+            this.intervals = Collections.unmodifiableList(intervals);
+            this.operations = operations;
+            this.rejected = rejected;
+            this.restingOrdersVerified = restingOrdersVerified;
+        }
+
+        public List<IntervalStats> getIntervals() { return intervals; }
+        public long getOperations() { return operations; }
+        public long getRejected() { return rejected; }
+
+        // Suma zleceń porównanych po cyklach zapis/odczyt
+        public long getRestingOrdersVerified() { return restingOrdersVerified; }
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("czas[s]  ops/s  heap[MB]  gc[n/ms]  alok[MB]  p50/p99/max[us] BUY | SELL | ADD_ORDER | SAVE_LOAD\n");
+            for (IntervalStats s : intervals) {
+                sb.append(String.format("%7.1f %8.0f %8d %5d/%-5d %8s ",
+                        s.elapsed.toMillis() / 1000.0, s.throughput, s.jvm.getHeapUsed() >> 20,
+                        s.jvm.getGcCount(), s.jvm.getGcMillis(),
+                        s.jvm.getAllocatedBytes() < 0 ? "-" : String.valueOf(s.jvm.getAllocatedBytes() >> 20)));
+                for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) {
+                    long[] p = s.percentiles.get(kind);
+                    sb.append(String.format(" %d/%d/%d", p[0] / 1000, p[2] / 1000, p[4] / 1000));
+                }
+                sb.append('\n');
+            }
+            sb.append("operacje: ").append(operations).append(", odrzucone: ").append(rejected)
+                    .append(", zlecenia sprawdzone po odczycie: ").append(restingOrdersVerified).append('\n');
+            return sb.toString();
+        }
+    }
+
+    // --- URUCHOMIENIE Z LINII POLECEŃ ---
+    public static void main(String[] args) throws IOException {
+        WorkloadConfig config = new WorkloadConfig();
+        Path dir = null;
+        int tickers = config.getTickers();
+        double zipf = config.getZipfExponent();
+        int heavy = config.getHeavyAccounts();
+        int heavyLots = config.getLotsPerHeavyAccount();
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) throw new IllegalArgumentException("Oczekiwano klucz=wartość: " + arg);
+            switch (kv[0]) {
+                case "seed": config.seed(Long.parseLong(kv[1])); break;
+                case "accounts": config.accounts(Integer.parseInt(kv[1])); break;
+                case "tickers": tickers = Integer.parseInt(kv[1]); break;
+                case "zipf": zipf = Double.parseDouble(kv[1]); break;
+                case "duration": config.duration(Duration.ofSeconds(Long.parseLong(kv[1]))); break;
+                case "interval": config.reportInterval(Duration.ofSeconds(Long.parseLong(kv[1]))); break;
+                case "saveEvery": config.saveLoadEvery(Integer.parseInt(kv[1])); break;
+                case "heavy": heavy = Integer.parseInt(kv[1]); break;
+                case "heavyLots": heavyLots = Integer.parseInt(kv[1]); break;
+                case "lots": config.lotStorage(kv[1]); break;
+                case "dir": dir = Path.of(kv[1]); break;
+                default: throw new IllegalArgumentException("Nieznany parametr: " + kv[0]);
+            }
+        }
+        config.tickers(tickers, zipf).heavyAccounts(heavy, heavyLots);
+        if (dir == null) dir = Files.createTempDirectory("soak");
+        System.out.print(new SoakHarness(config, dir).run().format());
+    }
+}
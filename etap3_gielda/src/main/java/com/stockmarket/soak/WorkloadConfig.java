@@ -0,0 +1,112 @@
+package com.stockmarket.soak;
+
+import com.stockmarket.domain.LotStorage;
+
+import java.time.Duration;
+
+// Parametry obciążenia syntetycznego. Ta sama konfiguracja i ziarno dają ten sam strumień operacji.
+public class WorkloadConfig {
+    private long seed = 42L;
+    private int accounts = 16;
+    private int tickers = 200;
+    private double zipfExponent = 1.1;
+    private Duration duration = Duration.ofMinutes(5);
+    private long maxOperations = Long.MAX_VALUE;
+    private Duration reportInterval = Duration.ofSeconds(10);
+
+    // Udział operacji w procentach (reszta to addOrder)
+    private int buyPercent = 45;
+    private int sellPercent = 35;
+
+    // Cykl saveToFile/loadFromFile co tyle operacji (0 = wyłączony)
+    private int saveLoadEvery = 50_000;
+
+    // Konta "ciężkie" zasilone na starcie dużą liczbą partii
+    private int heavyAccounts = 1;
+    private int lotsPerHeavyAccount = 1_000_000;
+
+    // Magazyn partii: "heap" albo "offheap" (LotStorage.fromConfig)
+    private String lotStorage = "heap";
+
+    public long getSeed() { return seed; }
+    public int getAccounts() { return accounts; }
+    public int getTickers() { return tickers; }
+    public double getZipfExponent() { return zipfExponent; }
+    public Duration getDuration() { return duration; }
+    public long getMaxOperations() { return maxOperations; }
+    public Duration getReportInterval() { return reportInterval; }
+    public int getBuyPercent() { return buyPercent; }
+    public int getSellPercent() { return sellPercent; }
+    public int getSaveLoadEvery() { return saveLoadEvery; }
+    public int getHeavyAccounts() { return heavyAccounts; }
+    public int getLotsPerHeavyAccount() { return lotsPerHeavyAccount; }
+    public String getLotStorage() { return lotStorage; }
+
+    public WorkloadConfig seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public WorkloadConfig accounts(int accounts) {
+        if (accounts <= 0) throw new IllegalArgumentException("Liczba kont musi być dodatnia");
+        this.accounts = accounts;
+        return this;
+    }
+
+    public WorkloadConfig tickers(int tickers, double zipfExponent) {
+        if (tickers <= 0) throw new IllegalArgumentException("Liczba tickerów musi być dodatnia");
+        if (zipfExponent <= 0) throw new IllegalArgumentException("Wykładnik Zipfa musi być dodatni");
+        this.tickers = tickers;
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    public WorkloadConfig duration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public WorkloadConfig maxOperations(long maxOperations) {
+        if (maxOperations <= 0) throw new IllegalArgumentException("Limit operacji musi być dodatni");
+        this.maxOperations = maxOperations;
+        return this;
+    }
+
+    public WorkloadConfig reportInterval(Duration reportInterval) {
+        if (reportInterval.isZero() || reportInterval.isNegative()) {
+            throw new IllegalArgumentException("Interwał raportu musi być dodatni");
+        }
+        this.reportInterval = reportInterval;
+        return this;
+    }
+
+    public WorkloadConfig mix(int buyPercent, int sellPercent) {
+        if (buyPercent < 0 || sellPercent < 0 || buyPercent + sellPercent > 100) {
+            throw new IllegalArgumentException("Nieprawidłowe proporcje operacji");
+        }
+        this.buyPercent = buyPercent;
+        this.sellPercent = sellPercent;
+        return this;
+    }
+
+    public WorkloadConfig saveLoadEvery(int operations) {
+        if (operations < 0) throw new IllegalArgumentException("Okres zapisu nie może być ujemny");
+        this.saveLoadEvery = operations;
+        return this;
+    }
+
+    public WorkloadConfig heavyAccounts(int heavyAccounts, int lotsPerAccount) {
+        if (heavyAccounts < 0 || lotsPerAccount < 0) {
+            throw new IllegalArgumentException("Parametry kont ciężkich nie mogą być ujemne");
+        }
+        this.heavyAccounts = heavyAccounts;
+        this.lotsPerHeavyAccount = lotsPerAccount;
+        return this;
+    }
+
+    public WorkloadConfig lotStorage(String lotStorage) {
+        LotStorage.fromConfig(lotStorage); // walidacja nazwy
+        this.lotStorage = lotStorage;
+        return this;
+    }
+}
@@ -0,0 +1,87 @@
+package com.stockmarket.soak;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+// Deterministyczny strumień operacji na kontach: buy/sell/addOrder wg proporcji z konfiguracji,
+// tickery z rozkładu Zipfa, ceny jako błądzenie losowe w groszach.
+public class WorkloadGenerator {
+    public enum Kind { BUY, SELL, ADD_ORDER, SAVE_LOAD }
+
+    private final WorkloadConfig config;
+    private final SplittableRandom random;
+    private final ZipfSampler tickerSampler;
+    private final long[] priceCents;
+    private long sequence;
+
+    public WorkloadGenerator(WorkloadConfig config) {
+        this.config = config;
+        this.random = new SplittableRandom(config.getSeed());
+        this.tickerSampler = new ZipfSampler(config.getTickers(), config.getZipfExponent());
+        this.priceCents = new long[config.getTickers()];
+        for (int i = 0; i < priceCents.length; i++) {
+            priceCents[i] = 1_000 + random.nextInt(50_000);
+        }
+    }
+
+    public static String tickerName(int rank) {
+        return "T" + rank;
+    }
+
+    public BigDecimal initialPrice(int rank) {
+        return BigDecimal.valueOf(priceCents[rank], 2);
+    }
+
+    public Operation next() {
+        sequence++;
+        int account = random.nextInt(config.getAccounts());
+        if (config.getSaveLoadEvery() > 0 && sequence % config.getSaveLoadEvery() == 0) {
+            return new Operation(Kind.SAVE_LOAD, account, null, 0, null);
+        }
+
+        int rank = tickerSampler.sample(random);
+        // Krok ceny do +-0.5%, nie mniej niż 1 grosz
+        long step = Math.max(1, priceCents[rank] / 200);
+        priceCents[rank] = Math.max(1, priceCents[rank] + random.nextLong(-step, step + 1));
+        BigDecimal price = BigDecimal.valueOf(priceCents[rank], 2);
+        int quantity = 1 + random.nextInt(100);
+
+        int roll = random.nextInt(100);
+        Kind kind;
+        if (roll < config.getBuyPercent()) {
+            kind = Kind.BUY;
+        } else if (roll < config.getBuyPercent() + config.getSellPercent()) {
+            kind = Kind.SELL;
+        } else {
+            kind = Kind.ADD_ORDER;
+        }
+        return new Operation(kind, account, tickerName(rank), quantity, price);
+    }
+
+    public static final class Operation {
+        private final Kind kind;
+        private final int account;
+        private final String ticker;
+        private final int quantity;
+        private final BigDecimal price;
+
+        private Operation(Kind kind, int account, String ticker, int quantity, BigDecimal price) {
+            this.kind = kind;
+            this.account = account;
+            this.ticker = ticker;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public Kind getKind() { return kind; }
+        public int getAccount() { return account; }
+        public String getTicker() { return ticker; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getPrice() { return price; }
+
+        @Override
+        public String toString() {
+            return kind + "|" + account + "|" + ticker + "|" + quantity + "|" + price;
+        }
+    }
+}
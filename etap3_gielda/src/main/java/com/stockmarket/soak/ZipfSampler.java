@@ -0,0 +1,27 @@
+package com.stockmarket.soak;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Losowanie rangi 0..n-1 z rozkładu Zipfa: P(k) ~ 1 / (k+1)^s.
+// Dystrybuanta liczona raz, losowanie przez wyszukiwanie binarne - O(log n).
+public class ZipfSampler {
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) throw new IllegalArgumentException("Liczba elementów musi być dodatnia");
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) cdf[k] /= sum;
+    }
+
+    public int sample(SplittableRandom random) {
+        int idx = Arrays.binarySearch(cdf, random.nextDouble());
+        int rank = idx >= 0 ? idx : -idx - 1;
+        return Math.min(rank, cdf.length - 1);
+    }
+}
@@ -0,0 +1,150 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+class AllocationBudgetTest {
+    // Budżety w bajtach na operację (z zapasem na nieskompilowany jeszcze kod)
+    private static final long BUY_BUDGET = 256;
+    private static final long SELL_BUDGET = 384;
+    private static final long ORDER_BUDGET = 64;
+
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 20_000;
+
+    @Test
+    void lowGarbageMode_ShouldStayWithinBuyAndSellBudget() {
+        assumeThat(allocationSupported()).isTrue();
+        Portfolio p = lowGarbagePortfolio();
+        BigDecimal price = new BigDecimal("10");
+        SellResult result = new SellResult();
+
+        for (int i = 0; i < WARMUP; i++) {
+            p.buy("CDR", 2, price);
+            p.sell("CDR", 2, price, result);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) p.buy("CDR", 2, price);
+        long afterBuys = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) p.sell("CDR", 2, price, result);
+        long afterSells = allocatedBytes();
+
+        assertThat((afterBuys - before) / MEASURED).isLessThanOrEqualTo(BUY_BUDGET);
+        assertThat((afterSells - afterBuys) / MEASURED).isLessThanOrEqualTo(SELL_BUDGET);
+    }
+
+    @Test
+    void orderPool_ShouldStayWithinBudget() {
+        assumeThat(allocationSupported()).isTrue();
+        Portfolio p = lowGarbagePortfolio();
+        OrderPool pool = new OrderPool(16);
+        BigDecimal limit = new BigDecimal("10");
+
+        for (int i = 0; i < WARMUP; i++) cycleOrder(p, pool, limit);
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) cycleOrder(p, pool, limit);
+        long perOrder = (allocatedBytes() - before) / MEASURED;
+
+        assertThat(perOrder).isLessThanOrEqualTo(ORDER_BUDGET);
+        assertThat(pool.getCreated()).isEqualTo(1);
+    }
+
+    @Test
+    void lowGarbageMode_ShouldKeepFifoResultsAndRecycleLots() {
+        LotPool lots = new LotPool(64);
+        Portfolio p = lowGarbagePortfolio(lots);
+        p.buy("CDR", 10, new BigDecimal("100"));
+        p.buy("CDR", 10, new BigDecimal("120"));
+
+        SellResult result = new SellResult();
+        p.sell("CDR", 15, new BigDecimal("130"), result);
+
+        assertThat(result.getProfit()).isEqualByComparingTo("350"); // 10*30 + 5*10
+        assertThat(result.getRevenue()).isEqualByComparingTo("1950");
+        assertThat(result.getLotsConsumed()).isEqualTo(2);
+        assertThat(lots.getAvailable()).isEqualTo(1);
+
+        p.buy("CDR", 1, new BigDecimal("90"));
+        assertThat(lots.getAvailable()).isZero();
+        assertThat(lots.getCreated()).isEqualTo(2);
+        assertThat(p.getAssetsByType(AssetType.SHARE)).extracting(Asset::getTicker).containsExactly("CDR");
+    }
+
+    @Test
+    void snapshot_ShouldBePublishedOnDemandInLowGarbageMode() {
+        Portfolio p = lowGarbagePortfolio();
+        p.buy("CDR", 5, new BigDecimal("10"));
+        assertThat(p.snapshot().getAsset("CDR").getTotalQuantity()).isZero();
+
+        p.publishSnapshot();
+        assertThat(p.snapshot().getAsset("CDR").getTotalQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void tradingClock_ShouldRollOverAtMidnight() {
+        ZoneId zone = ZoneOffset.UTC;
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-01T23:59:59Z"), zone);
+        TradingClock trading = new TradingClock(clock);
+        assertThat(trading.today()).isEqualTo(LocalDate.of(2024, 3, 1));
+
+        clock.now = Instant.parse("2024-03-02T00:00:00Z");
+        assertThat(trading.today()).isEqualTo(LocalDate.of(2024, 3, 2));
+
+        Portfolio p = lowGarbagePortfolio();
+        p.setTradingClock(trading);
+        p.buy("CDR", 1, BigDecimal.ONE);
+        assertThat(p.getAsset("CDR").getLots().get(0).getPurchaseDate()).isEqualTo(LocalDate.of(2024, 3, 2));
+    }
+
+    private static void cycleOrder(Portfolio p, OrderPool pool, BigDecimal limit) {
+        p.addOrder(pool.acquire("CDR", Order.Type.BUY, limit, 1));
+        pool.release(p.pollNextOrder());
+    }
+
+    private static Portfolio lowGarbagePortfolio() {
+        return lowGarbagePortfolio(new LotPool(1024));
+    }
+
+    private static Portfolio lowGarbagePortfolio(LotPool pool) {
+        Portfolio p = new Portfolio(new BigDecimal("1000000000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("10")));
+        p.setLowGarbageMode(pool);
+        return p;
+    }
+
+    private static boolean allocationSupported() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).isThreadAllocatedMemorySupported();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        private final ZoneId zone;
+
+        private MutableClock(Instant now, ZoneId zone) {
+            this.now = now;
+            this.zone = zone;
+        }
+
+        @Override public ZoneId getZone() { return zone; }
+        @Override public Clock withZone(ZoneId zone) { return new MutableClock(now, zone); }
+        @Override public Instant instant() { return now; }
+    }
+}
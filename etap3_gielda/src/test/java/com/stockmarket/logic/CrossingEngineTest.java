@@ -0,0 +1,148 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrossingEngineTest {
+
+    @Test
+    void cross_ShouldMatchOpposingOrdersAtReferencePrice() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio buyer = account(master, "10000", 0);
+        Portfolio seller = account(master, "0", 20);
+        buyer.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("105"), 10));
+        seller.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("95"), 15));
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(Map.of("A", buyer, "B", seller));
+
+        assertThat(result.getFills()).hasSize(1);
+        CrossingEngine.Fill fill = result.getFills().get(0);
+        assertThat(fill.getQuantity()).isEqualTo(10);
+        assertThat(fill.getPrice()).isEqualByComparingTo("100"); // cena rynkowa mieści się w [95, 105]
+        assertThat(buyer.getAsset("CDR").getTotalQuantity()).isEqualTo(10);
+        assertThat(buyer.getCash()).isEqualByComparingTo("9000");
+        assertThat(seller.getCash()).isEqualByComparingTo("1000");
+        assertThat(result.getNetResidual("CDR")).isEqualTo(-5);
+        assertThat(seller.peekNextOrder().getQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void cross_ShouldClampPriceToLimitsAndLeaveNonCrossingOrders() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio buyer = account(master, "10000", 0);
+        Portfolio seller = account(master, "0", 20);
+        buyer.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("98"), 5));
+        buyer.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("90"), 5));
+        seller.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("97"), 5));
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(Map.of("A", buyer, "B", seller));
+
+        assertThat(result.getFills()).extracting(CrossingEngine.Fill::getPrice).containsExactly(new BigDecimal("98"));
+        assertThat(result.getResidual()).hasSize(1);
+        assertThat(result.getResidual().get(0).getOrder().getPriceLimit()).isEqualByComparingTo("90");
+        assertThat(result.getNetResidual("CDR")).isEqualTo(5);
+    }
+
+    @Test
+    void cross_ShouldRespectHoldingsAndCash() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio poorBuyer = account(master, "300", 0);
+        Portfolio seller = account(master, "0", 4);
+        poorBuyer.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("100"), 10));
+        seller.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("100"), 10));
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(Map.of("A", poorBuyer, "B", seller));
+
+        assertThat(result.getCrossedQuantity("CDR")).isEqualTo(3);
+        assertThat(seller.getAsset("CDR").getTotalQuantity()).isEqualTo(1);
+        assertThat(poorBuyer.getCash()).isEqualByComparingTo("0");
+        assertThat(result.getNetResidual("CDR")).isEqualTo(0); // 7 kupna i 7 sprzedaży bez pokrycia
+    }
+
+    @Test
+    void cross_ShouldNetThousandsOfAccountsInOnePass() {
+        InstrumentMaster master = new InstrumentMaster();
+        Map<String, Portfolio> accounts = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            boolean buying = i % 2 == 0;
+            Portfolio p = account(master, buying ? "100000" : "0", buying ? 0 : 10);
+            p.addOrder(new Order("CDR", buying ? Order.Type.BUY : Order.Type.SELL,
+                    new BigDecimal(buying ? "101" : "99"), buying ? 12 : 10));
+            accounts.put(String.format("K%04d", i), p);
+        }
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(accounts);
+
+        // 1000 x 12 kupna vs 1000 x 10 sprzedaży -> 10000 skojarzone, 2000 netto do rynku
+        assertThat(result.getCrossedQuantity("CDR")).isEqualTo(10_000);
+        assertThat(result.getNetResidual("CDR")).isEqualTo(2_000);
+    }
+
+    @Test
+    void cross_ShouldSkipOnlyOwnPair_WhenOwnOrderIsBestOpposite() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio a = account(master, "10000", 10);
+        Portfolio b = account(master, "0", 10);
+        a.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("110"), 3));
+        a.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("90"), 3));
+        b.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("100"), 3));
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(Map.of("A", a, "B", b));
+
+        assertThat(result.getFills()).hasSize(1);
+        assertThat(result.getFills().get(0).getSellerAccount()).isEqualTo("B");
+        assertThat(result.getFills().get(0).getQuantity()).isEqualTo(3);
+        assertThat(result.getResidual()).hasSize(1);
+        assertThat(result.getResidual().get(0).getOrder().getPriceLimit()).isEqualByComparingTo("90");
+    }
+
+    @Test
+    void cross_ShouldKeepMatching_WhenBuyerDoesNotTrackAsset() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio outsider = new Portfolio(new BigDecimal("10000"), master);
+        Portfolio buyer = account(master, "10000", 0);
+        Portfolio seller = account(master, "0", 10);
+        outsider.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("120"), 5));
+        buyer.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("105"), 5));
+        seller.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("95"), 5));
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(Map.of("A", outsider, "B", buyer, "C", seller));
+
+        assertThat(result.getFills()).extracting(CrossingEngine.Fill::getBuyerAccount).containsExactly("B");
+        assertThat(result.getNetResidual("CDR")).isEqualTo(5);
+    }
+
+    @Test
+    void cross_ShouldFillEqualLimitsInArrivalOrder_WithinAccount() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio buyer = account(master, "100000", 0);
+        Portfolio seller = account(master, "0", 5);
+        Order cancelled = new Order("CDR", Order.Type.BUY, new BigDecimal("100"), 7);
+        buyer.addOrder(cancelled);
+        int[] quantities = {3, 9, 1, 4, 8, 2, 6};
+        for (int q : quantities) buyer.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("100"), q));
+        // Usunięcie korzenia przestawia kopiec - iteracja kolejki nie idzie już wg napływu
+        buyer.cancelOrder(cancelled);
+        seller.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("100"), 5));
+
+        CrossingEngine.CrossingResult result = new CrossingEngine().cross(Map.of("A", buyer, "B", seller));
+
+        // Przy równym limicie: najpierw 3 szt., potem 9 szt. (częściowo) - wg napływu
+        assertThat(result.getFills()).extracting(CrossingEngine.Fill::getQuantity).containsExactly(3, 2);
+        assertThat(buyer.peekNextOrder().getQuantity()).isEqualTo(7);
+    }
+
+    private static Portfolio account(InstrumentMaster master, String cash, int shares) {
+        Portfolio p = new Portfolio(new BigDecimal(cash).add(new BigDecimal(shares * 100)), master);
+        p.trackAsset(Asset.forInstrument(master.resolve("CDR", AssetType.SHARE)));
+        master.updatePrice("CDR", new BigDecimal("100"));
+        if (shares > 0) p.buy("CDR", shares, new BigDecimal("100"));
+        return p;
+    }
+}
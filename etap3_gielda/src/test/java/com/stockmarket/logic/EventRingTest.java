@@ -0,0 +1,82 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventRingTest {
+
+    private Portfolio setupPortfolio(EventRing ring) {
+        Portfolio p = new Portfolio(new BigDecimal("20000"));
+        Share xyz = new Share("XYZ", new BigDecimal("100"));
+        p.trackAsset(xyz);
+        xyz.addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("100")));
+        xyz.addLot(new Lot(LocalDate.of(2023, 2, 1), 10, new BigDecimal("120")));
+        p.attachEventRing(ring);
+        return p;
+    }
+
+    @Test
+    void events_ShouldDescribeFifoConsumption() {
+        EventRing ring = new EventRing(64);
+        Portfolio p = setupPortfolio(ring);
+        EventRing.Subscription sub = ring.subscribe(EventRing.OverflowPolicy.DISCONNECT);
+
+        p.sell("XYZ", 15, new BigDecimal("150"));
+
+        List<PortfolioEvent> events = new ArrayList<>();
+        sub.drain(events::add, 100);
+        assertThat(events).extracting(PortfolioEvent::getType).containsExactly(
+                PortfolioEvent.Type.LOT_CONSUMED, PortfolioEvent.Type.LOT_CONSUMED, PortfolioEvent.Type.CASH_CHANGED);
+        assertThat(events.get(1).getQuantity()).isEqualTo(5);
+        assertThat(events.get(1).getPrice()).isEqualByComparingTo("120");
+        assertThat(events.get(2).getPrice()).isEqualByComparingTo("22250");
+    }
+
+    @Test
+    void events_ShouldGiveEachSubscriberItsOwnCursor() {
+        EventRing ring = new EventRing(64);
+        Portfolio p = setupPortfolio(ring);
+        EventRing.Subscription fast = ring.subscribe(EventRing.OverflowPolicy.DROP_OLDEST);
+        EventRing.Subscription slow = ring.subscribe(EventRing.OverflowPolicy.DROP_OLDEST);
+
+        p.buy("XYZ", 1, new BigDecimal("100"));
+        p.addOrder(new Order("XYZ", Order.Type.BUY, new BigDecimal("99"), 3));
+        fast.drain(e -> { }, 100);
+
+        assertThat(fast.getLag()).isZero();
+        assertThat(slow.getLag()).isEqualTo(3);
+        assertThat(slow.poll().getType()).isEqualTo(PortfolioEvent.Type.LOT_ADDED);
+    }
+
+    @Test
+    void overflow_ShouldDropOldestForLaggingSubscriber() {
+        EventRing ring = new EventRing(4);
+        Portfolio p = setupPortfolio(ring);
+        EventRing.Subscription sub = ring.subscribe(EventRing.OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 5; i++) p.addOrder(new Order("XYZ", Order.Type.SELL, BigDecimal.valueOf(100 + i), 1));
+
+        assertThat(sub.poll().getPrice()).isEqualByComparingTo("101");
+        assertThat(sub.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void overflow_ShouldDisconnectLaggingSubscriber() {
+        EventRing ring = new EventRing(4);
+        Portfolio p = setupPortfolio(ring);
+        EventRing.Subscription sub = ring.subscribe(EventRing.OverflowPolicy.DISCONNECT);
+
+        for (int i = 0; i < 5; i++) p.addOrder(new Order("XYZ", Order.Type.SELL, BigDecimal.valueOf(100 + i), 1));
+
+        assertThatThrownBy(sub::poll).isInstanceOf(IllegalStateException.class);
+        assertThat(sub.isDisconnected()).isTrue();
+    }
+}
@@ -0,0 +1,95 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportPipelineTest {
+
+    @Test
+    void report_ShouldMatchGenerateReportPerAccount(@TempDir Path dir) throws IOException {
+        Map<String, Portfolio> accounts = accounts(20);
+
+        ExportPipeline.ExportResult result = new ExportPipeline(dir, ExportPipeline.Format.REPORT, 4, 0).export(accounts);
+
+        assertThat(result.getFiles()).hasSize(20);
+        assertThat(result.getAccounts()).isEqualTo(20);
+        for (Map.Entry<String, Portfolio> e : accounts.entrySet()) {
+            String exported = Files.readString(dir.resolve(e.getKey() + ".txt"), StandardCharsets.UTF_8);
+            assertThat(exported).isEqualTo(e.getValue().generateReport());
+        }
+    }
+
+    @Test
+    void csv_ShouldWriteShardedFilesWithHeader(@TempDir Path dir) throws IOException {
+        Map<String, Portfolio> accounts = accounts(50);
+
+        ExportPipeline.ExportResult result = new ExportPipeline(dir, ExportPipeline.Format.CSV, 3, 4).export(accounts);
+
+        assertThat(result.getFiles()).hasSize(4);
+        long rows = 0;
+        long bytes = 0;
+        for (Path file : result.getFiles()) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertThat(lines.get(0)).isEqualTo("account,ticker,type,quantity,price,value");
+            rows += lines.size() - 1;
+            bytes += Files.size(file);
+        }
+        assertThat(rows).isEqualTo(100); // 2 pozycje na konto
+        assertThat(result.getBytesWritten()).isEqualTo(bytes);
+    }
+
+    @Test
+    void json_ShouldWriteOneLinePerAccount(@TempDir Path dir) throws IOException {
+        Portfolio p = new Portfolio(new BigDecimal("500.5"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.trackAsset(new Share("Ż\"B", new BigDecimal("4.30")));
+        p.buy("Ż\"B", 1, new BigDecimal("4.30"));
+        p.buy("CDR", 3, new BigDecimal("100"));
+
+        new ExportPipeline(dir, ExportPipeline.Format.JSON, 1, 0).export(Map.of("K1", p));
+
+        String json = Files.readString(dir.resolve("K1.jsonl"), StandardCharsets.UTF_8);
+        assertThat(json).isEqualTo("{\"account\":\"K1\",\"cash\":196.20,\"positions\":["
+                + "{\"ticker\":\"CDR\",\"type\":\"SHARE\",\"quantity\":3,\"price\":100,\"value\":300},"
+                + "{\"ticker\":\"Ż\\\"B\",\"type\":\"SHARE\",\"quantity\":1,\"price\":4.30,\"value\":4.30}]}\n");
+    }
+
+    @Test
+    void largeAccount_ShouldSpanSeveralBufferFlushes(@TempDir Path dir) throws IOException {
+        Portfolio p = new Portfolio(new BigDecimal("1000000000"));
+        for (int i = 0; i < 5000; i++) {
+            String ticker = "TICKER" + i;
+            p.trackAsset(new Share(ticker, new BigDecimal("10")));
+            p.buy(ticker, i + 1, new BigDecimal("10"));
+        }
+
+        new ExportPipeline(dir, ExportPipeline.Format.REPORT, 2, 0).export(Map.of("DUZE", p));
+
+        assertThat(Files.readString(dir.resolve("DUZE.txt"), StandardCharsets.UTF_8)).isEqualTo(p.generateReport());
+    }
+
+    private static Map<String, Portfolio> accounts(int count) {
+        Map<String, Portfolio> accounts = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Portfolio p = new Portfolio(new BigDecimal("10000"));
+            p.trackAsset(new Share("CDR", new BigDecimal("100")));
+            p.trackAsset(new Commodity("GOLD", new BigDecimal("250.25"), new BigDecimal("1")));
+            p.buy("CDR", 1 + i, new BigDecimal("100"));
+            p.buy("GOLD", 2, new BigDecimal("250.25"));
+            accounts.put(String.format("K%03d", i), p);
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,58 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxRateCacheTest {
+
+    @Test
+    void crossRate_ShouldBeDerivedFromBasePrices() {
+        FxRateCache fx = new FxRateCache("PLN");
+        fx.onRateTick("USD", new BigDecimal("4.00"));
+        fx.onRateTick("EUR", new BigDecimal("4.40"));
+
+        assertThat(fx.rate("EUR", "USD")).isEqualByComparingTo("1.1");
+        assertThat(fx.rate("PLN", "USD")).isEqualByComparingTo("0.25");
+        assertThat(fx.rate("USD", "USD")).isEqualByComparingTo("1");
+    }
+
+    @Test
+    void crossRate_ShouldFollowSingleRateTick() {
+        FxRateCache fx = new FxRateCache("PLN");
+        fx.onRateTick("USD", new BigDecimal("4.00"));
+        fx.onRateTick("EUR", new BigDecimal("4.40"));
+
+        fx.onRateTick("USD", new BigDecimal("4.40"));
+
+        assertThat(fx.rate("EUR", "USD")).isEqualByComparingTo("1");
+        assertThat(fx.rate("USD", "PLN")).isEqualByComparingTo("4.40");
+    }
+
+    @Test
+    void valuation_ShouldConvertAllLedgersToReportingCurrency() {
+        Portfolio p = new Portfolio(new BigDecimal("1000"));
+        Currency usd = new Currency("USD", new BigDecimal("4.00"), new BigDecimal("0.10"));
+        p.trackAsset(usd);
+        p.depositCash("USD", new BigDecimal("100"));
+        p.depositCash("EUR", new BigDecimal("50"));
+
+        FxRateCache fx = new FxRateCache(p.getBaseCurrency());
+        fx.updateFrom(p);
+        fx.onRateTick("EUR", new BigDecimal("4.40"));
+
+        // 1000 PLN / 4 = 250 USD, 100 USD, 50 EUR * 1.1 = 55 USD
+        assertThat(p.calculateTotalValueIn("USD", fx)).isEqualByComparingTo("405");
+    }
+
+    @Test
+    void exception_ShouldThrow_WhenWithdrawingMoreThanLedgerBalance() {
+        Portfolio p = new Portfolio(BigDecimal.ZERO);
+        p.depositCash("USD", new BigDecimal("10"));
+        assertThatThrownBy(() -> p.withdrawCash("USD", new BigDecimal("11"))).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,120 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.Share;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GroupCommitJournalTest {
+
+    @Test
+    void journal_ShouldCompleteFutureAfterDurableWrite(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.log");
+        try (GroupCommitJournal journal = new GroupCommitJournal(file, 1024, 64)) {
+            journal.submit("REC|1").get(5, TimeUnit.SECONDS);
+
+            assertThat(Files.readAllLines(file)).containsExactly("REC|1");
+            assertThat(journal.getBatchCount()).isGreaterThanOrEqualTo(1);
+        }
+    }
+
+    @Test
+    void journal_ShouldGroupRecordsIntoBatches(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.log");
+        try (GroupCommitJournal journal = new GroupCommitJournal(file, 64, 32)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(journal.submit("REC|" + i));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+            assertThat(journal.getRecordCount()).isEqualTo(1000);
+            assertThat(journal.getMaxBatchSize()).isLessThanOrEqualTo(32);
+            assertThat(journal.getBacklog()).isZero();
+        }
+        assertThat(Files.readAllLines(file)).hasSize(1000);
+    }
+
+    @Test
+    void close_ShouldSettleEveryAcceptedRecord_WhenProducersRaceWithClose(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.log");
+        GroupCommitJournal journal = new GroupCommitJournal(file, 4, 2); // mała kolejka - producenci czekają na miejsce
+        List<CompletableFuture<Void>> accepted = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; ; i++) {
+                    try {
+                        accepted.add(journal.submit("REC|" + id + "|" + i));
+                    } catch (IllegalStateException closed) {
+                        return;
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        Thread.sleep(50);
+        journal.close();
+        for (Thread producer : producers) producer.join(5000);
+
+        assertThat(producers).noneMatch(Thread::isAlive);
+        // Każdy przyjęty rekord jest zapisany - żaden future nie zostaje bez wyniku
+        assertThat(accepted).allMatch(f -> f.isDone() && !f.isCompletedExceptionally());
+        assertThat(Files.readAllLines(file)).hasSize(accepted.size());
+        assertThat(journal.getBacklog()).isZero();
+    }
+
+    @Test
+    void writeFailure_ShouldBeLatched_AndRejectLaterTrades() throws Exception {
+        Path full = Path.of("/dev/full"); // każdy zapis kończy się błędem "brak miejsca"
+        assumeTrue(Files.isWritable(full));
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("XYZ", new BigDecimal("100")));
+        try (GroupCommitJournal journal = new GroupCommitJournal(full, 64, 8)) {
+            p.attachJournal(journal);
+            p.buy("XYZ", 1, new BigDecimal("100")); // append - błąd widoczny tylko po fakcie
+
+            for (int i = 0; i < 100 && journal.getFailure() == null; i++) Thread.sleep(10);
+            assertThat(journal.getFailure()).isNotNull();
+            assertThatThrownBy(() -> journal.submit("REC|1")).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> journal.append("REC|2")).isInstanceOf(IllegalStateException.class);
+
+            // Transakcja odrzucona przed zmianą stanu portfela
+            assertThatThrownBy(() -> p.buy("XYZ", 1, new BigDecimal("100"))).isInstanceOf(IllegalStateException.class);
+            assertThat(p.getCash()).isEqualByComparingTo("9900");
+            assertThat(p.getAsset("XYZ").getTotalQuantity()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void journal_ShouldRecordPortfolioTradesOnClose(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("journal.log");
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("XYZ", new BigDecimal("100")));
+        try (GroupCommitJournal journal = new GroupCommitJournal(file, 1024, 64)) {
+            p.attachJournal(journal);
+            p.buy("XYZ", 10, new BigDecimal("100"));
+            p.sell("XYZ", 4, new BigDecimal("110"));
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("BUY|XYZ|");
+        assertThat(lines.get(1)).isEqualTo("SELL|XYZ|4|110");
+    }
+}
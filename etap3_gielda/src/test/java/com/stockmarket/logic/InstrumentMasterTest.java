@@ -0,0 +1,74 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstrumentMasterTest {
+
+    @Test
+    void load_ShouldShareCanonicalInstrumentBetweenPortfolios(@TempDir Path tempDir) {
+        String file = tempDir.resolve("p.txt").toString();
+        Portfolio source = new Portfolio(new BigDecimal("10000"));
+        source.trackAsset(new Commodity("GOLD", new BigDecimal("1000"), new BigDecimal("50")));
+        source.buy("GOLD", 2, new BigDecimal("1000"));
+        source.saveToFile(file);
+
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio first = new Portfolio(BigDecimal.ZERO, master);
+        Portfolio second = new Portfolio(BigDecimal.ZERO, master);
+        first.loadFromFile(file);
+        second.loadFromFile(file);
+
+        assertThat(first.getAsset("GOLD")).isNotSameAs(second.getAsset("GOLD"));
+        assertThat(first.getAsset("GOLD").getInstrument()).isSameAs(second.getAsset("GOLD").getInstrument());
+        assertThat(master.size()).isEqualTo(1);
+    }
+
+    @Test
+    void load_ShouldUseLivePriceFromMaster(@TempDir Path tempDir) throws IOException {
+        Path ref = tempDir.resolve("ref.txt");
+        Files.writeString(ref, "INSTRUMENT|GOLD|COMMODITY|1200|0|10|0\n");
+        Path file = tempDir.resolve("p.txt");
+        Files.writeString(file, "HEADER|CASH|0\nASSET|COMMODITY|GOLD\nLOT|2023-01-01|2|1000\n");
+
+        InstrumentMaster master = new InstrumentMaster();
+        master.reloadFromFile(ref.toString());
+        Portfolio p = new Portfolio(BigDecimal.ZERO, master);
+        p.loadFromFile(file.toString());
+
+        assertThat(p.getAsset("GOLD").calculateRealValue(2)).isEqualByComparingTo(new BigDecimal("2380"));
+    }
+
+    @Test
+    void reload_ShouldUpdateExistingInstrumentInPlace(@TempDir Path tempDir) throws IOException {
+        InstrumentMaster master = new InstrumentMaster();
+        Instrument usd = master.resolve("USD", AssetType.CURRENCY);
+        Path ref = tempDir.resolve("ref.txt");
+        Files.writeString(ref, "INSTRUMENT|USD|CURRENCY|4.00|0|0|0.05\n");
+
+        master.reloadFromFile(ref.toString());
+
+        assertThat(master.get("USD")).isSameAs(usd);
+        assertThat(usd.getPrice()).isEqualByComparingTo("4.00");
+        assertThat(usd.getSpread()).isEqualByComparingTo("0.05");
+    }
+
+    @Test
+    void reload_ShouldRejectTypeChange(@TempDir Path tempDir) throws IOException {
+        InstrumentMaster master = new InstrumentMaster();
+        master.resolve("USD", AssetType.CURRENCY);
+        Path ref = tempDir.resolve("ref.txt");
+        Files.writeString(ref, "INSTRUMENT|USD|SHARE|4.00|5|0|0\n");
+
+        assertThatThrownBy(() -> master.reloadFromFile(ref.toString())).isInstanceOf(DataIntegrityException.class);
+    }
+}
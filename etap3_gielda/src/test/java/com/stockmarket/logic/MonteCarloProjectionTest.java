@@ -0,0 +1,68 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MonteCarloProjectionTest {
+
+    private static final double[][] IDENTITY = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+
+    private Portfolio setupPortfolio() {
+        Portfolio p = new Portfolio(new BigDecimal("1000"));
+        Share share = new Share("XYZ", new BigDecimal("100"));
+        Commodity gold = new Commodity("GOLD", new BigDecimal("50"), new BigDecimal("2"));
+        p.trackAsset(share);
+        p.trackAsset(gold);
+        share.addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("90")));
+        gold.addLot(new Lot(LocalDate.of(2023, 1, 1), 20, new BigDecimal("40")));
+        return p;
+    }
+
+    @Test
+    void projection_ShouldBeReproducibleForSameSeed() {
+        MonteCarloProjection engine = new MonteCarloProjection(IDENTITY, 0.5);
+        engine.setTypeModel(AssetType.SHARE, 0.05, 0.2);
+        engine.setTypeModel(AssetType.COMMODITY, 0.02, 0.3);
+
+        MonteCarloProjection.Projection a = engine.project(setupPortfolio(), 10_000, 20, 42L);
+        MonteCarloProjection.Projection b = engine.project(setupPortfolio(), 10_000, 20, 42L);
+
+        assertThat(a.terminalPercentile(0.05)).isEqualTo(b.terminalPercentile(0.05));
+        assertThat(a.terminalPercentile(0.5)).isEqualTo(b.terminalPercentile(0.5));
+        assertThat(a.terminalPercentile(0.95)).isEqualTo(b.terminalPercentile(0.95));
+    }
+
+    @Test
+    void projection_ShouldApplyStorageDragWithoutVolatility() {
+        MonteCarloProjection engine = new MonteCarloProjection(IDENTITY, 1.0);
+        // 1000 + 10*100 + 20*(50 - 2*1) = 2960 po roku
+        MonteCarloProjection.Projection result = engine.project(setupPortfolio(), 100, MonteCarloProjection.TRADING_DAYS, 1L);
+
+        assertThat(result.getInitialValue()).isCloseTo(3000.0, within(1e-9));
+        assertThat(result.terminalPercentile(0.5)).isCloseTo(2960.0, within(2960.0 * 0.01));
+    }
+
+    @Test
+    void projection_PercentilesShouldBeOrdered() {
+        MonteCarloProjection engine = new MonteCarloProjection(IDENTITY, 0.0);
+        engine.setTypeModel(AssetType.SHARE, 0.0, 0.4);
+        engine.setTypeModel(AssetType.COMMODITY, 0.0, 0.4);
+        MonteCarloProjection.Projection result = engine.project(setupPortfolio(), 5_000, 50, 7L);
+
+        assertThat(result.terminalPercentile(0.05)).isLessThan(result.terminalPercentile(0.5));
+        assertThat(result.terminalPercentile(0.5)).isLessThan(result.terminalPercentile(0.95));
+    }
+
+    @Test
+    void exception_ShouldThrow_WhenCorrelationNotPositiveDefinite() {
+        double[][] bad = {{1, 2, 0}, {2, 1, 0}, {0, 0, 1}};
+        assertThatThrownBy(() -> new MonteCarloProjection(bad, 0.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
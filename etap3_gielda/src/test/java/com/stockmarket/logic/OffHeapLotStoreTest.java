@@ -0,0 +1,149 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapLotStoreTest {
+
+    @Test
+    void offHeap_ShouldMatchOnHeapFifoResults() {
+        try (OffHeapLotStore store = new OffHeapLotStore()) {
+            Portfolio heap = new Portfolio(new BigDecimal("100000"));
+            Portfolio offHeap = new Portfolio(new BigDecimal("100000"), new InstrumentMaster(), store);
+            for (Portfolio p : new Portfolio[]{heap, offHeap}) {
+                p.trackAsset(new Share("CDR", new BigDecimal("100")));
+                p.buy("CDR", 10, new BigDecimal("100"));
+                p.buy("CDR", 10, new BigDecimal("110.25"));
+                p.buy("CDR", 10, new BigDecimal("120"));
+            }
+
+            BigDecimal heapProfit = heap.sell("CDR", 15, new BigDecimal("130"));
+            BigDecimal offHeapProfit = offHeap.sell("CDR", 15, new BigDecimal("130"));
+
+            assertThat(offHeapProfit).isEqualByComparingTo(heapProfit);
+            assertThat(offHeap.getCash()).isEqualByComparingTo(heap.getCash());
+            assertThat(offHeap.getAsset("CDR").getTotalQuantity()).isEqualTo(15);
+            assertThat(offHeap.getAsset("CDR").getLots().get(0).getPurchasePrice()).isEqualByComparingTo("110.25");
+            assertThat(offHeap.generateReport()).isEqualTo(heap.generateReport());
+        }
+    }
+
+    @Test
+    void freeList_ShouldReuseSlotsReleasedBySells() {
+        try (OffHeapLotStore store = new OffHeapLotStore()) {
+            Portfolio p = new Portfolio(new BigDecimal("100000"), new InstrumentMaster(), store);
+            p.trackAsset(new Share("CDR", new BigDecimal("10")));
+            for (int i = 0; i < 100; i++) p.buy("CDR", 1, new BigDecimal("10"));
+
+            p.sell("CDR", 40, new BigDecimal("10"));
+            assertThat(store.getAllocatedSlots()).isEqualTo(60);
+            assertThat(store.getFreeSlots()).isEqualTo(40);
+
+            for (int i = 0; i < 40; i++) p.buy("CDR", 1, new BigDecimal("10"));
+            assertThat(store.getAllocatedSlots()).isEqualTo(100);
+            assertThat(store.getFreeSlots()).isZero();
+            assertThat(p.getAsset("CDR").getTotalQuantity()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void trackAsset_ShouldMoveExistingLotsOffHeap() {
+        try (OffHeapLotStore store = new OffHeapLotStore()) {
+            Share share = new Share("PKO", new BigDecimal("50"));
+            share.addLot(new Lot(LocalDate.of(2024, 1, 2), 5, new BigDecimal("45")));
+
+            Portfolio p = new Portfolio(BigDecimal.ZERO, new InstrumentMaster(), store);
+            p.trackAsset(share);
+
+            assertThat(share.getLotStorage()).isSameAs(store);
+            assertThat(store.getAllocatedSlots()).isEqualTo(1);
+            assertThat(share.getLots().get(0).getPurchaseDate()).isEqualTo(LocalDate.of(2024, 1, 2));
+        }
+    }
+
+    @Test
+    void lotViews_ShouldReadSlotLazily_AndCopyWhenMovedBackOnHeap() {
+        try (OffHeapLotStore store = new OffHeapLotStore()) {
+            Portfolio p = new Portfolio(new BigDecimal("100000"), new InstrumentMaster(), store);
+            p.trackAsset(new Share("CDR", new BigDecimal("100")));
+            p.buy("CDR", 10, new BigDecimal("100.5"));
+            p.buy("CDR", 10, new BigDecimal("120"));
+            Asset asset = p.getAsset("CDR");
+
+            Lot view = asset.getLots().get(0);
+            p.sell("CDR", 4, new BigDecimal("130"));
+            assertThat(view.getQuantity()).isEqualTo(6);
+            assertThat(view.getPurchasePrice()).isEqualByComparingTo("100.5");
+
+            asset.useLotStorage(LotStorage.ON_HEAP);
+            Portfolio other = new Portfolio(new BigDecimal("100000"), new InstrumentMaster(), store);
+            other.trackAsset(new Share("PKO", new BigDecimal("1")));
+            other.buy("PKO", 99, new BigDecimal("1")); // zajmuje zwolnione sloty
+
+            assertThat(store.getAllocatedSlots()).isEqualTo(1);
+            assertThat(asset.getLots()).extracting(Lot::getQuantity).containsExactly(6, 10);
+            assertThat(asset.getLots().get(1).getPurchasePrice()).isEqualByComparingTo("120");
+        }
+    }
+
+    @Test
+    void persistence_ShouldRoundTripThroughOffHeapStore(@TempDir Path dir) {
+        String file = dir.resolve("portfel.txt").toString();
+        try (OffHeapLotStore store = new OffHeapLotStore()) {
+            Portfolio p = new Portfolio(new BigDecimal("1000"), new InstrumentMaster(), store);
+            p.trackAsset(new Share("CDR", new BigDecimal("100")));
+            p.buy("CDR", 3, new BigDecimal("99.99"));
+            p.saveToFile(file);
+
+            Portfolio lazy = new Portfolio(BigDecimal.ZERO, new InstrumentMaster(), store);
+            lazy.loadFromFileLazy(file);
+            assertThat(lazy.getAsset("CDR").getTotalQuantity()).isEqualTo(3);
+            assertThat(store.getAllocatedSlots()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void releaseLots_ShouldReturnSlotsOfDroppedPortfolio(@TempDir Path dir) {
+        String file = dir.resolve("portfel.txt").toString();
+        try (OffHeapLotStore store = new OffHeapLotStore()) {
+            Portfolio p = new Portfolio(new BigDecimal("1000"), new InstrumentMaster(), store);
+            p.trackAsset(new Share("CDR", new BigDecimal("10")));
+            p.trackAsset(new Share("PKO", new BigDecimal("10")));
+            for (int i = 0; i < 5; i++) p.buy("CDR", 1, new BigDecimal("10"));
+            p.buy("PKO", 1, new BigDecimal("10"));
+            p.saveToFile(file);
+
+            Portfolio lazy = new Portfolio(BigDecimal.ZERO, new InstrumentMaster(), store);
+            lazy.loadFromFileLazy(file);
+            lazy.getAsset("CDR").getTotalQuantity(); // PKO zostaje niewczytane
+            assertThat(store.getAllocatedSlots()).isEqualTo(11);
+
+            p.releaseLots();
+            lazy.releaseLots();
+
+            assertThat(store.getAllocatedSlots()).isZero();
+            assertThat(lazy.getAsset("PKO").getTotalQuantity()).isZero();
+            assertThat(p.snapshot().getAsset("CDR").getTotalQuantity()).isZero();
+        }
+    }
+
+    @Test
+    void exception_ShouldThrow_WhenStoreIsClosed() {
+        OffHeapLotStore store = new OffHeapLotStore();
+        Portfolio p = new Portfolio(new BigDecimal("1000"), new InstrumentMaster(), store);
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.buy("CDR", 1, new BigDecimal("100"));
+        store.close();
+
+        assertThatThrownBy(() -> p.getAsset("CDR").getTotalQuantity()).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> LotStorage.fromConfig("dysk")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
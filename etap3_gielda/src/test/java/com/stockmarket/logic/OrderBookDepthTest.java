@@ -0,0 +1,89 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderBookDepthTest {
+
+    @Test
+    void depth_ShouldAggregateOrdersByPriceLevel() {
+        OrderBookDepth depth = new OrderBookDepth(5);
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.attachDepthBook(depth);
+
+        p.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("100"), 10));
+        p.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("100.00"), 5));
+        p.addOrder(new Order("CDR", Order.Type.BUY, new BigDecimal("101"), 3));
+        p.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("103"), 7));
+        p.addOrder(new Order("CDR", Order.Type.SELL, new BigDecimal("102"), 2));
+
+        OrderBookDepth.DepthSnapshot s = depth.snapshot("CDR");
+        assertThat(s.getBids()).extracting(l -> l.getPrice().toPlainString()).containsExactly("101", "100");
+        assertThat(s.getBids().get(1).getQuantity()).isEqualTo(15);
+        assertThat(s.getBids().get(1).getOrders()).isEqualTo(2);
+        assertThat(s.getAsks()).extracting(OrderBookDepth.Level::getQuantity).containsExactly(2L, 7L);
+    }
+
+    @Test
+    void depth_ShouldFollowFillsAndCancels() {
+        OrderBookDepth depth = new OrderBookDepth(5);
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.attachDepthBook(depth);
+
+        Order big = new Order("CDR", Order.Type.BUY, new BigDecimal("100"), 10);
+        Order small = new Order("CDR", Order.Type.BUY, new BigDecimal("99"), 4);
+        p.addOrder(big);
+        p.addOrder(small);
+
+        p.fillOrder(big, 6, new BigDecimal("100"));
+        assertThat(depth.snapshot("CDR").getBids().get(0).getQuantity()).isEqualTo(4);
+        assertThat(big.getQuantity()).isEqualTo(4);
+        assertThat(p.getAsset("CDR").getTotalQuantity()).isEqualTo(6);
+
+        p.fillOrder(big, 4, new BigDecimal("100"));
+        assertThat(depth.snapshot("CDR").getBids()).extracting(l -> l.getPrice().toPlainString()).containsExactly("99");
+
+        assertThat(p.cancelOrder(small)).isTrue();
+        assertThat(depth.snapshot("CDR").getBids()).isEmpty();
+        assertThat(p.peekNextOrder()).isNull();
+    }
+
+    @Test
+    void snapshot_ShouldOnlyChangeWhenVisibleLevelsChange() {
+        OrderBookDepth depth = new OrderBookDepth(2);
+        Portfolio p = new Portfolio(BigDecimal.ZERO);
+        p.attachDepthBook(depth);
+        p.addOrder(new Order("PKO", Order.Type.SELL, new BigDecimal("50"), 1));
+        p.addOrder(new Order("PKO", Order.Type.SELL, new BigDecimal("51"), 1));
+
+        OrderBookDepth.DepthSnapshot before = depth.snapshot("PKO");
+        p.addOrder(new Order("PKO", Order.Type.SELL, new BigDecimal("60"), 1)); // poza top 2
+        assertThat(depth.snapshot("PKO")).isSameAs(before);
+
+        Order better = new Order("PKO", Order.Type.SELL, new BigDecimal("49"), 1);
+        p.addOrder(better);
+        assertThat(depth.snapshot("PKO").getAsks()).extracting(l -> l.getPrice().toPlainString()).containsExactly("49", "50");
+
+        p.cancelOrder(better);
+        assertThat(depth.snapshot("PKO").getAsks()).extracting(l -> l.getPrice().toPlainString()).containsExactly("50", "51");
+        assertThat(depth.snapshot("XYZ").getAsks()).isEmpty();
+    }
+
+    @Test
+    void exception_ShouldThrow_WhenFillingMoreThanRemaining() {
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        Order order = new Order("CDR", Order.Type.BUY, new BigDecimal("100"), 2);
+        p.addOrder(order);
+
+        assertThatThrownBy(() -> p.fillOrder(order, 3, new BigDecimal("100"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> p.fillOrder(new Order("CDR", Order.Type.BUY, BigDecimal.ONE, 1), 1, BigDecimal.ONE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,181 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class PerformanceTrackerTest {
+
+    @Test
+    void twr_ShouldIgnoreTimingOfCashFlows() {
+        PerformanceTracker tracker = new PerformanceTracker();
+        LocalDate d = LocalDate.of(2024, 5, 1);
+        tracker.onCashFlow("A", d, new BigDecimal("1000"));
+        tracker.onValuation("A", d, new BigDecimal("1000"));
+        tracker.onValuation("A", d.plusDays(1), new BigDecimal("1100"));    // +10%
+        tracker.onCashFlow("A", d.plusDays(2), new BigDecimal("10000"));    // duży wpływ
+        tracker.onValuation("A", d.plusDays(2), new BigDecimal("11110"));   // +0% (11100 -> 11110 ~ +0.09%)
+        tracker.onValuation("A", d.plusDays(3), new BigDecimal("9999"));    // -10%
+
+        double expected = 1.10 * (11110.0 / 11100.0) * 0.9 - 1;
+        assertThat(tracker.getPeriodToDate("A").getTwr()).isCloseTo(expected, offset(1e-12));
+        assertThat(tracker.getLastDailyReturn("A")).isCloseTo(-0.1, offset(1e-12));
+        // MWR mocno ujemny - strata przypadła na okres z większym kapitałem
+        assertThat(tracker.getPeriodToDate("A").getMwr()).isLessThan(tracker.getPeriodToDate("A").getTwr());
+    }
+
+    @Test
+    void periods_ShouldCloseAtMonthBoundary() {
+        PerformanceTracker tracker = new PerformanceTracker();
+        tracker.onCashFlow("A", LocalDate.of(2024, 1, 10), new BigDecimal("100"));
+        tracker.onValuation("A", LocalDate.of(2024, 1, 10), new BigDecimal("100"));
+        tracker.onValuation("A", LocalDate.of(2024, 1, 31), new BigDecimal("110"));
+        tracker.onValuation("A", LocalDate.of(2024, 2, 29), new BigDecimal("121"));
+
+        List<PerformanceTracker.Figures> history = tracker.getHistory("A");
+        assertThat(history).extracting(PerformanceTracker.Figures::getPeriod)
+                .containsExactly(YearMonth.of(2024, 1), YearMonth.of(2024, 2));
+        assertThat(history.get(0).getTwr()).isCloseTo(0.10, offset(1e-12));
+        assertThat(history.get(1).getTwr()).isCloseTo(0.10, offset(1e-12));
+        assertThat(history.get(1).getMwr()).isCloseTo(0.10, offset(1e-12)); // brak przepływów: MWR = TWR
+        assertThat(tracker.getSinceInceptionTwr("A")).isCloseTo(0.21, offset(1e-12));
+    }
+
+    @Test
+    void portfolio_ShouldFeedFlowsFromBuyAndSell() {
+        PerformanceTracker tracker = new PerformanceTracker();
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.attachPerformanceTracker(tracker, "A");
+
+        p.setTradingClock(clockAt(LocalDate.of(2024, 6, 3)));
+        p.buy("CDR", 10, new BigDecimal("100"));
+        tracker.valueHoldings("A", p, LocalDate.of(2024, 6, 3));
+
+        p.updatePrice("CDR", new BigDecimal("120"));
+        tracker.valueHoldings("A", p, LocalDate.of(2024, 6, 4)); // +20%
+
+        p.setTradingClock(clockAt(LocalDate.of(2024, 6, 5)));
+        p.sell("CDR", 5, new BigDecimal("120"));
+        tracker.valueHoldings("A", p, LocalDate.of(2024, 6, 5)); // wypływ 600, wycena 600 -> 0%
+
+        assertThat(tracker.getPeriodToDate("A").getTwr()).isCloseTo(0.20, offset(1e-12));
+        assertThat(tracker.getLastDailyReturn("A")).isCloseTo(0, offset(1e-12));
+    }
+
+    @Test
+    void valueHoldings_ShouldValuePositionWithoutPriceAtZero() {
+        PerformanceTracker tracker = new PerformanceTracker();
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.trackAsset(new Share("NEW", null));
+        p.buy("CDR", 10, new BigDecimal("100"));
+        p.getAsset("NEW").addLot(new Lot(LocalDate.of(2024, 6, 1), 5, new BigDecimal("20")));
+        p.markDirty("NEW");
+
+        tracker.valueHoldings("A", p, LocalDate.of(2024, 6, 3));
+
+        assertThat(tracker.getPeriodToDate("A").getPeriod()).isEqualTo(YearMonth.of(2024, 6));
+    }
+
+    @Test
+    void trade_ShouldBeRejectedBeforeStateChange_WhenFlowFallsIntoClosedPeriod() {
+        PerformanceTracker tracker = new PerformanceTracker();
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.attachPerformanceTracker(tracker, "A");
+        p.setTradingClock(clockAt(LocalDate.of(2024, 6, 3)));
+        p.buy("CDR", 10, new BigDecimal("100"));
+        tracker.valueHoldings("A", p, LocalDate.of(2024, 7, 1)); // okres czerwcowy zamknięty
+
+        assertThatThrownBy(() -> p.buy("CDR", 1, new BigDecimal("100"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> p.sell("CDR", 1, new BigDecimal("100"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(p.getCash()).isEqualByComparingTo("9000");
+        assertThat(p.getAsset("CDR").getTotalQuantity()).isEqualTo(10);
+    }
+
+    private static TradingClock clockAt(LocalDate date) {
+        return new TradingClock(Clock.fixed(date.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    @Test
+    void history_ShouldKeepPerAccountOrder_WhenWrittenFromManyThreads(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("wyniki.log");
+        PerformanceTracker tracker = new PerformanceTracker(file);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            String account = "K" + t;
+            threads[t] = new Thread(() -> {
+                LocalDate d = LocalDate.of(2024, 1, 1);
+                for (int day = 0; day < 120; day++) {
+                    tracker.onCashFlow(account, d.plusDays(day), new BigDecimal("100"));
+                    tracker.onValuation(account, d.plusDays(day), BigDecimal.valueOf(105L * (day + 1)));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        tracker.close();
+
+        assertThat(Files.readAllLines(file)).hasSize(4 * 240);
+        Map<String, List<PerformanceTracker.Figures>> audited = PerformanceTracker.audit(file, 2);
+        assertThat(audited).containsOnlyKeys("K0", "K1", "K2", "K3");
+        for (String account : audited.keySet()) {
+            List<PerformanceTracker.Figures> incremental = tracker.getHistory(account);
+            assertThat(audited.get(account)).hasSameSizeAs(incremental);
+            for (int i = 0; i < incremental.size(); i++) {
+                assertThat(incremental.get(i).getTwr()).isCloseTo(audited.get(account).get(i).getTwr(), offset(1e-9));
+            }
+        }
+    }
+
+    @Test
+    void audit_ShouldMatchIncrementalFigures(@TempDir Path dir) {
+        Path file = dir.resolve("wyniki.log");
+        PerformanceTracker tracker = new PerformanceTracker(file);
+        for (String account : new String[]{"A", "B", "C"}) {
+            double value = 0;
+            LocalDate d = LocalDate.of(2024, 1, 1);
+            for (int day = 0; day < 90; day++) {
+                LocalDate date = d.plusDays(day);
+                if (day % 7 == 0) {
+                    BigDecimal flow = BigDecimal.valueOf(500 + account.charAt(0) * day % 300);
+                    tracker.onCashFlow(account, date, flow);
+                    value += flow.doubleValue();
+                }
+                value *= 1 + Math.sin(day + account.charAt(0)) / 100;
+                tracker.onValuation(account, date, BigDecimal.valueOf(Math.round(value * 100), 2));
+            }
+        }
+        tracker.close();
+
+        Map<String, List<PerformanceTracker.Figures>> audited = PerformanceTracker.audit(file, 3);
+
+        assertThat(audited).containsOnlyKeys("A", "B", "C");
+        for (String account : audited.keySet()) {
+            List<PerformanceTracker.Figures> incremental = tracker.getHistory(account);
+            List<PerformanceTracker.Figures> exact = audited.get(account);
+            assertThat(exact).hasSameSizeAs(incremental);
+            for (int i = 0; i < exact.size(); i++) {
+                assertThat(incremental.get(i).getPeriod()).isEqualTo(exact.get(i).getPeriod());
+                assertThat(incremental.get(i).getTwr()).isCloseTo(exact.get(i).getTwr(), offset(1e-9));
+                // Modified Dietz vs dokładne IRR - zgodność do kilku punktów bazowych
+                assertThat(incremental.get(i).getMwr()).isCloseTo(exact.get(i).getMwr(), offset(5e-4));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PortfolioArchiveTest {
+
+    private Portfolio setupPortfolio(String cash) {
+        Portfolio p = new Portfolio(new BigDecimal(cash));
+        Share xyz = new Share("XYZ", new BigDecimal("100"));
+        Commodity gold = new Commodity("GOLD", new BigDecimal("1000"), new BigDecimal("5"));
+        p.trackAsset(xyz);
+        p.trackAsset(gold);
+        xyz.addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("100.25")));
+        xyz.addLot(new Lot(LocalDate.of(2023, 2, 1), 7, new BigDecimal("120")));
+        gold.addLot(new Lot(LocalDate.of(2022, 12, 31), 3, new BigDecimal("990.5")));
+        return p;
+    }
+
+    private byte[] archive() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PortfolioArchive.Writer writer = new PortfolioArchive.Writer(bytes)) {
+            writer.writeAccount("ACC-1", setupPortfolio("1000.50"));
+            writer.writeAccount("ACC-2", setupPortfolio("2000"));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void archive_ShouldRestoreSelectedAccount() throws IOException {
+        Portfolio restored = PortfolioArchive.readAccount(new ByteArrayInputStream(archive()), "ACC-2", new InstrumentMaster());
+
+        assertThat(restored.getCash()).isEqualByComparingTo("2000");
+        assertThat(restored.getAsset("XYZ").getTotalQuantity()).isEqualTo(17);
+        assertThat(restored.getAsset("GOLD").getType()).isEqualTo(AssetType.COMMODITY);
+    }
+
+    @Test
+    void archive_ShouldExtractSingleAssetWithOriginalDatesAndPrices() throws IOException {
+        List<Lot> lots = PortfolioArchive.readAsset(new ByteArrayInputStream(archive()), "ACC-1", "XYZ");
+
+        assertThat(lots).hasSize(2);
+        assertThat(lots.get(0).getPurchaseDate()).isEqualTo(LocalDate.of(2023, 1, 1));
+        assertThat(lots.get(0).getPurchasePrice()).isEqualTo(new BigDecimal("100.25"));
+        assertThat(lots.get(1).getPurchaseDate()).isEqualTo(LocalDate.of(2023, 2, 1));
+        assertThat(lots.get(1).getQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void archive_ShouldStreamAccountsBlockByBlock() throws IOException {
+        try (PortfolioArchive.Reader reader = new PortfolioArchive.Reader(new ByteArrayInputStream(archive()))) {
+            assertThat(reader.nextAccount().getAccountId()).isEqualTo("ACC-1");
+            assertThat(reader.nextAccount().getAccountId()).isEqualTo("ACC-2");
+            assertThat(reader.nextAsset()).isNotNull();
+            assertThat(reader.nextAccount()).isNull();
+        }
+    }
+
+    @Test
+    void archive_ShouldDetectCorruptedBlock() throws IOException {
+        byte[] bytes = archive();
+        bytes[bytes.length - 6] ^= 0x55;
+
+        assertThatThrownBy(() -> PortfolioArchive.readAccount(new ByteArrayInputStream(bytes), "ACC-2", new InstrumentMaster()))
+                .isInstanceOf(DataIntegrityException.class);
+    }
+}
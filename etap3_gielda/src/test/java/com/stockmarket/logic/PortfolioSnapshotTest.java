@@ -0,0 +1,181 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PortfolioSnapshotTest {
+
+    @Test
+    void snapshot_ShouldNotChangeAfterLaterTrades() {
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.buy("CDR", 10, new BigDecimal("100"));
+        p.buy("CDR", 5, new BigDecimal("120"));
+
+        PortfolioSnapshot before = p.snapshot();
+        p.sell("CDR", 12, new BigDecimal("130"));
+
+        assertThat(before.getAsset("CDR").getTotalQuantity()).isEqualTo(15);
+        assertThat(before.getAsset("CDR").getLots()).hasSize(2);
+        assertThat(before.getCash()).isEqualByComparingTo("8400");
+
+        PortfolioSnapshot after = p.snapshot();
+        assertThat(after.getVersion()).isGreaterThan(before.getVersion());
+        assertThat(after.getAsset("CDR").getTotalQuantity()).isEqualTo(3);
+        assertThat(after.getAsset("CDR").getLots().get(0).getPurchasePrice()).isEqualByComparingTo("120");
+        assertThat(after.getCash()).isEqualByComparingTo("9960");
+    }
+
+    @Test
+    void snapshot_ShouldShareUnchangedPositions() {
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.trackAsset(new Share("PKO", new BigDecimal("50")));
+        p.buy("PKO", 10, new BigDecimal("50"));
+
+        PortfolioSnapshot before = p.snapshot();
+        p.buy("CDR", 1, new BigDecimal("100"));
+        PortfolioSnapshot after = p.snapshot();
+
+        assertThat(after.getAsset("PKO")).isSameAs(before.getAsset("PKO"));
+        assertThat(after.getAsset("CDR")).isNotSameAs(before.getAsset("CDR"));
+        assertThat(after.getAssets()).extracting(PortfolioSnapshot.AssetSnapshot::getTicker).containsExactly("CDR", "PKO");
+    }
+
+    @Test
+    void snapshot_ShouldShareUnchangedLotsBetweenTrades() {
+        Portfolio p = new Portfolio(new BigDecimal("100000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        for (int i = 0; i < 5; i++) p.buy("CDR", 10, new BigDecimal(100 + i));
+
+        PortfolioSnapshot.AssetSnapshot first = p.snapshot().getAsset("CDR");
+        p.buy("CDR", 7, new BigDecimal("200"));
+        PortfolioSnapshot.AssetSnapshot afterBuy = p.snapshot().getAsset("CDR");
+        p.sell("CDR", 15, new BigDecimal("150"));
+        PortfolioSnapshot.AssetSnapshot afterSell = p.snapshot().getAsset("CDR");
+        p.buy("CDR", 1, new BigDecimal("300"));
+        PortfolioSnapshot.AssetSnapshot branch = p.snapshot().getAsset("CDR");
+
+        // Niezmienione partie to te same obiekty we wszystkich migawkach
+        assertThat(afterBuy.getLots().get(2)).isSameAs(first.getLots().get(2));
+        assertThat(afterSell.getLots().get(1)).isSameAs(first.getLots().get(2));
+        assertThat(branch.getLots().get(4)).isSameAs(afterBuy.getLots().get(5));
+
+        // Starsze migawki nie widzą późniejszych dopisań ani sprzedaży
+        assertThat(first.getLots()).hasSize(5);
+        assertThat(first.getTotalQuantity()).isEqualTo(50);
+        assertThat(afterBuy.getLots()).extracting(PortfolioSnapshot.LotEntry::getQuantity).containsExactly(10, 10, 10, 10, 10, 7);
+        assertThat(afterSell.getLots()).extracting(PortfolioSnapshot.LotEntry::getQuantity).containsExactly(5, 10, 10, 10, 7);
+        assertThat(afterSell.getTotalQuantity()).isEqualTo(42);
+        assertThat(branch.getLots()).extracting(PortfolioSnapshot.LotEntry::getQuantity).containsExactly(5, 10, 10, 10, 7, 1);
+        assertThat(branch.getTotalQuantity()).isEqualTo(43);
+    }
+
+    @Test
+    void snapshot_ShouldKeepLotsOfOlderSnapshot_WhenBranchingFromIt() {
+        Portfolio p = new Portfolio(new BigDecimal("100000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("100")));
+        p.buy("CDR", 10, new BigDecimal("100"));
+        p.buy("CDR", 10, new BigDecimal("110"));
+        PortfolioSnapshot.AssetSnapshot base = p.snapshot().getAsset("CDR");
+
+        // Dopisanie po pełnej sprzedaży i ponownym kupnie nie może nadpisać partii bazowej migawki
+        p.sell("CDR", 20, new BigDecimal("120"));
+        for (int i = 0; i < 20; i++) p.buy("CDR", 1, new BigDecimal("90"));
+        p.updatePrice("CDR", new BigDecimal("95"));
+
+        assertThat(base.getLots()).extracting(PortfolioSnapshot.LotEntry::getPurchasePrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100"), new BigDecimal("110"));
+        PortfolioSnapshot.AssetSnapshot latest = p.snapshot().getAsset("CDR");
+        assertThat(latest.getLots()).hasSize(20);
+        assertThat(latest.getTotalQuantity()).isEqualTo(20);
+        assertThat(latest.getPrice()).isEqualByComparingTo("95");
+    }
+
+    @Test
+    void snapshot_ShouldReflectCashLedgers() {
+        Portfolio p = new Portfolio(new BigDecimal("100"));
+        p.depositCash("USD", new BigDecimal("20"));
+        p.withdrawCash("PLN", new BigDecimal("30"));
+
+        PortfolioSnapshot s = p.snapshot();
+        assertThat(s.getCash()).isEqualByComparingTo("70");
+        assertThat(s.getForeignCash()).containsOnlyKeys("USD");
+    }
+
+    @Test
+    void snapshot_ShouldReadLazyPositionsFromFile(@TempDir Path dir) {
+        String file = dir.resolve("portfel.txt").toString();
+        Portfolio source = new Portfolio(new BigDecimal("1000"));
+        source.trackAsset(new Share("CDR", new BigDecimal("100")));
+        source.buy("CDR", 4, new BigDecimal("100"));
+        source.saveToFile(file);
+
+        Portfolio loaded = new Portfolio(BigDecimal.ZERO);
+        loaded.loadFromFileLazy(file);
+
+        PortfolioSnapshot s = loaded.snapshot();
+        assertThat(s.getCash()).isEqualByComparingTo("600");
+        assertThat(s.getAsset("CDR").getTotalQuantity()).isEqualTo(4);
+        assertThat(loaded.getAsset("CDR").isLoaded()).isFalse();
+    }
+
+    @Test
+    void lazySnapshot_ShouldKeepLots_WhenFileReplacedBySave(@TempDir Path dir) {
+        String file = dir.resolve("portfel.txt").toString();
+        Portfolio source = new Portfolio(new BigDecimal("10000"));
+        source.trackAsset(new Share("AAA", new BigDecimal("10")));
+        source.trackAsset(new Share("BBB", new BigDecimal("20")));
+        source.buy("AAA", 3, new BigDecimal("10"));
+        source.buy("BBB", 2, new BigDecimal("20"));
+        source.saveToFile(file);
+
+        Portfolio p = new Portfolio(BigDecimal.ZERO);
+        p.loadFromFileLazy(file);
+        PortfolioSnapshot snap = p.snapshot();
+        p.depositCash("PLN", new BigDecimal("12345.67")); // zmienia przesunięcia partii w nowym pliku
+        p.saveToFile(file);
+
+        assertThat(snap.getAsset("AAA").getLots()).extracting(PortfolioSnapshot.LotEntry::getQuantity).containsExactly(3);
+        assertThat(snap.getAsset("BBB").getTotalQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentReaders_ShouldNeverSeeHalfAppliedSell() throws Exception {
+        Portfolio p = new Portfolio(new BigDecimal("100000"));
+        p.trackAsset(new Share("CDR", new BigDecimal("10")));
+        BigDecimal price = new BigDecimal("10");
+        // Wiele małych partii - sprzedaż zużywa kilka naraz
+        for (int i = 0; i < 50; i++) p.buy("CDR", 2, price);
+
+        // Kupno i sprzedaż po tej samej cenie: gotówka + wartość pozycji jest stała
+        BigDecimal expected = p.snapshot().getMarketValue();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<BigDecimal> violation = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                BigDecimal value = p.snapshot().getMarketValue();
+                if (value.compareTo(expected) != 0) violation.compareAndSet(null, value);
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 2000; round++) {
+            p.sell("CDR", 7, price);
+            for (int i = 0; i < 7; i++) p.buy("CDR", 1, price);
+        }
+        running.set(false);
+        reader.join();
+
+        assertThat(violation.get()).isNull();
+    }
+}
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDate;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -171,6 +172,23 @@ class PortfolioTest {
         assertThat(target.getAsset("GOLD").getType()).isEqualTo(AssetType.COMMODITY);
     }
 
+    @Test
+    void persistence_ShouldLoadForeignCashLedgers(@TempDir Path tempDir) {
+        File file = tempDir.resolve("ledgers.txt").toFile();
+        Portfolio source = setupPortfolioWithLots();
+        source.depositCash("USD", new BigDecimal("250.75"));
+        source.saveToFile(file.getAbsolutePath());
+
+        Portfolio full = new Portfolio(BigDecimal.ZERO);
+        full.loadFromFile(file.getAbsolutePath());
+        Portfolio lazy = new Portfolio(BigDecimal.ZERO);
+        lazy.loadFromFileLazy(file.getAbsolutePath());
+
+        assertThat(full.getCashBalance("USD")).isEqualByComparingTo("250.75");
+        assertThat(lazy.getCashBalance("USD")).isEqualByComparingTo("250.75");
+        assertThat(lazy.getAsset("XYZ").getTotalQuantity()).isEqualTo(20);
+    }
+
     @Test
     void persistence_ShouldThrowOnCorruptedData(@TempDir Path tempDir) throws IOException {
         File badFile = tempDir.resolve("corrupted.txt").toFile();
@@ -179,4 +197,236 @@ class PortfolioTest {
         Portfolio p = new Portfolio(BigDecimal.ZERO);
         assertThatThrownBy(() -> p.loadFromFile(badFile.getAbsolutePath())).isInstanceOf(DataIntegrityException.class);
     }
+
+    // --- SEKCJA 5: LENIWY ODCZYT (INDEKS PRZESUNIĘĆ) ---
+
+    @Test
+    void lazyLoad_ShouldNotReadLotsUntilAccessed(@TempDir Path tempDir) {
+        String file = tempDir.resolve("lazy.txt").toString();
+        Portfolio source = setupPortfolioWithLots();
+        source.saveToFile(file);
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        target.loadFromFileLazy(file);
+
+        assertThat(target.getCash()).isEqualByComparingTo("20000");
+        assertThat(target.getAssets().get("XYZ").isLoaded()).isFalse();
+        assertThat(target.getAsset("XYZ").getTotalQuantity()).isEqualTo(20);
+        assertThat(target.getAssets().get("XYZ").isLoaded()).isTrue();
+    }
+
+    @Test
+    void lazyLoad_ShouldSellFromFaultedInLots(@TempDir Path tempDir) {
+        String file = tempDir.resolve("lazy.txt").toString();
+        setupPortfolioWithLots().saveToFile(file);
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        target.loadFromFileLazy(file);
+        BigDecimal profit = target.sell("XYZ", 15, new BigDecimal("150"));
+
+        assertThat(profit).isEqualByComparingTo(new BigDecimal("650"));
+        assertThat(target.getAsset("XYZ").getLots().get(0).getPurchaseDate()).isEqualTo(LocalDate.of(2023, 2, 1));
+    }
+
+    @Test
+    void lazyLoad_ShouldFallBackToFullLoad_WhenIndexStale(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("stale.txt");
+        setupPortfolioWithLots().saveToFile(file.toString());
+        Files.writeString(file, "HEADER|CASH|10\nASSET|SHARE|ABC\nLOT|2023-01-01|3|10\n");
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        target.loadFromFileLazy(file.toString());
+
+        assertThat(target.getAsset("ABC").getTotalQuantity()).isEqualTo(3);
+        assertThat(target.getAsset("XYZ")).isNull();
+    }
+
+    @Test
+    void lazyLoad_ShouldKeepLots_WhenSavedBackToSameFile(@TempDir Path tempDir) {
+        String file = tempDir.resolve("lazy.txt").toString();
+        setupPortfolioWithLots().saveToFile(file);
+
+        Portfolio lazy = new Portfolio(BigDecimal.ZERO);
+        lazy.loadFromFileLazy(file);
+        lazy.saveToFile(file);
+
+        Portfolio reloaded = new Portfolio(BigDecimal.ZERO);
+        reloaded.loadFromFileLazy(file);
+        assertThat(reloaded.getAsset("XYZ").getTotalQuantity()).isEqualTo(20);
+        assertThat(reloaded.getAsset("XYZ").getLots().get(1).getPurchasePrice()).isEqualByComparingTo("120");
+    }
+
+    @Test
+    void lazyLoad_ShouldFallBackToFullLoad_WhenFileEditedWithSameSize(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("edited.txt");
+        setupPortfolioWithLots().saveToFile(file.toString());
+        FileTime saved = Files.getLastModifiedTime(file);
+        // Ta sama długość, inne przesunięcia: wstawka przed partiami, skrócona cena
+        String text = Files.readString(file).replace("LOT|2023-01-01|10|100\n", "LOT|2023-01-01|10|10\n")
+                .replace("HEADER|CASH|20000", "HEADER|CASH|200000");
+        Files.writeString(file, text);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(saved.toMillis() + 5000));
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        target.loadFromFileLazy(file.toString());
+
+        assertThat(target.getAssets().get("XYZ").isLoaded()).isTrue();
+        assertThat(target.getAsset("XYZ").getLots().get(0).getPurchasePrice()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void lazyLoad_ShouldReadOriginalLots_WhenOtherPortfolioOverwritesFile(@TempDir Path tempDir) {
+        String file = tempDir.resolve("shared.txt").toString();
+        setupPortfolioWithLots().saveToFile(file);
+        Portfolio lazy = new Portfolio(BigDecimal.ZERO);
+        lazy.loadFromFileLazy(file);
+
+        Portfolio other = new Portfolio(new BigDecimal("99999"));
+        other.depositCash("USD", new BigDecimal("1234.5"));
+        other.trackAsset(new Share("XYZ", new BigDecimal("50")));
+        other.buy("XYZ", 1, new BigDecimal("50"));
+        other.saveToFile(file);
+
+        assertThat(lazy.getAsset("XYZ").isLoaded()).isFalse();
+        assertThat(lazy.getAsset("XYZ").getTotalQuantity()).isEqualTo(20);
+        assertThat(lazy.getAsset("XYZ").getLots().get(0).getPurchasePrice()).isEqualByComparingTo("100");
+    }
+
+    // --- SEKCJA 6: INDEKSY POMOCNICZE I RAPORT ---
+
+    private Portfolio setupMixedPortfolio() {
+        Portfolio p = new Portfolio(new BigDecimal("100000"));
+        p.trackAsset(new Share("AAA", new BigDecimal("100")));
+        p.trackAsset(new Share("BBB", new BigDecimal("10")));
+        p.trackAsset(new Commodity("GOLD", new BigDecimal("1000"), new BigDecimal("10")));
+        p.buy("AAA", 10, new BigDecimal("100"));
+        p.buy("BBB", 10, new BigDecimal("20"));
+        p.buy("GOLD", 2, new BigDecimal("1000"));
+        return p;
+    }
+
+    @Test
+    void index_ShouldReturnPositionsByType() {
+        Portfolio p = setupMixedPortfolio();
+        assertThat(p.getAssetsByType(AssetType.COMMODITY)).extracting(Asset::getTicker).containsExactly("GOLD");
+        assertThat(p.getAssetsByType(AssetType.SHARE)).extracting(Asset::getTicker).containsExactly("AAA", "BBB");
+    }
+
+    @Test
+    void index_ShouldReturnPositionsWorthMoreThanThreshold() {
+        Portfolio p = setupMixedPortfolio();
+        assertThat(p.getAssetsWorthMoreThan(new BigDecimal("500"))).extracting(Asset::getTicker).containsExactly("GOLD", "AAA");
+    }
+
+    @Test
+    void index_ShouldFollowPriceUpdates() {
+        Portfolio p = setupMixedPortfolio();
+        assertThat(p.getAssetsWithUnrealizedLoss()).extracting(Asset::getTicker).containsExactlyInAnyOrder("AAA", "BBB", "GOLD");
+
+        p.updatePrice("AAA", new BigDecimal("200"));
+        assertThat(p.getAssetsWithUnrealizedLoss()).extracting(Asset::getTicker).containsExactly("BBB", "GOLD");
+    }
+
+    @Test
+    void report_ShouldListByTypeThenValueDescending() {
+        Portfolio p = setupMixedPortfolio();
+        p.updatePrice("BBB", new BigDecimal("500"));
+        assertThat(p.generateReport()).isEqualTo("CASH: 96800\nBBB Qty: 10\nAAA Qty: 10\nGOLD Qty: 2\n");
+    }
+
+    @Test
+    void report_ShouldFollowPriceSetOutsidePortfolio() {
+        Portfolio p = setupMixedPortfolio();
+        p.getAsset("BBB").setCurrentPrice(new BigDecimal("500"));
+        assertThat(p.generateReport()).isEqualTo("CASH: 96800\nBBB Qty: 10\nAAA Qty: 10\nGOLD Qty: 2\n");
+
+        // Wspólny instrument przeceniony przez dane referencyjne
+        p.getAsset("AAA").getInstrument().setPrice(new BigDecimal("1000"));
+        assertThat(p.generateReport()).isEqualTo("CASH: 96800\nAAA Qty: 10\nBBB Qty: 10\nGOLD Qty: 2\n");
+    }
+
+    @Test
+    void index_ShouldRepriceSharedInstrumentInEveryPortfolio() {
+        InstrumentMaster master = new InstrumentMaster();
+        Portfolio first = new Portfolio(new BigDecimal("10000"), master);
+        Portfolio second = new Portfolio(new BigDecimal("10000"), master);
+        for (Portfolio p : new Portfolio[]{first, second}) {
+            p.trackAsset(Asset.forInstrument(master.resolve("CDR", AssetType.SHARE)));
+            master.updatePrice("CDR", new BigDecimal("100"));
+            p.buy("CDR", 10, new BigDecimal("100"));
+        }
+        assertThat(first.getAssetsWorthMoreThan(new BigDecimal("1500"))).isEmpty();
+
+        master.updatePrice("CDR", new BigDecimal("200"));
+        assertThat(first.getAssetsWorthMoreThan(new BigDecimal("1500"))).extracting(Asset::getTicker).containsExactly("CDR");
+        assertThat(second.getAssetsWorthMoreThan(new BigDecimal("1500"))).extracting(Asset::getTicker).containsExactly("CDR");
+
+        // Pozycja zamknięta - indeks przestaje obserwować instrument
+        first.sell("CDR", 10, new BigDecimal("200"));
+        master.updatePrice("CDR", new BigDecimal("50"));
+        assertThat(first.getAssetsWorthMoreThan(BigDecimal.ZERO)).isEmpty();
+        assertThat(second.getAssetsWithUnrealizedLoss()).extracting(Asset::getTicker).containsExactly("CDR");
+    }
+
+    @Test
+    void index_ShouldTrackCostBasisIncrementally() {
+        Portfolio p = setupMixedPortfolio();
+        p.buy("AAA", 10, new BigDecimal("50"));
+        p.sell("AAA", 15, new BigDecimal("100"));
+        // Pozostało 5 szt. kupionych po 50 - wartość 500 > koszt 250
+        p.updatePrice("AAA", new BigDecimal("40"));
+        assertThat(p.getAssetsWithUnrealizedLoss()).extracting(Asset::getTicker).contains("AAA");
+        p.updatePrice("AAA", new BigDecimal("60"));
+        assertThat(p.getAssetsWithUnrealizedLoss()).extracting(Asset::getTicker).doesNotContain("AAA");
+        assertThat(p.getAssetsWorthMoreThan(new BigDecimal("250"))).extracting(Asset::getTicker).contains("AAA");
+    }
+
+    // --- SEKCJA 7: TRWAŁOŚĆ KOLEJKI ZLECEŃ ---
+
+    @Test
+    void orders_ShouldSurviveSaveAndLoadWithIdsAndPriority(@TempDir Path tempDir) {
+        String file = tempDir.resolve("orders.txt").toString();
+        Portfolio source = setupPortfolioWithLots();
+        source.addOrder(new Order("XYZ", Order.Type.SELL, new BigDecimal("130"), 5));
+        source.addOrder(new Order("XYZ", Order.Type.SELL, new BigDecimal("125"), 3));
+        source.addOrder(new Order("XYZ", Order.Type.SELL, new BigDecimal("125"), 4));
+        source.saveToFile(file);
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        target.loadFromFile(file);
+
+        Order first = target.pollNextOrder();
+        assertThat(first.getPriceLimit()).isEqualByComparingTo("125");
+        assertThat(first.getQuantity()).isEqualTo(3);
+        assertThat(first.getId()).isEqualTo(2);
+        assertThat(target.pollNextOrder().getSequence()).isEqualTo(3);
+        assertThat(target.pollNextOrder().getPriceLimit()).isEqualByComparingTo("130");
+
+        // Liczniki wznowione po odczycie - nowe zlecenie nie powtarza identyfikatora
+        Order next = new Order("XYZ", Order.Type.BUY, new BigDecimal("90"), 1);
+        target.addOrder(next);
+        assertThat(next.getId()).isEqualTo(4);
+        assertThat(next.getSequence()).isEqualTo(4);
+    }
+
+    @Test
+    void orders_ShouldBeRestoredByLazyLoad(@TempDir Path tempDir) {
+        String file = tempDir.resolve("orders.txt").toString();
+        Portfolio source = setupPortfolioWithLots();
+        for (int i = 0; i < 1000; i++) {
+            source.addOrder(new Order("XYZ", Order.Type.BUY, BigDecimal.valueOf(50 + i % 37), 1));
+        }
+        source.saveToFile(file);
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        target.loadFromFileLazy(file);
+
+        assertThat(target.getAssets().get("XYZ").isLoaded()).isFalse();
+        assertThat(target.getPendingOrders()).hasSize(1000);
+        Order previous = target.pollNextOrder();
+        for (Order order = target.pollNextOrder(); order != null; order = target.pollNextOrder()) {
+            assertThat(previous.compareTo(order)).isNegative();
+            previous = order;
+        }
+    }
 }
\ No newline at end of file
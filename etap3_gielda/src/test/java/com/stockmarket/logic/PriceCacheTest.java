@@ -0,0 +1,143 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceCacheTest {
+
+    @Test
+    void cache_ShouldServeFreshValueWithoutFetching(@TempDir Path dir) throws IOException {
+        FilePriceSource source = priceFile(dir, "PRICE|CDR|100.50\nPRICE|PKO|50\n");
+        MutableClock clock = new MutableClock();
+        PriceCache cache = new PriceCache(source, Duration.ofMinutes(1), clock, Runnable::run);
+
+        assertThat(cache.get("CDR")).isEqualByComparingTo("100.50");
+        assertThat(cache.get("CDR")).isEqualByComparingTo("100.50");
+        assertThat(source.getFetchCount()).isEqualTo(1);
+    }
+
+    @Test
+    void staleValue_ShouldBeServedWhileRefreshRuns(@TempDir Path dir) throws IOException {
+        FilePriceSource source = priceFile(dir, "PRICE|CDR|100\n");
+        MutableClock clock = new MutableClock();
+        List<Runnable> background = new ArrayList<>();
+        PriceCache cache = new PriceCache(source, Duration.ofMinutes(5), clock, background::add);
+        cache.setTtl("CDR", Duration.ofSeconds(10));
+        cache.get("CDR");
+
+        Files.writeString(dir.resolve("ceny.txt"), "PRICE|CDR|110\n");
+        clock.advance(Duration.ofSeconds(11));
+
+        assertThat(cache.get("CDR")).isEqualByComparingTo("100"); // stara cena, odświeżenie zlecone
+        assertThat(background).hasSize(1);
+        background.get(0).run();
+        assertThat(cache.get("CDR")).isEqualByComparingTo("110");
+    }
+
+    @Test
+    void refreshStale_ShouldFetchAllStaleTickersInOneCall(@TempDir Path dir) throws IOException {
+        FilePriceSource source = priceFile(dir, "PRICE|A|1\nPRICE|B|2\nPRICE|C|3\n");
+        MutableClock clock = new MutableClock();
+        PriceCache cache = new PriceCache(source, Duration.ofMinutes(1), clock, Runnable::run);
+        cache.setTtl("C", Duration.ofHours(1));
+        cache.getAll(List.of("A", "B", "C"));
+        assertThat(source.getFetchCount()).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(cache.refreshStale()).isEqualTo(2);
+        assertThat(source.getFetchCount()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentMisses_ShouldBeCoalescedIntoOneFetch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        PriceSource slow = tickers -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Map<String, BigDecimal> prices = new HashMap<>();
+            for (String t : tickers) prices.put(t, new BigDecimal("42"));
+            return prices;
+        };
+        PriceCache cache = new PriceCache(slow, Duration.ofMinutes(1));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<BigDecimal>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) results.add(pool.submit(() -> cache.get("CDR")));
+            while (calls.get() == 0) Thread.onSpinWait();
+            Thread.sleep(50); // pozostałe wątki dołączają do trwającego pobrania
+            release.countDown();
+            for (Future<BigDecimal> f : results) assertThat(f.get()).isEqualByComparingTo("42");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void loadFromFile_ShouldPricePositionsFromCache(@TempDir Path dir) throws IOException {
+        String file = dir.resolve("portfel.txt").toString();
+        Portfolio source = new Portfolio(new BigDecimal("1000"));
+        source.trackAsset(new Share("CDR", new BigDecimal("100")));
+        source.buy("CDR", 2, new BigDecimal("100"));
+        source.saveToFile(file);
+
+        PriceCache cache = new PriceCache(priceFile(dir, "PRICE|CDR|125\n"), Duration.ofMinutes(1));
+        Portfolio loaded = new Portfolio(BigDecimal.ZERO);
+        loaded.attachPriceCache(cache);
+        loaded.loadFromFile(file);
+        assertThat(loaded.getAsset("CDR").getCurrentPrice()).isEqualByComparingTo("125");
+        assertThat(loaded.snapshot().getAsset("CDR").getPrice()).isEqualByComparingTo("125");
+
+        Portfolio lazy = new Portfolio(BigDecimal.ZERO);
+        lazy.attachPriceCache(cache);
+        lazy.loadFromFileLazy(file);
+        assertThat(lazy.getAsset("CDR").getCurrentPrice()).isEqualByComparingTo("125");
+        assertThat(lazy.getAsset("CDR").isLoaded()).isFalse();
+    }
+
+    private static FilePriceSource priceFile(Path dir, String content) throws IOException {
+        Path file = dir.resolve("ceny.txt");
+        Files.writeString(file, content);
+        return new FilePriceSource(file.toString());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-02T10:00:00Z");
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}
@@ -0,0 +1,100 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RebalancerTest {
+
+    // Wartość: 1000 gotówki + 10*100 AAA + 10*100 BBB + 1*1000 GOLD = 4000
+    private Portfolio setupPortfolio() {
+        Portfolio p = new Portfolio(new BigDecimal("1000"));
+        Share aaa = new Share("AAA", new BigDecimal("100"));
+        Share bbb = new Share("BBB", new BigDecimal("100"));
+        Commodity gold = new Commodity("GOLD", new BigDecimal("1000"), BigDecimal.ZERO);
+        p.trackAsset(aaa);
+        p.trackAsset(bbb);
+        p.trackAsset(gold);
+        aaa.addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("50")));  // duży zysk
+        bbb.addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("110"))); // strata
+        gold.addLot(new Lot(LocalDate.of(2023, 1, 1), 1, new BigDecimal("900")));
+        return p;
+    }
+
+    @Test
+    void rebalance_ShouldReachTickerWeightsInWholeUnits() {
+        Portfolio p = setupPortfolio();
+        Map<String, BigDecimal> weights = new HashMap<>();
+        weights.put("AAA", new BigDecimal("0.5"));
+        weights.put("BBB", new BigDecimal("0.25"));
+        weights.put("GOLD", new BigDecimal("0.25"));
+
+        List<Order> orders = new Rebalancer().rebalance(p, weights);
+
+        assertThat(orders).hasSize(1);
+        assertThat(orders.get(0).getTicker()).isEqualTo("AAA");
+        assertThat(orders.get(0).getType()).isEqualTo(Order.Type.BUY);
+        // 1000 gotówki - 5 opłaty => 9 sztuk po 100
+        assertThat(orders.get(0).getQuantity()).isEqualTo(9);
+    }
+
+    @Test
+    void rebalance_ShouldSkipTradesNotWorthTheFee() {
+        Portfolio p = setupPortfolio();
+        p.updatePrice("AAA", new BigDecimal("4"));
+        p.updatePrice("BBB", new BigDecimal("4"));
+        // Wartość 2080: cel 36.40 = 9 sztuk, różnica 1 sztuki (4 zł) nie pokrywa opłaty
+        Map<String, BigDecimal> weights = new HashMap<>();
+        weights.put("GOLD", new BigDecimal("0.5"));
+        weights.put("AAA", new BigDecimal("0.0175"));
+        weights.put("BBB", new BigDecimal("0.0175"));
+
+        List<Order> orders = new Rebalancer().rebalance(p, weights);
+
+        assertThat(orders).extracting(Order::getTicker).doesNotContain("AAA", "BBB");
+    }
+
+    @Test
+    void rebalanceByType_ShouldSellLowestTaxImpactFirst() {
+        Portfolio p = setupPortfolio();
+        Map<AssetType, BigDecimal> weights = new EnumMap<>(AssetType.class);
+        weights.put(AssetType.SHARE, new BigDecimal("0.25"));
+        weights.put(AssetType.COMMODITY, new BigDecimal("0.25"));
+
+        List<Order> orders = new Rebalancer().rebalanceByType(p, weights);
+
+        assertThat(orders).hasSize(1);
+        assertThat(orders.get(0).getTicker()).isEqualTo("BBB");
+        assertThat(orders.get(0).getType()).isEqualTo(Order.Type.SELL);
+        assertThat(orders.get(0).getQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void rebalanceAll_ShouldProduceOrdersForEveryAccount() {
+        Map<String, Portfolio> accounts = new HashMap<>();
+        for (int i = 0; i < 100; i++) accounts.put("ACC-" + i, setupPortfolio());
+        Map<String, BigDecimal> weights = Map.of("AAA", new BigDecimal("0.5"), "BBB", new BigDecimal("0.25"), "GOLD", new BigDecimal("0.25"));
+        Rebalancer rebalancer = new Rebalancer();
+
+        Map<String, List<Order>> result = rebalancer.rebalanceAll(accounts, weights);
+        rebalancer.apply(accounts.get("ACC-3"), result.get("ACC-3"));
+
+        assertThat(result).hasSize(100);
+        assertThat(accounts.get("ACC-3").getAsset("AAA").getTotalQuantity()).isEqualTo(19);
+    }
+
+    @Test
+    void exception_ShouldThrow_WhenWeightsExceedOne() {
+        Map<String, BigDecimal> weights = Map.of("AAA", new BigDecimal("0.8"), "BBB", new BigDecimal("0.3"));
+        assertThatThrownBy(() -> new Rebalancer().rebalance(setupPortfolio(), weights)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,167 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicationTest {
+    private static final long TIMEOUT = 5000;
+
+    private Portfolio primaryPortfolio() {
+        Portfolio p = new Portfolio(new BigDecimal("100000"));
+        p.trackAsset(new Share("AAA", new BigDecimal("10")));
+        p.trackAsset(new Commodity("GOLD", new BigDecimal("1000"), new BigDecimal("5")));
+        p.buy("AAA", 50, new BigDecimal("10"));
+        p.buy("GOLD", 2, new BigDecimal("1000"));
+        return p;
+    }
+
+    private static void assertInSync(Portfolio primary, ReplicationReplica replica) {
+        long replicaHash = replica.query(r -> r.stateHash().getValue());
+        assertThat(replicaHash).isEqualTo(primary.stateHash().getValue());
+        assertThat(replica.query(Portfolio::generateReport)).isEqualTo(primary.generateReport());
+    }
+
+    @Test
+    void replica_ShouldCatchUpFromSnapshotAndTail() throws Exception {
+        Portfolio primary = primaryPortfolio();
+        try (ReplicationPrimary server = new ReplicationPrimary(primary, 0);
+             ReplicationReplica replica = new ReplicationReplica("localhost", server.getPort(), new InstrumentMaster())) {
+            primary.sell("AAA", 20, new BigDecimal("12"));
+            primary.updatePrice("AAA", new BigDecimal("12"));
+            primary.depositCash("USD", new BigDecimal("100"));
+            primary.trackAsset(new Share("BBB", new BigDecimal("5")));
+            primary.buy("BBB", 7, new BigDecimal("5"));
+
+            assertThat(replica.awaitSequence(server.getLog().getHeadSequence(), TIMEOUT)).isTrue();
+
+            assertInSync(primary, replica);
+            assertThat(replica.snapshot().getForeignCash().get("USD")).isEqualByComparingTo("100");
+            BigDecimal replicaPrice = replica.query(r -> r.getAsset("AAA").getCurrentPrice());
+            assertThat(replicaPrice).isEqualByComparingTo("12");
+            assertThat(replica.getSnapshotsLoaded()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void replica_ShouldResumeFromTail_AfterReconnect() throws Exception {
+        Portfolio primary = primaryPortfolio();
+        try (ReplicationPrimary server = new ReplicationPrimary(primary, 0);
+             ReplicationReplica replica = new ReplicationReplica("localhost", server.getPort(), new InstrumentMaster())) {
+            primary.buy("AAA", 1, new BigDecimal("11"));
+            assertThat(replica.awaitSequence(server.getLog().getHeadSequence(), TIMEOUT)).isTrue();
+
+            replica.dropConnection();
+            for (int i = 0; i < 100; i++) primary.buy("AAA", 1, new BigDecimal("11"));
+            primary.sell("AAA", 120, new BigDecimal("13"));
+
+            assertThat(replica.awaitSequence(server.getLog().getHeadSequence(), TIMEOUT)).isTrue();
+            assertInSync(primary, replica);
+            assertThat(replica.getSnapshotsLoaded()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void replica_ShouldReloadSnapshot_WhenTailWasTrimmed() throws Exception {
+        Portfolio primary = primaryPortfolio();
+        try (ReplicationPrimary server = new ReplicationPrimary(primary, 0);
+             ReplicationReplica replica = new ReplicationReplica("localhost", server.getPort(), new InstrumentMaster())) {
+            assertThat(replica.awaitSequence(0, TIMEOUT)).isTrue();
+            replica.close();
+
+            primary.buy("AAA", 5, new BigDecimal("11"));
+            server.checkpoint();
+            primary.buy("AAA", 5, new BigDecimal("12"));
+            server.checkpoint();
+            primary.sell("AAA", 3, new BigDecimal("13"));
+
+            try (ReplicationReplica late = new ReplicationReplica("localhost", server.getPort(), new InstrumentMaster())) {
+                assertThat(late.awaitSequence(server.getLog().getHeadSequence(), TIMEOUT)).isTrue();
+                assertInSync(primary, late);
+                assertThat(late.getRecordsApplied()).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    void replica_ShouldReplicateOrdersAndFileLoads(@TempDir Path dir) throws Exception {
+        Portfolio primary = primaryPortfolio();
+        try (ReplicationPrimary server = new ReplicationPrimary(primary, 0);
+             ReplicationReplica replica = new ReplicationReplica("localhost", server.getPort(), new InstrumentMaster())) {
+            Order sell = new Order("AAA", Order.Type.SELL, new BigDecimal("15"), 10);
+            primary.addOrder(sell);
+            primary.addOrder(new Order("GOLD", Order.Type.SELL, new BigDecimal("1200"), 1));
+            primary.fillOrder(sell, 4, new BigDecimal("15"));
+            assertThat(replica.awaitSequence(server.getLog().getHeadSequence(), TIMEOUT)).isTrue();
+
+            List<Order> orders = replica.query(Portfolio::getPendingOrders);
+            assertThat(orders).extracting(Order::getQuantity).containsExactlyInAnyOrder(6, 1);
+            assertInSync(primary, replica);
+
+            Portfolio other = new Portfolio(new BigDecimal("5"));
+            other.trackAsset(new Share("ZZZ", BigDecimal.ONE));
+            other.getAsset("ZZZ").addLot(new Lot(LocalDate.of(2022, 1, 1), 3, BigDecimal.ONE));
+            String file = dir.resolve("other.txt").toString();
+            other.saveToFile(file);
+            primary.loadFromFile(file);
+
+            assertThat(replica.awaitSequence(server.getLog().getHeadSequence(), TIMEOUT)).isTrue();
+            assertInSync(primary, replica);
+            assertThat(replica.getSnapshotsLoaded()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void lag_ShouldBeExposedOnBothSides() throws Exception {
+        Portfolio primary = primaryPortfolio();
+        try (ReplicationPrimary server = new ReplicationPrimary(primary, 0);
+             ReplicationReplica replica = new ReplicationReplica("localhost", server.getPort(), new InstrumentMaster())) {
+            for (int i = 0; i < 50; i++) primary.updatePrice("AAA", BigDecimal.valueOf(10 + i));
+            long head = server.getLog().getHeadSequence();
+            assertThat(replica.awaitSequence(head, TIMEOUT)).isTrue();
+
+            assertThat(replica.getLagRecords()).isZero();
+            assertThat(replica.getLagMillis()).isGreaterThanOrEqualTo(0);
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (!server.getReplicaLag().values().equals(List.of(0L)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(server.getReplicaLag()).containsValue(0L).hasSize(1);
+        }
+    }
+
+    @Test
+    void log_ShouldServeSnapshot_WhenPositionFellOutOfTail() throws Exception {
+        Portfolio p = primaryPortfolio();
+        ReplicationLog log = new ReplicationLog(p::stateBytes);
+        for (int i = 0; i < 10; i++) log.append("PRICE|AAA|" + i);
+        log.checkpoint();
+        for (int i = 0; i < 5; i++) log.append("PRICE|AAA|" + i);
+        log.checkpoint();
+
+        assertThat(log.next(3, 100, 0).getSnapshot()).isNotNull();
+        assertThat(log.next(10, 100, 0).getRecords()).hasSize(5);
+        assertThat(log.next(-1, 100, 0).getSnapshotSequence()).isEqualTo(15);
+        assertThat(log.getRetained()).isEqualTo(5);
+    }
+
+    @Test
+    void log_ShouldBoundRetainedTail_WithoutExplicitCheckpoints() throws Exception {
+        Portfolio p = primaryPortfolio();
+        ReplicationLog log = new ReplicationLog(p::stateBytes, 100);
+        for (int i = 0; i < 10_000; i++) log.append("PRICE|AAA|" + i);
+
+        assertThat(log.getRetained()).isLessThanOrEqualTo(200);
+        assertThat(log.getCheckpointSequence()).isEqualTo(10_000);
+        // Replika w ogonie dalej nadąża rekordami, a spoza ogona - od migawki
+        assertThat(log.next(9_950, 100, 0).getRecords()).hasSize(50);
+        assertThat(log.next(5, 100, 0).getSnapshot()).isNotNull();
+    }
+}
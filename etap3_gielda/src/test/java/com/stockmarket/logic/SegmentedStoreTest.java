@@ -0,0 +1,93 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentedStoreTest {
+
+    private Portfolio setupPortfolio() {
+        Portfolio p = new Portfolio(new BigDecimal("10000"));
+        p.trackAsset(new Share("XYZ", new BigDecimal("100")));
+        p.trackAsset(new Commodity("GOLD", new BigDecimal("1000"), new BigDecimal("5")));
+        p.buy("XYZ", 10, new BigDecimal("100"));
+        p.buy("GOLD", 2, new BigDecimal("1000"));
+        return p;
+    }
+
+    private List<String> segmentFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith("segment-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void store_ShouldRestoreCashAndLots(@TempDir Path dir) {
+        Portfolio source = setupPortfolio();
+        new SegmentedStore(dir).save(source);
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        new SegmentedStore(dir).load(target);
+
+        assertThat(target.getCash()).isEqualByComparingTo("7000");
+        assertThat(target.getAsset("XYZ").getTotalQuantity()).isEqualTo(10);
+        assertThat(target.getAsset("GOLD").getType()).isEqualTo(AssetType.COMMODITY);
+    }
+
+    @Test
+    void store_ShouldRewriteOnlyDirtyAsset(@TempDir Path dir) throws IOException {
+        Portfolio p = setupPortfolio();
+        SegmentedStore store = new SegmentedStore(dir);
+        store.save(p);
+        List<String> before = segmentFiles(dir);
+
+        p.sell("XYZ", 4, new BigDecimal("110"));
+        store.save(p);
+        List<String> after = segmentFiles(dir);
+
+        assertThat(after).hasSize(2);
+        assertThat(after).containsAnyElementsOf(before);
+        assertThat(after).isNotEqualTo(before);
+
+        Portfolio target = new Portfolio(BigDecimal.ZERO);
+        new SegmentedStore(dir).load(target);
+        assertThat(target.getAsset("XYZ").getTotalQuantity()).isEqualTo(6);
+        assertThat(target.getAsset("GOLD").getTotalQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void store_ShouldDropSegmentOfFullySoldAsset(@TempDir Path dir) throws IOException {
+        Portfolio p = setupPortfolio();
+        SegmentedStore store = new SegmentedStore(dir);
+        store.save(p);
+        p.sell("GOLD", 2, new BigDecimal("1000"));
+        store.save(p);
+
+        assertThat(segmentFiles(dir)).hasSize(1);
+    }
+
+    @Test
+    void store_ShouldDetectTornManifest(@TempDir Path dir) throws IOException {
+        new SegmentedStore(dir).save(setupPortfolio());
+        Path manifest = dir.resolve(SegmentedStore.MANIFEST);
+        byte[] bytes = Files.readAllBytes(manifest);
+        Files.write(manifest, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThatThrownBy(() -> new SegmentedStore(dir)).isInstanceOf(DataIntegrityException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StateHashTest {
+
+    private Portfolio tradedPortfolio() {
+        Portfolio p = new Portfolio(new BigDecimal("100000"));
+        p.setTradingClock(fixedClock());
+        for (int i = 0; i < 40; i++) p.trackAsset(new Share("T" + i, new BigDecimal("1")));
+        for (int i = 0; i < 40; i++) p.buy("T" + i, 10 + i, new BigDecimal("20"));
+        p.buy("T3", 5, new BigDecimal("25"));
+        p.sell("T3", 12, new BigDecimal("30"));
+        p.sell("T7", 17, new BigDecimal("30"));
+        return p;
+    }
+
+    private static TradingClock fixedClock() {
+        return new TradingClock(Clock.fixed(Instant.parse("2024-05-06T10:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void hash_ShouldMatch_ForSameOperationsInDifferentOrder() {
+        Portfolio a = new Portfolio(new BigDecimal("1000"));
+        Portfolio b = new Portfolio(new BigDecimal("1000"));
+        a.setTradingClock(fixedClock());
+        b.setTradingClock(fixedClock());
+        a.trackAsset(new Share("AAA", BigDecimal.ONE));
+        a.trackAsset(new Share("BBB", BigDecimal.ONE));
+        b.trackAsset(new Share("BBB", BigDecimal.ONE));
+        b.trackAsset(new Share("AAA", BigDecimal.ONE));
+
+        a.buy("AAA", 5, new BigDecimal("10"));
+        a.buy("BBB", 3, new BigDecimal("20"));
+        b.buy("BBB", 3, new BigDecimal("20"));
+        b.buy("AAA", 5, new BigDecimal("10"));
+
+        assertThat(a.stateHash().getValue()).isEqualTo(b.stateHash().getValue());
+        assertThat(a.stateHash().compare(b.stateHash()).isEmpty()).isTrue();
+    }
+
+    @Test
+    void incrementalHash_ShouldEqualFullRecompute() {
+        Portfolio p = tradedPortfolio();
+        long incremental = p.stateHash().getValue();
+
+        for (Asset asset : p.getAssets().values()) p.markDirty(asset.getTicker());
+
+        assertThat(p.stateHash().getValue()).isEqualTo(incremental);
+    }
+
+    @Test
+    void hash_ShouldSurviveSaveAndLoad(@TempDir Path dir) {
+        Portfolio source = tradedPortfolio();
+        String file = dir.resolve("p.txt").toString();
+        source.saveToFile(file);
+
+        Portfolio full = new Portfolio(BigDecimal.ZERO);
+        full.loadFromFile(file);
+        Portfolio lazy = new Portfolio(BigDecimal.ZERO);
+        lazy.loadFromFileLazy(file);
+
+        assertThat(full.stateHash().getValue()).isEqualTo(source.stateHash().getValue());
+        assertThat(lazy.stateHash().getValue()).isEqualTo(source.stateHash().getValue());
+    }
+
+    @Test
+    void compare_ShouldLocateDifferingTickers() {
+        Portfolio primary = tradedPortfolio();
+        Portfolio replica = tradedPortfolio();
+        replica.getAsset("T21").getLots().get(0).setQuantity(1);
+        replica.markDirty("T21");
+        replica.sell("T35", 1, new BigDecimal("30"));
+
+        StateHash.Mismatch mismatch = primary.stateHash().compare(replica.stateHash());
+
+        assertThat(mismatch.getTickers()).containsExactly("T21", "T35");
+        assertThat(mismatch.isCashMismatch()).isTrue();
+        assertThat(primary.stateHash().getValue()).isNotEqualTo(replica.stateHash().getValue());
+    }
+
+    @Test
+    void compare_ShouldReportAssetMissingOnOneSide() {
+        Portfolio a = new Portfolio(new BigDecimal("100"));
+        Portfolio b = new Portfolio(new BigDecimal("100"));
+        Share xyz = new Share("XYZ", BigDecimal.ONE);
+        xyz.addLot(new Lot(LocalDate.of(2023, 1, 1), 2, new BigDecimal("10")));
+        a.trackAsset(xyz);
+
+        StateHash.Mismatch mismatch = a.stateHash().compare(b.stateHash());
+
+        assertThat(mismatch.getTickers()).containsExactly("XYZ");
+        assertThat(mismatch.isCashMismatch()).isFalse();
+    }
+}
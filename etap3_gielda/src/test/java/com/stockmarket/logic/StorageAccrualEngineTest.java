@@ -0,0 +1,86 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageAccrualEngineTest {
+
+    private static final LocalDate RUN_DATE = LocalDate.of(2024, 1, 1);
+
+    // 365 dni * 10 jednostek * 36.50 rocznie / 365 = 365.00
+    private Portfolio setupAccount() {
+        Portfolio p = new Portfolio(new BigDecimal("1000"));
+        Commodity gold = new Commodity("GOLD", new BigDecimal("100"), new BigDecimal("36.50"));
+        p.trackAsset(gold);
+        gold.addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("90")));
+        p.trackAsset(new Share("XYZ", new BigDecimal("100")));
+        p.getAsset("XYZ").addLot(new Lot(LocalDate.of(2023, 1, 1), 10, new BigDecimal("90")));
+        return p;
+    }
+
+    private Map<String, Portfolio> setupAccounts(int count) {
+        Map<String, Portfolio> accounts = new HashMap<>();
+        for (int i = 0; i < count; i++) accounts.put("ACC-" + i, setupAccount());
+        return accounts;
+    }
+
+    @Test
+    void accrual_ShouldChargeStorageFromPurchaseDate(@TempDir Path dir) {
+        Map<String, Portfolio> accounts = setupAccounts(50);
+        StorageAccrualEngine engine = new StorageAccrualEngine(dir.resolve("accrual.chk"), 4);
+
+        StorageAccrualEngine.AccrualResult result = engine.run(accounts, RUN_DATE);
+
+        assertThat(result.getAccountCount()).isEqualTo(50);
+        assertThat(result.getCharge("ACC-7")).isEqualByComparingTo("365.00");
+        assertThat(accounts.get("ACC-7").getCash()).isEqualByComparingTo("635.00");
+    }
+
+    @Test
+    void accrual_ShouldChargeOnlyDaysSincePreviousRun(@TempDir Path dir) {
+        Map<String, Portfolio> accounts = setupAccounts(3);
+        StorageAccrualEngine engine = new StorageAccrualEngine(dir.resolve("accrual.chk"), 2);
+        engine.run(accounts, RUN_DATE);
+
+        StorageAccrualEngine.AccrualResult next = engine.run(accounts, RUN_DATE.plusDays(1));
+
+        assertThat(next.getCharge("ACC-0")).isEqualByComparingTo("1.00");
+        assertThat(accounts.get("ACC-0").getCash()).isEqualByComparingTo("634.00");
+    }
+
+    @Test
+    void accrual_ShouldNotPostTwiceForCompletedRun(@TempDir Path dir) {
+        Map<String, Portfolio> accounts = setupAccounts(3);
+        StorageAccrualEngine engine = new StorageAccrualEngine(dir.resolve("accrual.chk"), 2);
+        engine.run(accounts, RUN_DATE);
+        engine.run(accounts, RUN_DATE);
+
+        assertThat(accounts.get("ACC-1").getCash()).isEqualByComparingTo("635.00");
+    }
+
+    @Test
+    void accrual_ShouldResumeInterruptedRun(@TempDir Path dir) throws IOException {
+        Path checkpoint = dir.resolve("accrual.chk");
+        Files.writeString(checkpoint, "RUN|2024-01-01|-\nDONE|ACC-0|365.00\nDONE|ACC-1|36");
+        Map<String, Portfolio> accounts = setupAccounts(3);
+
+        StorageAccrualEngine.AccrualResult result = new StorageAccrualEngine(checkpoint, 2).run(accounts, RUN_DATE);
+
+        assertThat(result.getResumedAccounts()).isEqualTo(1);
+        assertThat(accounts.get("ACC-0").getCash()).isEqualByComparingTo("1000");
+        assertThat(accounts.get("ACC-1").getCash()).isEqualByComparingTo("635.00");
+        assertThat(accounts.get("ACC-2").getCash()).isEqualByComparingTo("635.00");
+        assertThat(Files.readAllLines(checkpoint)).contains("DONE|ACC-1|365.00", "COMPLETE");
+    }
+}
@@ -0,0 +1,117 @@
+package com.stockmarket.logic;
+
+import com.stockmarket.domain.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TradeImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String... rows) throws Exception {
+        Path file = dir.resolve("trades.csv");
+        Files.write(file, (TradeImporter.HEADER + "\n" + String.join("\n", rows) + "\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void import_ShouldKeepOriginalDatesAndApplyFifoForSells() throws Exception {
+        Path file = write(
+                "2019-01-10,CDR,SHARE,BUY,10,100",
+                "2019-06-01,CDR,SHARE,SELL,12,150",
+                "2019-03-05,CDR,SHARE,BUY,5,120",
+                "2020-02-01,GOLD,COMMODITY,BUY,2,7000.50");
+        Portfolio p = new Portfolio(new BigDecimal("1000"));
+
+        TradeImporter.ImportResult result = new TradeImporter().importFile(file, p);
+
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getTradesImported()).isEqualTo(4);
+        List<Lot> lots = p.getAsset("CDR").getLots();
+        assertThat(lots).hasSize(1);
+        assertThat(lots.get(0).getPurchaseDate()).isEqualTo(LocalDate.of(2019, 3, 5));
+        assertThat(lots.get(0).getQuantity()).isEqualTo(3);
+        // 10 * (150-100) + 2 * (150-120)
+        assertThat(result.getRealizedGain()).isEqualByComparingTo("560");
+        assertThat(p.getAsset("GOLD").getLots().get(0).getPurchasePrice()).isEqualByComparingTo("7000.50");
+        assertThat(p.getCash()).isEqualByComparingTo("1000");
+        assertThat(p.snapshot().getAsset("CDR").getTotalQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void import_ShouldReportRowErrorsAndSkipInvalidRows() throws Exception {
+        Path file = write(
+                "2019-01-10,CDR,SHARE,BUY,10,100",
+                "2019-13-01,CDR,SHARE,BUY,10,100",
+                "2019-01-11,CDR,SHARE,HOLD,10,100",
+                "2019-01-12,CDR,SHARE,BUY,-1,100",
+                "2019-01-13,CDR,SHARE,SELL,50,100",
+                "2019-01-14,CDR,SHARE");
+        Portfolio p = new Portfolio(BigDecimal.ZERO);
+
+        TradeImporter.ImportResult result = new TradeImporter(2).importFile(file, p);
+
+        assertThat(result.getRowsRead()).isEqualTo(6);
+        assertThat(result.getTradesImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(TradeImporter.RowError::getLine).containsExactly(3L, 4L, 5L, 6L, 7L);
+        assertThat(p.getAsset("CDR").getTotalQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void import_ShouldRejectTypeMismatchWithExistingAsset() throws Exception {
+        Portfolio p = new Portfolio(BigDecimal.ZERO);
+        p.trackAsset(new Share("CDR", new BigDecimal("5")));
+        Path file = write("2019-01-10,CDR,COMMODITY,BUY,10,100");
+
+        TradeImporter.ImportResult result = new TradeImporter().importFile(file, p);
+
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(p.getAsset("CDR").getLots()).isEmpty();
+    }
+
+    @Test
+    void exception_ShouldThrow_WhenHeaderIsInvalid() throws Exception {
+        Path file = dir.resolve("bad.csv");
+        Files.writeString(file, "ticker,qty\nCDR,1\n");
+        assertThatThrownBy(() -> new TradeImporter().importFile(file, new Portfolio(BigDecimal.ZERO)))
+                .isInstanceOf(DataIntegrityException.class);
+    }
+
+    @Test
+    void import_ShouldHandleLargeFileWithPreSizedLots() throws Exception {
+        Path file = dir.resolve("large.csv");
+        int rows = 200_000;
+        LocalDate start = LocalDate.of(2010, 1, 1);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write(TradeImporter.HEADER);
+            w.newLine();
+            for (int i = 0; i < rows; i++) {
+                String ticker = "T" + (i % 50);
+                String side = (i / 50) % 4 == 3 ? "SELL" : "BUY";
+                w.write(start.plusDays(i / 50) + "," + ticker + ",SHARE," + side + ",1,10");
+                w.newLine();
+            }
+        }
+        Portfolio p = new Portfolio(BigDecimal.ZERO);
+
+        TradeImporter.ImportResult result = new TradeImporter().importFile(file, p);
+
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getTradesImported()).isEqualTo(rows);
+        int total = 0;
+        for (Asset a : p.getAssets().values()) total += a.getTotalQuantity();
+        assertThat(total).isEqualTo(rows / 2);
+    }
+}
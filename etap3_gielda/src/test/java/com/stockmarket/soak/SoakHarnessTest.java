@@ -0,0 +1,72 @@
+package com.stockmarket.soak;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SoakHarnessTest {
+
+    @Test
+    void generator_ShouldBeReproducibleFromSeed() {
+        WorkloadConfig config = new WorkloadConfig().seed(7).accounts(4).saveLoadEvery(10);
+        WorkloadGenerator a = new WorkloadGenerator(config);
+        WorkloadGenerator b = new WorkloadGenerator(config);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(a.next().toString()).isEqualTo(b.next().toString());
+        }
+    }
+
+    @Test
+    void zipf_ShouldFavourLowRanks() {
+        ZipfSampler sampler = new ZipfSampler(100, 1.2);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] hits = new int[100];
+        for (int i = 0; i < 100_000; i++) hits[sampler.sample(random)]++;
+
+        assertThat(hits[0]).isGreaterThan(hits[1]);
+        assertThat(hits[1]).isGreaterThan(hits[10]);
+        assertThat(hits[10]).isGreaterThan(hits[99]);
+    }
+
+    @Test
+    void latency_ShouldReportPercentilesAndReset() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 1000; i++) recorder.record(i);
+
+        long[] p = recorder.drainPercentiles();
+        assertThat(p[0]).isEqualTo(500);
+        assertThat(p[2]).isEqualTo(990);
+        assertThat(p[4]).isEqualTo(1000);
+        assertThat(recorder.getCount()).isZero();
+    }
+
+    @Test
+    void harness_ShouldRunMixedWorkloadWithSaveLoadCycles(@TempDir Path dir) {
+        WorkloadConfig config = new WorkloadConfig()
+                .seed(3)
+                .accounts(3)
+                .tickers(20, 1.1)
+                .heavyAccounts(1, 5_000)
+                .saveLoadEvery(500)
+                .maxOperations(5_000)
+                .duration(Duration.ofMinutes(1))
+                .reportInterval(Duration.ofMinutes(1));
+
+        SoakHarness.SoakReport report = new SoakHarness(config, dir).run();
+
+        assertThat(report.getOperations()).isEqualTo(5_000);
+        assertThat(report.getIntervals()).isNotEmpty();
+        long recorded = report.getIntervals().stream().mapToLong(SoakHarness.IntervalStats::getOperations).sum();
+        assertThat(recorded).isEqualTo(5_000);
+        assertThat(report.getIntervals().get(0).getPercentiles(WorkloadGenerator.Kind.SAVE_LOAD)[4]).isPositive();
+        assertThat(dir.toFile().list()).isNotEmpty(); // pliki z cykli zapis/odczyt
+        assertThat(report.format()).contains("operacje: 5000");
+        assertThat(report.getRestingOrdersVerified()).isPositive(); // zlecenia przetrwały cykle zapis/odczyt
+    }
+}